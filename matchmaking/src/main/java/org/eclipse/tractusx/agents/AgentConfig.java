@@ -55,17 +55,78 @@ public class AgentConfig {
     public static final String NEGOTIATION_POLLINTERVAL_PROPERTY = "cx.agent.negotiation.poll";
     public static final long DEFAULT_NEGOTIATION_POLLINTERVAL = 1000;
 
+    public static final String NEGOTIATION_THREADS = "cx.agent.negotiation.threads";
+    public static final int DEFAULT_NEGOTIATION_THREADS = 4;
+
+    public static final String EDR_REFRESH_INTERVAL_PROPERTY = "cx.agent.edr.refresh.interval";
+    public static final long DEFAULT_EDR_REFRESH_INTERVAL = 10000;
+
+    public static final String EDR_REFRESH_LEAD_PROPERTY = "cx.agent.edr.refresh.lead";
+    public static final long DEFAULT_EDR_REFRESH_LEAD = 60000;
+
+    public static final String EDR_HOT_PERIOD_PROPERTY = "cx.agent.edr.hot";
+    public static final long DEFAULT_EDR_HOT_PERIOD = 600000;
+
     public static final String DATASPACE_SYNCINTERVAL_PROPERTY = "cx.agent.dataspace.synchronization";
     public static final long DEFAULT_DATASPACE_SYNCINTERVAL = -1;
 
     public static final String DATASPACE_SYNCCONNECTORS_PROPERTY = "cx.agent.dataspace.remotes";
 
+    public static final String DATASPACE_SYNCPARALLELISM_PROPERTY = "cx.agent.dataspace.synchronization.parallelism";
+    public static final int DEFAULT_DATASPACE_SYNCPARALLELISM = 4;
+
+    public static final String CATALOG_PAGE_SIZE_PROPERTY = "cx.agent.dataspace.catalog.page";
+    public static final int DEFAULT_CATALOG_PAGE_SIZE = 100;
+
     public static final String RDF_STORE = "cx.agent.rdf.store";
 
+    public static final String AGREEMENT_STORE = "cx.agent.agreement.store";
+
     public static final String VALIDATION_ENDPOINTS = "edc.dataplane.token.validation.endpoints";
 
     public static final String FEDERATION_SERVICE_BATCH_SIZE = "cx.agent.federation.batch.max";
     public static final long DEFAULT_FEDERATION_SERVICE_BATCH_SIZE = Long.MAX_VALUE;
+    public static final String FEDERATION_SERVICE_BATCH_MIN = "cx.agent.federation.batch.min";
+    public static final long DEFAULT_FEDERATION_SERVICE_BATCH_MIN = 100;
+    public static final String FEDERATION_SERVICE_BATCH_INITIAL = "cx.agent.federation.batch.initial";
+    public static final long DEFAULT_FEDERATION_SERVICE_BATCH_INITIAL = 1000;
+    public static final String FEDERATION_SERVICE_BATCH_LATENCY = "cx.agent.federation.batch.latency";
+    public static final long DEFAULT_FEDERATION_SERVICE_BATCH_LATENCY = 5000;
+
+    public static final String FEDERATION_THREADS = "cx.agent.federation.threads";
+    public static final int DEFAULT_FEDERATION_THREADS = 16;
+    public static final String FEDERATION_TARGET_LIMIT = "cx.agent.federation.target.max";
+    public static final int DEFAULT_FEDERATION_TARGET_LIMIT = 4;
+    public static final String FEDERATION_QUEUE_DEPTH = "cx.agent.federation.queue.max";
+    public static final int DEFAULT_FEDERATION_QUEUE_DEPTH = 1000;
+
+    public static final String FEDERATION_SOURCE_SELECTION = "cx.agent.federation.source.selection";
+    public static final boolean DEFAULT_FEDERATION_SOURCE_SELECTION = false;
+
+    public static final String FEDERATION_JOIN_ORDERING = "cx.agent.federation.join.ordering";
+    public static final boolean DEFAULT_FEDERATION_JOIN_ORDERING = true;
+    public static final String FEDERATION_PARALLEL_BRANCHES = "cx.agent.federation.branches.parallel";
+    public static final boolean DEFAULT_FEDERATION_PARALLEL_BRANCHES = true;
+    public static final String FEDERATION_BRANCH_THREADS = "cx.agent.federation.branches.threads";
+    public static final int DEFAULT_FEDERATION_BRANCH_THREADS = 16;
+    public static final String FEDERATION_PUSHDOWN = "cx.agent.federation.pushdown";
+    public static final boolean DEFAULT_FEDERATION_PUSHDOWN = true;
+    public static final String FEDERATION_MEMO_ROWS = "cx.agent.federation.memo.max";
+    public static final long DEFAULT_FEDERATION_MEMO_ROWS = 100000;
+    public static final String FEDERATION_MEMO_SPILL = "cx.agent.federation.memo.spill";
+
+    public static final String FEDERATION_ACCEPT = "cx.agent.federation.accept";
+    public static final String DEFAULT_FEDERATION_ACCEPT = "application/sparql-results+thrift, application/sparql-results+json;q=0.9, application/json;q=0.8";
+
+    public static final String TRANSFER_BUFFER_SIZE = "cx.agent.transfer.buffer";
+    public static final long DEFAULT_TRANSFER_BUFFER_SIZE = 65536;
+    public static final String TRANSFER_THREADS = "cx.agent.transfer.threads";
+    public static final int DEFAULT_TRANSFER_THREADS = 32;
+
+    public static final String SKILL_CACHE_TTL = "cx.agent.skill.cache.ttl";
+    public static final long DEFAULT_SKILL_CACHE_TTL = 60000;
+    public static final String SKILL_CACHE_SIZE = "cx.agent.skill.cache.size";
+    public static final int DEFAULT_SKILL_CACHE_SIZE = 100;
 
     public static final String THREAD_POOL_SIZE = "cx.agent.threadpool.size";
     public static final int DEFAULT_THREAD_POOL_SIZE = 4;
@@ -76,6 +137,21 @@ public class AgentConfig {
     public static final String READ_TIMEOUT_PROPERTY = "cx.agent.read.timeout";
     public static final int DEFAULT_READ_TIMEOUT = 1080000;
 
+    public static final String HTTP_CONNECTIONS_PROPERTY = "cx.agent.http.%s.connections";
+    public static final int DEFAULT_HTTP_CONNECTIONS = 32;
+    public static final String HTTP_KEEPALIVE_PROPERTY = "cx.agent.http.%s.keepalive";
+    public static final long DEFAULT_HTTP_KEEPALIVE = 300000;
+    public static final String HTTP_REQUESTS_PROPERTY = "cx.agent.http.%s.requests.max";
+    public static final int DEFAULT_HTTP_REQUESTS = 256;
+    public static final String HTTP_HOST_REQUESTS_PROPERTY = "cx.agent.http.%s.requests.host";
+    public static final int DEFAULT_HTTP_HOST_REQUESTS = 64;
+    public static final String HTTP_H2C_PROPERTY = "cx.agent.http.h2c";
+    public static final String DEFAULT_HTTP_H2C_PATTERN = "^$";
+    public static final String HTTP_COMPRESSION_MIN_PROPERTY = "cx.agent.http.compression.min";
+    public static final int DEFAULT_HTTP_COMPRESSION_MIN = 1024;
+    public static final String HTTP_COMPRESSION_REQUEST_PROPERTY = "cx.agent.http.compression.request";
+    public static final String DEFAULT_HTTP_COMPRESSION_REQUEST_PATTERN = "^$";
+
     public static final String CALLBACK_ENDPOINT = "cx.agent.callback";
 
     public static final String DEFAULT_SKILL_CONTRACT_PROPERTY = "cx.agent.skill.contract.default";
@@ -113,6 +189,8 @@ public class AgentConfig {
     protected final Pattern serviceAssetAllowPattern;
     protected final Pattern serviceAssetDenyPattern;
     protected final Pattern assetReferencePattern;
+    protected final Pattern h2cPattern;
+    protected final Pattern requestCompressionPattern;
 
     /**
      * references to EDC services
@@ -134,6 +212,8 @@ public class AgentConfig {
         serviceAssetAllowPattern = Pattern.compile(config.getString(SERVICE_ALLOW_ASSET_PROPERTY, DEFAULT_SERVICE_ALLOW_ASSET_PATTERN));
         serviceAssetDenyPattern = Pattern.compile(config.getString(SERVICE_DENY_ASSET_PROPERTY, DEFAULT_SERVICE_DENY_ASSET_PATTERN));
         assetReferencePattern = Pattern.compile("((?<url>[^#]+)#)?(?<asset>.+)");
+        h2cPattern = Pattern.compile(config.getString(HTTP_H2C_PROPERTY, DEFAULT_HTTP_H2C_PATTERN));
+        requestCompressionPattern = Pattern.compile(config.getString(HTTP_COMPRESSION_REQUEST_PROPERTY, DEFAULT_HTTP_COMPRESSION_REQUEST_PATTERN));
     }
 
     /**
@@ -248,6 +328,42 @@ public class AgentConfig {
         return config.getLong(NEGOTIATION_POLLINTERVAL_PROPERTY, DEFAULT_NEGOTIATION_POLLINTERVAL);
     }
 
+    /**
+     * access
+     *
+     * @return the number of threads advancing negotiations and refreshing endpoints, separate from the other agent executors
+     */
+    public int getNegotiationThreads() {
+        return config.getInteger(NEGOTIATION_THREADS, DEFAULT_NEGOTIATION_THREADS);
+    }
+
+    /**
+     * access
+     *
+     * @return the interval in which endpoint references are checked for refresh, -1 if no refresh
+     */
+    public long getEdrRefreshInterval() {
+        return config.getLong(EDR_REFRESH_INTERVAL_PROPERTY, DEFAULT_EDR_REFRESH_INTERVAL);
+    }
+
+    /**
+     * access
+     *
+     * @return the time before the expiry window in which endpoint references are renegotiated
+     */
+    public long getEdrRefreshLead() {
+        return config.getLong(EDR_REFRESH_LEAD_PROPERTY, DEFAULT_EDR_REFRESH_LEAD);
+    }
+
+    /**
+     * access
+     *
+     * @return the period after the last access in which an endpoint reference counts as hot
+     */
+    public long getEdrHotPeriod() {
+        return config.getLong(EDR_HOT_PERIOD_PROPERTY, DEFAULT_EDR_HOT_PERIOD);
+    }
+
     /**
      * access
      *
@@ -257,6 +373,24 @@ public class AgentConfig {
         return config.getLong(DATASPACE_SYNCINTERVAL_PROPERTY, DEFAULT_DATASPACE_SYNCINTERVAL);
     }
 
+    /**
+     * access
+     *
+     * @return the maximal number of connector catalogues fetched at the same time
+     */
+    public int getDataspaceSynchronizationParallelism() {
+        return config.getInteger(DATASPACE_SYNCPARALLELISM_PROPERTY, DEFAULT_DATASPACE_SYNCPARALLELISM);
+    }
+
+    /**
+     * access
+     *
+     * @return the number of datasets requested per catalogue page
+     */
+    public int getCatalogPageSize() {
+        return config.getInteger(CATALOG_PAGE_SIZE_PROPERTY, DEFAULT_CATALOG_PAGE_SIZE);
+    }
+
     protected volatile Map<String, String> knownConnectors;
 
     /**
@@ -297,6 +431,15 @@ public class AgentConfig {
         return config.getString(RDF_STORE, null);
     }
 
+    /**
+     * access
+     *
+     * @return the location of the agreement store, null if agreements should not be persisted
+     */
+    public String getAgreementStore() {
+        return config.getString(AGREEMENT_STORE, null);
+    }
+
     /**
      * access
      *
@@ -324,6 +467,168 @@ public class AgentConfig {
         return config.getLong(FEDERATION_SERVICE_BATCH_SIZE, DEFAULT_FEDERATION_SERVICE_BATCH_SIZE);
     }
 
+    /**
+     * access
+     *
+     * @return minimal batch size for remote service calls when adapting to a slow target
+     */
+    public long getFederationServiceBatchMin() {
+        return config.getLong(FEDERATION_SERVICE_BATCH_MIN, DEFAULT_FEDERATION_SERVICE_BATCH_MIN);
+    }
+
+    /**
+     * access
+     *
+     * @return batch size for the first call to a remote service
+     */
+    public long getFederationServiceBatchInitial() {
+        return config.getLong(FEDERATION_SERVICE_BATCH_INITIAL, DEFAULT_FEDERATION_SERVICE_BATCH_INITIAL);
+    }
+
+    /**
+     * access
+     *
+     * @return latency in milliseconds which a remote service call should not exceed
+     */
+    public long getFederationServiceBatchLatency() {
+        return config.getLong(FEDERATION_SERVICE_BATCH_LATENCY, DEFAULT_FEDERATION_SERVICE_BATCH_LATENCY);
+    }
+
+    /**
+     * access
+     *
+     * @return number of threads executing federated service calls
+     */
+    public int getFederationThreads() {
+        return config.getInteger(FEDERATION_THREADS, DEFAULT_FEDERATION_THREADS);
+    }
+
+    /**
+     * access
+     *
+     * @return maximal number of concurrent service calls to the same target
+     */
+    public int getFederationTargetLimit() {
+        return config.getInteger(FEDERATION_TARGET_LIMIT, DEFAULT_FEDERATION_TARGET_LIMIT);
+    }
+
+    /**
+     * access
+     *
+     * @return maximal number of pending service calls before submitters are blocked
+     */
+    public int getFederationQueueDepth() {
+        return config.getInteger(FEDERATION_QUEUE_DEPTH, DEFAULT_FEDERATION_QUEUE_DEPTH);
+    }
+
+    /**
+     * access
+     *
+     * @return whether connectors whose catalogued shapes cannot match a service pattern are skipped
+     */
+    public boolean isFederationSourceSelection() {
+        return config.getBoolean(FEDERATION_SOURCE_SELECTION, DEFAULT_FEDERATION_SOURCE_SELECTION);
+    }
+
+    /**
+     * access
+     *
+     * @return whether federated joins are ordered by estimated cardinalities
+     */
+    public boolean isFederationJoinOrdering() {
+        return config.getBoolean(FEDERATION_JOIN_ORDERING, DEFAULT_FEDERATION_JOIN_ORDERING);
+    }
+
+    /**
+     * access
+     *
+     * @return whether independent service branches are evaluated concurrently
+     */
+    public boolean isFederationParallelBranches() {
+        return config.getBoolean(FEDERATION_PARALLEL_BRANCHES, DEFAULT_FEDERATION_PARALLEL_BRANCHES);
+    }
+
+    /**
+     * access
+     *
+     * @return maximal number of threads evaluating service branches, further branches are evaluated by the query thread
+     */
+    public int getFederationBranchThreads() {
+        return config.getInteger(FEDERATION_BRANCH_THREADS, DEFAULT_FEDERATION_BRANCH_THREADS);
+    }
+
+    /**
+     * access
+     *
+     * @return whether limit, distinct and projection are pushed into service calls
+     */
+    public boolean isFederationPushdown() {
+        return config.getBoolean(FEDERATION_PUSHDOWN, DEFAULT_FEDERATION_PUSHDOWN);
+    }
+
+    /**
+     * access
+     *
+     * @return maximal number of remote rows memoized in memory per query, 0 to switch off memoization
+     */
+    public long getFederationMemoRows() {
+        return config.getLong(FEDERATION_MEMO_ROWS, DEFAULT_FEDERATION_MEMO_ROWS);
+    }
+
+    /**
+     * access
+     *
+     * @return directory into which memoized rows beyond the maximum are spilled, null if they are dropped
+     */
+    public String getFederationMemoSpill() {
+        return config.getString(FEDERATION_MEMO_SPILL, null);
+    }
+
+    /**
+     * access
+     *
+     * @return accept header with which result sets are requested from other agents
+     */
+    public String getFederationAcceptHeader() {
+        return config.getString(FEDERATION_ACCEPT, DEFAULT_FEDERATION_ACCEPT);
+    }
+
+    /**
+     * access
+     *
+     * @return size of the buffer through which internal query results are streamed, non-positive to collect them in memory
+     */
+    public long getTransferBufferSize() {
+        return config.getLong(TRANSFER_BUFFER_SIZE, DEFAULT_TRANSFER_BUFFER_SIZE);
+    }
+
+    /**
+     * access
+     *
+     * @return maximal number of internal queries whose results are streamed concurrently (further queries are rejected)
+     */
+    public int getTransferThreads() {
+        return config.getInteger(TRANSFER_THREADS, DEFAULT_TRANSFER_THREADS);
+    }
+
+    /**
+     * access
+     *
+     * @return time in milliseconds for which skills are cached, non-positive to disable the cache
+     */
+    public long getSkillCacheTtl() {
+        return config.getLong(SKILL_CACHE_TTL, DEFAULT_SKILL_CACHE_TTL);
+    }
+
+    /**
+     * access
+     *
+     * @return maximal number of cached skills
+     */
+    public int getSkillCacheSize() {
+        return config.getInteger(SKILL_CACHE_SIZE, DEFAULT_SKILL_CACHE_SIZE);
+    }
+
     /**
      * access
      *
@@ -360,6 +665,73 @@ public class AgentConfig {
         return config.getInteger(CALL_TIMEOUT_PROPERTY, null);
     }
 
+    /**
+     * access
+     *
+     * @param plane name of the traffic class, such as control or data
+     * @return maximal number of idle connections kept in the pool
+     */
+    public int getHttpConnections(String plane) {
+        return config.getInteger(String.format(HTTP_CONNECTIONS_PROPERTY, plane), DEFAULT_HTTP_CONNECTIONS);
+    }
+
+    /**
+     * access
+     *
+     * @param plane name of the traffic class, such as control or data
+     * @return time in milliseconds for which idle connections are kept alive
+     */
+    public long getHttpKeepAlive(String plane) {
+        return config.getLong(String.format(HTTP_KEEPALIVE_PROPERTY, plane), DEFAULT_HTTP_KEEPALIVE);
+    }
+
+    /**
+     * access
+     *
+     * @param plane name of the traffic class, such as control or data
+     * @return maximal number of concurrent asynchronous requests
+     */
+    public int getHttpRequests(String plane) {
+        return config.getInteger(String.format(HTTP_REQUESTS_PROPERTY, plane), DEFAULT_HTTP_REQUESTS);
+    }
+
+    /**
+     * access
+     *
+     * @param plane name of the traffic class, such as control or data
+     * @return maximal number of concurrent asynchronous requests per host
+     */
+    public int getHttpHostRequests(String plane) {
+        return config.getInteger(String.format(HTTP_HOST_REQUESTS_PROPERTY, plane), DEFAULT_HTTP_HOST_REQUESTS);
+    }
+
+    /**
+     * access
+     *
+     * @return regular expression for (in-cluster) service URLs which are called with cleartext http/2
+     */
+    public Pattern getHttpH2cPattern() {
+        return h2cPattern;
+    }
+
+    /**
+     * access
+     *
+     * @return minimal size in bytes of a request or response body to be gzip compressed
+     */
+    public int getHttpCompressionThreshold() {
+        return config.getInteger(HTTP_COMPRESSION_MIN_PROPERTY, DEFAULT_HTTP_COMPRESSION_MIN);
+    }
+
+    /**
+     * access
+     *
+     * @return regular expression for target urls which accept gzip compressed request bodies
+     */
+    public Pattern getHttpRequestCompressionPattern() {
+        return requestCompressionPattern;
+    }
+
     /**
      * access
      *
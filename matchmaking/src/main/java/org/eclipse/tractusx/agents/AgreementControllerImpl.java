@@ -16,18 +16,15 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.eclipse.tractusx.agents;
 
-import com.nimbusds.jose.JWSObject;
 import jakarta.json.Json;
 import jakarta.json.JsonValue;
 import jakarta.ws.rs.BadRequestException;
-import jakarta.ws.rs.ClientErrorException;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.InternalServerErrorException;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.Response;
 import org.eclipse.tractusx.agents.jsonld.JsonLd;
 import org.eclipse.tractusx.agents.model.ContractAgreement;
 import org.eclipse.tractusx.agents.model.ContractNegotiation;
@@ -40,6 +37,7 @@ import org.eclipse.tractusx.agents.model.TransferProcess;
 import org.eclipse.tractusx.agents.model.TransferRequest;
 import org.eclipse.tractusx.agents.service.DataManagement;
 import org.eclipse.tractusx.agents.service.DataspaceSynchronizer;
+import org.eclipse.tractusx.agents.utils.CachedEndpoint;
 import org.eclipse.tractusx.agents.utils.CallbackAddress;
 import org.eclipse.tractusx.agents.utils.DataAddress;
 import org.eclipse.tractusx.agents.utils.EndpointDataReference;
@@ -48,13 +46,18 @@ import org.eclipse.tractusx.agents.utils.Monitor;
 import org.eclipse.tractusx.agents.utils.TransferProcessStarted;
 
 import java.io.IOException;
-import java.text.ParseException;
-import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 /**
@@ -75,22 +78,40 @@ public class AgreementControllerImpl implements AgreementController {
     protected final Monitor monitor;
     protected final DataManagement dataManagement;
     protected final AgentConfig config;
+    protected final ScheduledExecutorService scheduler;
+    protected final AgreementStore store;
+
+    /**
+     * expiry window in which a token is no more handed out
+     */
+    public static final long EXPIRY_WINDOW = 30 * 1000L;
 
     /**
      * memory store for links from assets to the actual transfer addresses
+     * all stores are safe for concurrent (lock-free) reads
      * TODO make this a distributed cache
-     * TODO let this cache evict invalidate references automatically
      */
     // hosts all pending processes
-    protected final Set<String> activeAssets = new HashSet<>();
+    protected final Set<String> activeAssets = ConcurrentHashMap.newKeySet();
     // any contract agreements indexed by asset
-    protected final Map<String, ContractAgreement> agreementStore = new HashMap<>();
+    protected final Map<String, ContractAgreement> agreementStore = new ConcurrentHashMap<>();
     // any transfer processes indexed by asset, the current process should
     // always adhere to the above agreement
-    protected final Map<String, TransferProcess> processStore = new HashMap<>();
+    protected final Map<String, TransferProcess> processStore = new ConcurrentHashMap<>();
     // at the end of provisioning and endpoint reference will be set
     // that fits to the current transfer process
-    protected final Map<String, EndpointDataReference> endpointStore = new HashMap<>();
+    protected final Map<String, CachedEndpoint> endpointStore = new ConcurrentHashMap<>();
+    // the connectors which have been used to negotiate an asset
+    protected final Map<String, String> connectorStore = new ConcurrentHashMap<>();
+    // the offered asset properties which are marked in the endpoints of an asset
+    protected final Map<String, Map<String, String>> propertyStore = new ConcurrentHashMap<>();
+    // hosts the pending negotiation pipelines shared by all requesters of an asset
+    protected final Map<String, CompletableFuture<EndpointDataReference>> pendingAgreements = new ConcurrentHashMap<>();
+
+    /**
+     * internal state
+     */
+    protected ScheduledFuture<?> refresher;
 
     /**
      * creates an agreement controller
@@ -98,11 +119,40 @@ public class AgreementControllerImpl implements AgreementController {
      * @param monitor        logger
      * @param config         typed config
      * @param dataManagement data management service wrapper
+     * @param scheduler      scheduler advancing the negotiation pipelines
+     * @param store          persistence of agreements and endpoints
      */
-    public AgreementControllerImpl(Monitor monitor, AgentConfig config, DataManagement dataManagement) {
+    public AgreementControllerImpl(Monitor monitor, AgentConfig config, DataManagement dataManagement, ScheduledExecutorService scheduler, AgreementStore store) {
         this.monitor = monitor;
         this.dataManagement = dataManagement;
         this.config = config;
+        this.scheduler = scheduler;
+        this.store = store;
+        restore();
+    }
+
+    /**
+     * restores the still valid endpoints from the store
+     */
+    protected void restore() {
+        long now = System.currentTimeMillis();
+        Map<String, ContractAgreement> agreements = store.getAgreements();
+        for (Map.Entry<String, CachedEndpoint> entry : store.getEndpoints().entrySet()) {
+            String asset = entry.getKey();
+            CachedEndpoint cached = entry.getValue();
+            if (cached.isValidAt(now + EXPIRY_WINDOW)) {
+                monitor.debug(String.format("Restoring endpoint for asset %s", asset));
+                endpointStore.put(asset, cached);
+                if (cached.getRemoteUrl() != null) {
+                    connectorStore.put(asset, cached.getRemoteUrl());
+                }
+                ContractAgreement agreement = agreements.get(asset);
+                if (agreement != null) {
+                    agreementStore.put(asset, agreement);
+                }
+                activeAssets.add(asset);
+            }
+        }
     }
 
     /**
@@ -113,6 +163,47 @@ public class AgreementControllerImpl implements AgreementController {
         return super.toString() + "/transfer-process-started";
     }
 
+    /**
+     * starts the background refresh of hot endpoints
+     */
+    public synchronized void start() {
+        long interval = config.getEdrRefreshInterval();
+        if (refresher == null && interval > 0) {
+            monitor.info(String.format("Starting endpoint refresh with interval %d milliseconds", interval));
+            refresher = scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * stops the background refresh
+     */
+    public synchronized void shutdown() {
+        if (refresher != null) {
+            monitor.info("Shutting down endpoint refresh");
+            refresher.cancel(false);
+            refresher = null;
+        }
+        store.close();
+    }
+
+    /**
+     * renegotiates endpoints which have recently been used
+     * before their tokens enter the expiry window
+     */
+    protected void refresh() {
+        long now = System.currentTimeMillis();
+        long horizon = now + EXPIRY_WINDOW + config.getEdrRefreshLead();
+        for (Map.Entry<String, CachedEndpoint> entry : endpointStore.entrySet()) {
+            String asset = entry.getKey();
+            CachedEndpoint cached = entry.getValue();
+            if (cached.getRemoteUrl() != null && !cached.isValidAt(horizon) && cached.isValidAt(now + EXPIRY_WINDOW)
+                    && now - cached.getLastAccess() < config.getEdrHotPeriod() && !pendingAgreements.containsKey(asset)) {
+                monitor.debug(String.format("About to refresh endpoint for hot asset %s at connector %s", asset, cached.getRemoteUrl()));
+                negotiate(cached.getRemoteUrl(), asset);
+            }
+        }
+    }
+
     /**
      * this is called by the control plane when an agreement has been made
      *
@@ -123,16 +214,21 @@ public class AgreementControllerImpl implements AgreementController {
         var processId = dataReference.getPayload().getTransferProcessId();
         var assetId = dataReference.getPayload().getAssetId();
         monitor.debug(String.format("A transfer process %s for asset %s has been started.", processId, assetId));
-        synchronized (endpointStore) {
-            EndpointDataReference newRef = EndpointDataReference.Builder.newInstance()
-                    .id(dataReference.getId())
-                    .contractId(dataReference.getPayload().getContractId())
-                    .endpoint(dataReference.getPayload().getDataAddress().getStringProperty("https://w3id.org/edc/v0.0.1/ns/endpoint", null))
-                    .authKey("Authorization")
-                    .authCode(dataReference.getPayload().getDataAddress().getStringProperty("https://w3id.org/edc/v0.0.1/ns/authorization", null))
-                    .build();
-            endpointStore.put(assetId, newRef);
+        EndpointDataReference newRef = EndpointDataReference.Builder.newInstance()
+                .id(dataReference.getId())
+                .contractId(dataReference.getPayload().getContractId())
+                .endpoint(dataReference.getPayload().getDataAddress().getStringProperty("https://w3id.org/edc/v0.0.1/ns/endpoint", null))
+                .authKey("Authorization")
+                .authCode(dataReference.getPayload().getDataAddress().getStringProperty("https://w3id.org/edc/v0.0.1/ns/authorization", null))
+                .build();
+        // mark the properties before the reference is published or persisted
+        Map<String, String> properties = propertyStore.get(assetId);
+        if (properties != null) {
+            newRef.getProperties().putAll(properties);
         }
+        CachedEndpoint cached = CachedEndpoint.of(newRef, connectorStore.get(assetId));
+        endpointStore.put(assetId, cached);
+        store.put(assetId, cached, agreementStore.get(assetId));
     }
 
     /**
@@ -143,44 +239,31 @@ public class AgreementControllerImpl implements AgreementController {
      */
     @Override
     public EndpointDataReference get(String assetId) {
-        synchronized (activeAssets) {
-            if (!activeAssets.contains(assetId)) {
-                monitor.debug(String.format("Asset %s is not active", assetId));
-                return null;
+        if (!activeAssets.contains(assetId)) {
+            monitor.debug(String.format("Asset %s is not active", assetId));
+            return null;
+        }
+        CachedEndpoint cached = endpointStore.get(assetId);
+        if (cached != null) {
+            cached.touch();
+            if (cached.isValidAt(System.currentTimeMillis() + EXPIRY_WINDOW)) {
+                return cached.getReference();
             }
-            synchronized (endpointStore) {
-                EndpointDataReference result = endpointStore.get(assetId);
-                if (result != null) {
-                    String token = result.getAuthCode();
-                    if (token != null) {
-                        try {
-                            JWSObject jwt = JWSObject.parse(token);
-                            Object expiryObject = jwt.getPayload().toJSONObject().get("exp");
-                            if (expiryObject instanceof Long) {
-                                // token times are in seconds
-                                if (!new Date((Long) expiryObject * 1000).before(new Date(System.currentTimeMillis() + 30 * 1000))) {
-                                    return result;
-                                }
-                            }
-                        } catch (ParseException | NumberFormatException e) {
-                            monitor.debug(String.format("Active asset %s has invalid agreement token.", assetId));
-                        }
-                    }
-                    endpointStore.remove(assetId);
-                }
-                monitor.debug(String.format("Active asset %s has timed out or was not installed.", assetId));
-                synchronized (processStore) {
-                    processStore.remove(assetId);
-                    synchronized (agreementStore) {
-                        ContractAgreement agreement = agreementStore.get(assetId);
-                        if (agreement != null && agreement.getContractSigningDate() + 600000L <= System.currentTimeMillis()) {
-                            agreementStore.remove(assetId);
-                        }
-                        activeAssets.remove(assetId);
-                    }
-                }
+            if (endpointStore.remove(assetId, cached)) {
+                store.remove(assetId);
             }
         }
+        if (pendingAgreements.containsKey(assetId)) {
+            // a running (re-)negotiation will install a fresh endpoint
+            return null;
+        }
+        monitor.debug(String.format("Active asset %s has timed out or was not installed.", assetId));
+        processStore.remove(assetId);
+        ContractAgreement agreement = agreementStore.get(assetId);
+        if (agreement != null && agreement.getContractSigningDate() + 600000L <= System.currentTimeMillis()) {
+            agreementStore.remove(assetId, agreement);
+        }
+        activeAssets.remove(assetId);
         return null;
     }
 
@@ -190,29 +273,18 @@ public class AgreementControllerImpl implements AgreementController {
      * @param asset name
      */
     protected void activate(String asset) {
-        synchronized (activeAssets) {
-            if (activeAssets.contains(asset)) {
-                throw new ClientErrorException("Cannot agree on an already active asset.", Response.Status.CONFLICT);
-            }
-            activeAssets.add(asset);
-        }
+        activeAssets.add(asset);
     }
 
     /**
-     * sets active
+     * sets inactive
      *
      * @param asset name
      */
     protected void deactivate(String asset) {
-        synchronized (activeAssets) {
-            activeAssets.remove(asset);
-        }
-        synchronized (agreementStore) {
-            agreementStore.remove(asset);
-        }
-        synchronized (processStore) {
-            processStore.remove(asset);
-        }
+        activeAssets.remove(asset);
+        agreementStore.remove(asset);
+        processStore.remove(asset);
     }
 
     /**
@@ -222,9 +294,7 @@ public class AgreementControllerImpl implements AgreementController {
      * @param agreement object
      */
     protected void registerAgreement(String asset, ContractAgreement agreement) {
-        synchronized (agreementStore) {
-            agreementStore.put(asset, agreement);
-        }
+        agreementStore.put(asset, agreement);
     }
 
     /**
@@ -234,14 +304,15 @@ public class AgreementControllerImpl implements AgreementController {
      * @param process object
      */
     protected void registerProcess(String asset, TransferProcess process) {
-        synchronized (processStore) {
+        if (process != null) {
             processStore.put(asset, process);
         }
     }
 
     /**
      * creates a new agreement (asynchronously)
-     * and waits for the result
+     * and waits for the result. Concurrent calls for the same
+     * asset will share the same pending negotiation.
      * TODO make this federation aware: multiple assets, different policies
      *
      * @param remoteUrl ids endpoint url of the remote connector
@@ -249,193 +320,333 @@ public class AgreementControllerImpl implements AgreementController {
      */
     @Override
     public EndpointDataReference createAgreement(String remoteUrl, String asset) throws WebApplicationException {
-        monitor.debug(String.format("About to create an agreement for asset %s at connector %s", asset, remoteUrl));
+        CompletableFuture<EndpointDataReference> pending = negotiate(remoteUrl, asset);
+        try {
+            // catalog, negotiation, transfer and reference phases are each bounded by the negotiation timeout
+            return pending.get(4 * config.getNegotiationTimeout(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof WebApplicationException) {
+                throw (WebApplicationException) e.getCause();
+            }
+            throw new InternalServerErrorException(String.format("Agreement for asset %s at connector %s could not be made.", asset, remoteUrl), e.getCause());
+        } catch (TimeoutException e) {
+            throw new InternalServerErrorException(String.format("Agreement for asset %s at connector %s could not be made in time.", asset, remoteUrl), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException(String.format("Waiting for agreement for asset %s at connector %s has been interrupted.", asset, remoteUrl), e);
+        }
+    }
+
+    /**
+     * starts a new negotiation pipeline or joins an already running one
+     *
+     * @param remoteUrl ids endpoint url of the remote connector
+     * @param asset name of the asset to agree upon
+     * @return future endpoint data reference
+     */
+    public CompletableFuture<EndpointDataReference> negotiate(String remoteUrl, String asset) {
+        CompletableFuture<EndpointDataReference> created = new CompletableFuture<>();
+        CompletableFuture<EndpointDataReference> existing = pendingAgreements.putIfAbsent(asset, created);
+        if (existing != null) {
+            monitor.debug(String.format("Joining pending agreement for asset %s at connector %s", asset, remoteUrl));
+            return existing;
+        }
+        connectorStore.put(asset, remoteUrl);
+        created.whenComplete((reference, problem) -> pendingAgreements.remove(asset, created));
+        Negotiation negotiation = new Negotiation(remoteUrl, asset, created);
+        try {
+            scheduler.execute(() -> negotiation.guard(negotiation::start));
+        } catch (RejectedExecutionException e) {
+            negotiation.fail(new InternalServerErrorException(String.format("Cannot schedule agreement for asset %s.", asset), e));
+        }
+        return created;
+    }
 
-        activate(asset);
+    /**
+     * A negotiation pipeline (catalogue, negotiation, agreement, transfer, reference)
+     * whose individual states are advanced by the scheduler instead of blocking a thread
+     */
+    protected class Negotiation {
 
-        DcatCatalog contractOffers;
+        protected final String remoteUrl;
+        protected final String asset;
+        protected final CompletableFuture<EndpointDataReference> result;
 
-        try {
-            contractOffers = dataManagement.findContractOffers(remoteUrl, asset);
-        } catch (IOException io) {
-            deactivate(asset);
-            throw new InternalServerErrorException(String.format("Error when resolving contract offers from %s for asset %s through data management api.", remoteUrl, asset), io);
+        protected Map<String, JsonValue> assetProperties;
+        protected String offerId;
+        protected String negotiationId;
+        protected ContractAgreement agreement;
+        protected String transferId;
+        protected long phaseStart;
+        protected final long startTime = System.currentTimeMillis();
+
+        // EDC 0.5.1 has a problem with the checker configuration and wont process to COMPLETED
+        protected final String expectedTransferState = "STARTED";
+
+        /**
+         * creates a new pipeline
+         *
+         * @param remoteUrl ids endpoint url of the remote connector
+         * @param asset name of the asset to agree upon
+         * @param result future to complete
+         */
+        protected Negotiation(String remoteUrl, String asset, CompletableFuture<EndpointDataReference> result) {
+            this.remoteUrl = remoteUrl;
+            this.asset = asset;
+            this.result = result;
         }
 
-        if (contractOffers.getDatasets().isEmpty()) {
-            deactivate(asset);
-            throw new BadRequestException(String.format("There is no contract offer in remote connector %s related to asset %s.", remoteUrl, asset));
+        /**
+         * aborts the pipeline
+         *
+         * @param problem reason for failure
+         */
+        protected void fail(WebApplicationException problem) {
+            CachedEndpoint cached = endpointStore.get(asset);
+            // a failed refresh should not invalidate a still usable endpoint
+            if (cached == null || !cached.isValidAt(System.currentTimeMillis() + EXPIRY_WINDOW)) {
+                deactivate(asset);
+            }
+            result.completeExceptionally(problem);
         }
 
-        // TODO implement a cost-based offer choice
-        DcatDataset contractOffer = contractOffers.getDatasets().get(0);
-        Map<String, JsonValue> assetProperties = DataspaceSynchronizer.getProperties(contractOffer);
-        OdrlPolicy policy = contractOffer.hasPolicy();
-        String offerId = policy.getId();
-        JsonValue offerType = assetProperties.get("http://www.w3.org/1999/02/22-rdf-syntax-ns#type");
-        monitor.debug(String.format("About to create an agreement for contract offer %s (for asset %s of type %s at connector %s)", offerId, asset,
-                offerType, remoteUrl));
-
-        var contractOfferDescription = new ContractOfferDescription(
-                offerId,
-                asset,
-                policy
-        );
-        var contractNegotiationRequest = ContractNegotiationRequest.Builder.newInstance()
-                .offerId(contractOfferDescription)
-                .connectorId("provider")
-                .connectorAddress(String.format(DataManagement.DSP_PATH, remoteUrl))
-                .protocol("dataspace-protocol-http")
-                .localBusinessPartnerNumber(config.getBusinessPartnerNumber())
-                .remoteBusinessPartnerNumber(contractOffers.getParticipantId())
-                .build();
-        String negotiationId;
+        /**
+         * runs a step and turns any unexpected problem into a failure
+         *
+         * @param step the step to run
+         */
+        protected void guard(Runnable step) {
+            try {
+                step.run();
+            } catch (WebApplicationException e) {
+                fail(e);
+            } catch (RuntimeException e) {
+                fail(new InternalServerErrorException(String.format("Agreement for asset %s failed.", asset), e));
+            }
+        }
 
-        try {
-            negotiationId = dataManagement.initiateNegotiation(contractNegotiationRequest);
-        } catch (IOException ioe) {
-            deactivate(asset);
-            throw new InternalServerErrorException(String.format("Error when initiating negotation for offer %s through data management api.", offerId), ioe);
+        /**
+         * reschedules the given step after the poll interval
+         * if the current phase has not timed out
+         *
+         * @param step next step
+         * @param timeoutProblem error to produce when timed out
+         */
+        protected void poll(Runnable step, String timeoutProblem) {
+            if (result.isDone()) {
+                return;
+            }
+            if (System.currentTimeMillis() - phaseStart >= config.getNegotiationTimeout()) {
+                fail(new InternalServerErrorException(timeoutProblem));
+                return;
+            }
+            try {
+                scheduler.schedule(() -> guard(step), config.getNegotiationPollInterval(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                fail(new InternalServerErrorException(String.format("Cannot schedule agreement for asset %s.", asset), e));
+            }
         }
 
-        monitor.debug(String.format("About to check negotiation %s for contract offer %s (for asset %s at connector %s)", negotiationId, offerId, asset, remoteUrl));
+        /**
+         * lookup catalogue and initiate negotiation
+         */
+        protected void start() {
+            monitor.debug(String.format("About to create an agreement for asset %s at connector %s", asset, remoteUrl));
 
-        // Check negotiation state
-        ContractNegotiation negotiation = null;
+            activate(asset);
 
-        long startTime = System.currentTimeMillis();
+            DcatCatalog contractOffers;
 
-        try {
-            while ((System.currentTimeMillis() - startTime < config.getNegotiationTimeout()) &&
-                    (negotiation == null ||
-                    (!negotiation.getState().equals("FINALIZED") && !negotiation.getState().equals("TERMINATED")))) {
-                Thread.sleep(config.getNegotiationPollInterval());
-                negotiation = dataManagement.getNegotiation(
-                        negotiationId
-                );
+            try {
+                contractOffers = dataManagement.findContractOffers(remoteUrl, asset);
+            } catch (IOException io) {
+                fail(new InternalServerErrorException(String.format("Error when resolving contract offers from %s for asset %s through data management api.", remoteUrl, asset), io));
+                return;
             }
-        } catch (InterruptedException e) {
-            monitor.info(String.format("Negotiation thread for asset %s negotiation %s has been interrupted. Giving up.", asset, negotiationId), e);
-        } catch (IOException e) {
-            monitor.warning(String.format("Negotiation thread for asset %s negotiation %s run into problem. Giving up.", asset, negotiationId), e);
+
+            if (contractOffers.getDatasets().isEmpty()) {
+                fail(new BadRequestException(String.format("There is no contract offer in remote connector %s related to asset %s.", remoteUrl, asset)));
+                return;
+            }
+
+            // TODO implement a cost-based offer choice
+            DcatDataset contractOffer = contractOffers.getDatasets().get(0);
+            assetProperties = DataspaceSynchronizer.getProperties(contractOffer);
+            Map<String, String> properties = new HashMap<>();
+            for (Map.Entry<String, JsonValue> prop : assetProperties.entrySet()) {
+                properties.put(prop.getKey(), JsonLd.asString(prop.getValue()));
+            }
+            propertyStore.put(asset, properties);
+            OdrlPolicy policy = contractOffer.hasPolicy();
+            offerId = policy.getId();
+            JsonValue offerType = assetProperties.get("http://www.w3.org/1999/02/22-rdf-syntax-ns#type");
+            monitor.debug(String.format("About to create an agreement for contract offer %s (for asset %s of type %s at connector %s)", offerId, asset,
+                    offerType, remoteUrl));
+
+            var contractOfferDescription = new ContractOfferDescription(
+                    offerId,
+                    asset,
+                    policy
+            );
+            var contractNegotiationRequest = ContractNegotiationRequest.Builder.newInstance()
+                    .offerId(contractOfferDescription)
+                    .connectorId("provider")
+                    .connectorAddress(String.format(DataManagement.DSP_PATH, remoteUrl))
+                    .protocol("dataspace-protocol-http")
+                    .localBusinessPartnerNumber(config.getBusinessPartnerNumber())
+                    .remoteBusinessPartnerNumber(contractOffers.getParticipantId())
+                    .build();
+
+            try {
+                negotiationId = dataManagement.initiateNegotiation(contractNegotiationRequest);
+            } catch (IOException ioe) {
+                fail(new InternalServerErrorException(String.format("Error when initiating negotation for offer %s through data management api.", offerId), ioe));
+                return;
+            }
+
+            monitor.debug(String.format("About to check negotiation %s for contract offer %s (for asset %s at connector %s)", negotiationId, offerId, asset, remoteUrl));
+
+            phaseStart = System.currentTimeMillis();
+            poll(this::checkNegotiation, String.format("Contract Negotiation %s for asset %s was not successful.", negotiationId, asset));
         }
 
-        if (negotiation == null || !negotiation.getState().equals("FINALIZED")) {
-            deactivate(asset);
-            if (negotiation != null) {
+        /**
+         * check the negotiation state and initiate the transfer once finalized
+         */
+        protected void checkNegotiation() {
+            ContractNegotiation negotiation;
+            try {
+                negotiation = dataManagement.getNegotiation(negotiationId);
+            } catch (IOException e) {
+                monitor.warning(String.format("Negotiation for asset %s negotiation %s run into problem. Giving up.", asset, negotiationId), e);
+                fail(new InternalServerErrorException(String.format("Contract Negotiation %s for asset %s was not successful.", negotiationId, asset), e));
+                return;
+            }
+
+            if (negotiation == null || (!negotiation.getState().equals("FINALIZED") && !negotiation.getState().equals("TERMINATED"))) {
+                poll(this::checkNegotiation, String.format("Contract Negotiation %s for asset %s was not successful.", negotiationId, asset));
+                return;
+            }
+
+            if (!negotiation.getState().equals("FINALIZED")) {
                 String errorDetail = negotiation.getErrorDetail();
                 if (errorDetail != null) {
                     monitor.severe(String.format("Contract Negotiation %s failed because of %s", negotiationId, errorDetail));
                 }
+                fail(new InternalServerErrorException(String.format("Contract Negotiation %s for asset %s was not successful.", negotiationId, asset)));
+                return;
             }
-            throw new InternalServerErrorException(String.format("Contract Negotiation %s for asset %s was not successful.", negotiationId, asset));
-        }
 
-        monitor.debug(String.format("About to check agreement %s for contract offer %s (for asset %s at connector %s)", negotiation.getContractAgreementId(), offerId, asset, remoteUrl));
+            monitor.debug(String.format("About to check agreement %s for contract offer %s (for asset %s at connector %s)", negotiation.getContractAgreementId(), offerId, asset, remoteUrl));
 
-        ContractAgreement agreement;
-
-        try {
-            agreement = dataManagement.getAgreement(negotiation.getContractAgreementId());
-        } catch (IOException ioe) {
-            deactivate(asset);
-            throw new InternalServerErrorException(String.format("Error when retrieving agreement %s for negotiation %s.", negotiation.getContractAgreementId(), negotiationId), ioe);
-        }
-
-        if (agreement == null || !agreement.getAssetId().endsWith(asset)) {
-            deactivate(asset);
-            throw new InternalServerErrorException(String.format("Agreement %s does not refer to asset %s.", negotiation.getContractAgreementId(), asset));
-        }
+            try {
+                agreement = dataManagement.getAgreement(negotiation.getContractAgreementId());
+            } catch (IOException ioe) {
+                fail(new InternalServerErrorException(String.format("Error when retrieving agreement %s for negotiation %s.", negotiation.getContractAgreementId(), negotiationId), ioe));
+                return;
+            }
 
-        registerAgreement(asset, agreement);
+            if (agreement == null || !agreement.getAssetId().endsWith(asset)) {
+                fail(new InternalServerErrorException(String.format("Agreement %s does not refer to asset %s.", negotiation.getContractAgreementId(), asset)));
+                return;
+            }
 
-        DataAddress dataDestination = DataAddress.Builder.newInstance()
-                .type(TRANSFER_TYPE)
-                .build();
+            registerAgreement(asset, agreement);
 
-        CallbackAddress address =
-                CallbackAddress.Builder.newInstance().uri(config.getCallbackEndpoint()).build();
-
-        TransferRequest transferRequest = TransferRequest.Builder.newInstance()
-                .assetId(asset)
-                .contractId(agreement.getId())
-                .connectorId(config.getBusinessPartnerNumber())
-                .connectorAddress(String.format(DataManagement.DSP_PATH, remoteUrl))
-                .protocol("dataspace-protocol-http")
-                .dataDestination(dataDestination)
-                .managedResources(false)
-                .callbackAddresses(List.of(address))
-                .build();
+            DataAddress dataDestination = DataAddress.Builder.newInstance()
+                    .type(TRANSFER_TYPE)
+                    .build();
 
-        monitor.debug(String.format("About to initiate transfer for agreement %s (for asset %s at connector %s)", negotiation.getContractAgreementId(), asset, remoteUrl));
+            CallbackAddress address =
+                    CallbackAddress.Builder.newInstance().uri(config.getCallbackEndpoint()).build();
+
+            TransferRequest transferRequest = TransferRequest.Builder.newInstance()
+                    .assetId(asset)
+                    .contractId(agreement.getId())
+                    .connectorId(config.getBusinessPartnerNumber())
+                    .connectorAddress(String.format(DataManagement.DSP_PATH, remoteUrl))
+                    .protocol("dataspace-protocol-http")
+                    .dataDestination(dataDestination)
+                    .managedResources(false)
+                    .callbackAddresses(List.of(address))
+                    .build();
 
-        String transferId;
-        TransferProcess process;
+            monitor.debug(String.format("About to initiate transfer for agreement %s (for asset %s at connector %s)", negotiation.getContractAgreementId(), asset, remoteUrl));
 
-        try {
-            synchronized (processStore) {
+            try {
                 transferId = dataManagement.initiateHttpProxyTransferProcess(transferRequest);
-                process = new TransferProcess(Json.createObjectBuilder().add("@id", transferId).add("https://w3id.org/edc/v0.0.1/ns/state", "UNINITIALIZED").build());
+                TransferProcess process = new TransferProcess(Json.createObjectBuilder().add("@id", transferId).add("https://w3id.org/edc/v0.0.1/ns/state", "UNINITIALIZED").build());
                 registerProcess(asset, process);
+            } catch (IOException ioe) {
+                fail(new InternalServerErrorException(String.format("HttpProxy transfer for agreement %s could not be initiated.", agreement.getId()), ioe));
+                return;
             }
-        } catch (IOException ioe) {
-            deactivate(asset);
-            throw new InternalServerErrorException(String.format("HttpProxy transfer for agreement %s could not be initiated.", agreement.getId()), ioe);
-        }
 
-        monitor.debug(String.format("About to check transfer %s (for asset %s at connector %s)", transferId, asset, remoteUrl));
+            monitor.debug(String.format("About to check transfer %s (for asset %s at connector %s)", transferId, asset, remoteUrl));
 
-        // Check negotiation state
-        startTime = System.currentTimeMillis();
+            phaseStart = System.currentTimeMillis();
+            poll(this::checkTransfer, String.format("Transfer process %s for agreement %s and asset %s could not be provisioned.", transferId, agreement.getId(), asset));
+        }
 
-        // EDC 0.5.1 has a problem with the checker configuration and wont process to COMPLETED
-        String expectedTransferState = "STARTED";
+        /**
+         * check the transfer state and wait for the endpoint reference once started
+         */
+        protected void checkTransfer() {
+            TransferProcess process;
+            try {
+                process = dataManagement.getTransfer(transferId);
+            } catch (IOException e) {
+                monitor.warning(String.format("Process for asset %s transfer %s run into problem. Giving up.", asset, transferId), e);
+                fail(new InternalServerErrorException(String.format("Transfer process %s for agreement %s and asset %s could not be provisioned.", transferId, agreement.getId(), asset), e));
+                return;
+            }
+            registerProcess(asset, process);
 
-        try {
-            while ((System.currentTimeMillis() - startTime < config.getNegotiationTimeout()) && (process == null || !process.getState().equals(expectedTransferState))) {
-                Thread.sleep(config.getNegotiationPollInterval());
-                process = dataManagement.getTransfer(
-                        transferId
-                );
-                registerProcess(asset, process);
+            if (process == null || !process.getState().equals(expectedTransferState)) {
+                poll(this::checkTransfer, String.format("Transfer process %s for agreement %s and asset %s could not be provisioned.", transferId, agreement.getId(), asset));
+                return;
             }
-        } catch (InterruptedException e) {
-            monitor.info(String.format("Process thread for asset %s transfer %s has been interrupted. Giving up.", asset, transferId), e);
-        } catch (IOException e) {
-            monitor.warning(String.format("Process thread for asset %s transfer %s run into problem. Giving up.", asset, transferId), e);
-        }
 
-        if (process == null || !process.getState().equals(expectedTransferState)) {
-            deactivate(asset);
-            throw new InternalServerErrorException(String.format("Transfer process %s for agreement %s and asset %s could not be provisioned.", transferId, agreement.getId(), asset));
+            // finally wait a bit for the endpoint data reference in case
+            // that the process was signalled earlier than the callbacks
+            phaseStart = System.currentTimeMillis();
+            checkReference();
         }
 
-        // finally wait a bit for the endpoint data reference in case
-        // that the process was signalled earlier than the callbacks
-        startTime = System.currentTimeMillis();
-
-        EndpointDataReference reference = null;
-
-        try {
-            while ((System.currentTimeMillis() - startTime < config.getNegotiationTimeout()) && (reference == null)) {
-                Thread.sleep(config.getNegotiationPollInterval());
-                synchronized (endpointStore) {
-                    reference = endpointStore.get(asset);
+        /**
+         * check for the endpoint reference posted by the callback
+         */
+        protected void checkReference() {
+            CachedEndpoint cached = endpointStore.get(asset);
+
+            // only accept references which have been installed after this pipeline started
+            if (cached == null || cached.getCreated() < startTime) {
+                if (System.currentTimeMillis() - phaseStart >= config.getNegotiationTimeout()) {
+                    monitor.info(String.format("Waiting for reference to asset %s has timed out. Giving up.", asset));
+                    result.complete(get(asset));
+                } else {
+                    poll(this::checkReference, String.format("Waiting for reference to asset %s has timed out.", asset));
                 }
+                return;
             }
-        } catch (InterruptedException e) {
-            monitor.info(String.format("Wait thread for reference to asset %s has been interrupted. Giving up.", asset), e);
-        }
 
-        // mark the type in the endpoint
-        if (reference != null) {
+            // mark the type in the endpoint if the callback did not yet do so
+            Map<String, Object> properties = cached.getReference().getProperties();
+            boolean changed = false;
             for (Map.Entry<String, JsonValue> prop : assetProperties.entrySet()) {
-                reference.getProperties().put(prop.getKey(), JsonLd.asString(prop.getValue()));
+                String value = JsonLd.asString(prop.getValue());
+                if (!value.equals(properties.get(prop.getKey()))) {
+                    properties.put(prop.getKey(), value);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                store.put(asset, cached, agreementStore.get(asset));
             }
-        }
 
-        // now delegate to the original getter
-        return get(asset);
+            // now delegate to the original getter
+            result.complete(get(asset));
+        }
     }
 
 }
@@ -0,0 +1,64 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents;
+
+import org.eclipse.tractusx.agents.model.ContractAgreement;
+import org.eclipse.tractusx.agents.utils.CachedEndpoint;
+
+import java.util.Map;
+
+/**
+ * interface to a (persistent) store for agreements and
+ * their endpoint references
+ */
+public interface AgreementStore {
+
+    /**
+     * register an endpoint
+     *
+     * @param asset     asset name
+     * @param endpoint  the endpoint reference with its expiry
+     * @param agreement the agreement the endpoint is based on, may be null
+     */
+    void put(String asset, CachedEndpoint endpoint, ContractAgreement agreement);
+
+    /**
+     * unregister an endpoint
+     *
+     * @param asset asset name
+     */
+    void remove(String asset);
+
+    /**
+     * access
+     *
+     * @return all stored endpoints indexed by asset
+     */
+    Map<String, CachedEndpoint> getEndpoints();
+
+    /**
+     * access
+     *
+     * @return all stored agreements indexed by asset
+     */
+    Map<String, ContractAgreement> getAgreements();
+
+    /**
+     * release any resources
+     */
+    void close();
+}
@@ -16,6 +16,8 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.eclipse.tractusx.agents;
 
+import org.eclipse.tractusx.agents.sparql.SkillTemplate;
+
 import java.util.Optional;
 
 /**
@@ -64,4 +66,12 @@ public interface SkillStore {
      * @return optional skill text if registered
      */
     Optional<String> get(String key);
+
+    /**
+     * return the stored skill compiled into a template
+     *
+     * @param key asset name
+     * @return optional skill template if registered
+     */
+    Optional<SkillTemplate> getTemplate(String key);
 }
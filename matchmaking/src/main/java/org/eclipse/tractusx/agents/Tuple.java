@@ -16,22 +16,29 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.eclipse.tractusx.agents;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * A tuple contains a binding of variables to a single value.
+ * It is represented by two parallel arrays (variables and values),
+ * where the variables array may be shared between tuples of the same layout.
  */
 public class Tuple {
 
-    Map<String, String> bindings;
+    static final String[] NO_STRINGS = new String[0];
+
+    String[] variables;
+    String[] values;
 
     /**
      * create a fresh tuple
      */
     public Tuple() {
-        bindings = new HashMap<>();
+        this(NO_STRINGS, NO_STRINGS);
     }
 
     /**
@@ -40,7 +47,33 @@ public class Tuple {
      * @param bindings map of variable names to string values
      */
     public Tuple(Map<String, String> bindings) {
-        this.bindings = bindings;
+        this(bindings.keySet().toArray(NO_STRINGS), bindings.values().toArray(NO_STRINGS));
+    }
+
+    /**
+     * create a tuple from its layout and values
+     *
+     * @param variables the (maybe shared) variable layout
+     * @param values    the values in the order of the layout
+     */
+    Tuple(String[] variables, String[] values) {
+        this.variables = variables;
+        this.values = values;
+    }
+
+    /**
+     * find a variable
+     *
+     * @param key variable name
+     * @return position in the layout, -1 if not bound
+     */
+    int indexOf(String key) {
+        for (int position = 0; position < variables.length; position++) {
+            if (variables[position].equals(key)) {
+                return position;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -51,10 +84,14 @@ public class Tuple {
      * @throws Exception in case the variable is already bound
      */
     public void add(String key, String value) throws Exception {
-        if (bindings.containsKey(key)) {
+        if (indexOf(key) >= 0) {
             throw new Exception(String.format("Cannot host several values for key %s in simple binding.", key));
         }
-        bindings.put(key, value);
+        // the layout may be shared, so never extend it in place
+        variables = Arrays.copyOf(variables, variables.length + 1);
+        variables[variables.length - 1] = key;
+        values = Arrays.copyOf(values, values.length + 1);
+        values[values.length - 1] = value;
     }
 
     /**
@@ -64,7 +101,8 @@ public class Tuple {
      * @return bound value (null of not bound)
      */
     public String get(String key) {
-        return bindings.get(key);
+        int position = indexOf(key);
+        return position >= 0 ? values[position] : null;
     }
 
     /**
@@ -73,7 +111,7 @@ public class Tuple {
      * @return the set of bound variables
      */
     public Set<String> getVariables() {
-        return bindings.keySet();
+        return new LinkedHashSet<>(Arrays.asList(variables));
     }
 
     /**
@@ -83,7 +121,7 @@ public class Tuple {
      */
     @Override
     public Tuple clone() {
-        return new Tuple(new HashMap<>(bindings));
+        return new Tuple(variables, values.clone());
     }
 
     /**
@@ -93,9 +131,19 @@ public class Tuple {
      * @return a detached tuple with the combined bindings of this an the other tuple
      */
     public Tuple merge(Tuple other) {
-        Map<String, String> newTuple = new HashMap<>(bindings);
-        newTuple.putAll(other.bindings);
-        return new Tuple(newTuple);
+        Tuple newTuple = clone();
+        for (int position = 0; position < other.variables.length; position++) {
+            int existing = newTuple.indexOf(other.variables[position]);
+            if (existing >= 0) {
+                newTuple.values[existing] = other.values[position];
+            } else {
+                newTuple.variables = Arrays.copyOf(newTuple.variables, newTuple.variables.length + 1);
+                newTuple.variables[newTuple.variables.length - 1] = other.variables[position];
+                newTuple.values = Arrays.copyOf(newTuple.values, newTuple.values.length + 1);
+                newTuple.values[newTuple.values.length - 1] = other.values[position];
+            }
+        }
+        return newTuple;
     }
 
     /**
@@ -103,6 +151,10 @@ public class Tuple {
      */
     @Override
     public String toString() {
-        return "Tuple(" + bindings.toString() + ")";
+        Map<String, String> bindings = new LinkedHashMap<>();
+        for (int position = 0; position < variables.length; position++) {
+            bindings.put(variables[position], values[position]);
+        }
+        return "Tuple(" + bindings + ")";
     }
 }
@@ -18,11 +18,15 @@ package org.eclipse.tractusx.agents;
 
 import com.google.common.collect.ArrayListMultimap;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -52,6 +56,8 @@ public class TupleSet {
 
     /**
      * flattens the representation
+     * The resulting collection is lazy: tuples are produced while iterating
+     * (and the size is computed without producing them).
      *
      * @param variables a set of variables
      * @return set of flat tuples.
@@ -63,37 +69,136 @@ public class TupleSet {
         List<String> explodedVars = new ArrayList<>();
         for (String var : variables) {
             if (bindings.containsKey(var)) {
+                if (ownVars.contains(var)) {
+                    throw new Exception(String.format("Cannot host several values for key %s in simple binding.", var));
+                }
                 ownVars.add(var);
             } else {
                 explodedVars.add(var);
             }
         }
-        Collection<Tuple> explosion = new ArrayList<>();
+        List<Collection<Tuple>> explosions = new ArrayList<>(explodes.size());
         for (TupleSet explode : explodes) {
-            explosion.addAll(explode.getTuples(explodedVars.toArray(new String[0])));
+            explosions.add(explode.getTuples(explodedVars.toArray(new String[0])));
+        }
+        String[] keys = ownVars.toArray(new String[0]);
+        List<List<String>> values = new ArrayList<>(keys.length);
+        for (String key : keys) {
+            values.add(bindings.get(key));
+        }
+        return new Explosion(explosions, keys, values);
+    }
+
+    /**
+     * the lazy explosion of a tuple set
+     * - the union of the explosions of the embedded tuple sets (the base)
+     * - combined with each value of each own variable
+     * The base varies fastest, then the first own variable and so on.
+     */
+    protected static class Explosion extends AbstractCollection<Tuple> {
+
+        protected final List<Collection<Tuple>> explosions;
+        protected final String[] keys;
+        protected final List<List<String>> values;
+        protected final int size;
+
+        protected Explosion(List<Collection<Tuple>> explosions, String[] keys, List<List<String>> values) {
+            this.explosions = explosions;
+            this.keys = keys;
+            this.values = values;
+            long baseSize = 0;
+            for (Collection<Tuple> explosion : explosions) {
+                baseSize += explosion.size();
+            }
+            long product = baseSize;
+            if (keys.length > 0) {
+                product = Math.max(baseSize, 1);
+                for (List<String> keyValues : values) {
+                    product = Math.min(product * keyValues.size(), Integer.MAX_VALUE);
+                }
+            }
+            this.size = (int) Math.min(product, Integer.MAX_VALUE);
+        }
+
+        /**
+         * access
+         *
+         * @return a fresh iterator over the base (a single empty tuple if the base is empty)
+         */
+        protected Iterator<Tuple> base() {
+            if (explosions.stream().allMatch(Collection::isEmpty)) {
+                return List.of(new Tuple()).iterator();
+            }
+            return explosions.stream().flatMap(Collection::stream).iterator();
         }
-        if (ownVars.size() > 0) {
-            for (String key : ownVars) {
-                if (explosion.size() == 0) {
-                    for (String value : bindings.get(key)) {
-                        Tuple tuple = new Tuple();
-                        tuple.add(key, value);
-                        explosion.add(tuple);
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Tuple> iterator() {
+            if (size == 0) {
+                return Collections.emptyIterator();
+            }
+            return new Iterator<>() {
+                final int[] positions = new int[keys.length];
+                Iterator<Tuple> current = base();
+                boolean done = false;
+                // layout of the last base tuple and the resulting layout
+                String[] lastBase;
+                String[] lastLayout;
+
+                @Override
+                public boolean hasNext() {
+                    while (!done && !current.hasNext()) {
+                        if (advance()) {
+                            current = base();
+                        } else {
+                            done = true;
+                        }
                     }
-                } else {
-                    Collection<Tuple> nextExplosion = new ArrayList<>();
-                    for (String value : bindings.get(key)) {
-                        for (Tuple yetTuple : explosion) {
-                            Tuple tuple = yetTuple.clone();
-                            tuple.add(key, value);
-                            nextExplosion.add(tuple);
+                    return !done;
+                }
+
+                /**
+                 * advances the own values like an odometer
+                 *
+                 * @return false if all combinations have been produced
+                 */
+                private boolean advance() {
+                    for (int key = 0; key < keys.length; key++) {
+                        if (++positions[key] < values.get(key).size()) {
+                            return true;
                         }
+                        positions[key] = 0;
                     }
-                    explosion = nextExplosion;
+                    return false;
                 }
-            }
+
+                @Override
+                public Tuple next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Tuple base = current.next();
+                    if (keys.length == 0) {
+                        return base;
+                    }
+                    if (base.variables != lastBase) {
+                        lastBase = base.variables;
+                        lastLayout = Arrays.copyOf(base.variables, base.variables.length + keys.length);
+                        System.arraycopy(keys, 0, lastLayout, base.variables.length, keys.length);
+                    }
+                    String[] tupleValues = Arrays.copyOf(base.values, lastLayout.length);
+                    for (int key = 0; key < keys.length; key++) {
+                        tupleValues[base.values.length + key] = values.get(key).get(positions[key]);
+                    }
+                    return new Tuple(lastLayout, tupleValues);
+                }
+            };
         }
-        return explosion;
     }
 
     /**
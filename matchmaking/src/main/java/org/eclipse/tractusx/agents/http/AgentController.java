@@ -34,6 +34,7 @@ import org.eclipse.tractusx.agents.AgentConfig;
 import org.eclipse.tractusx.agents.AgreementController;
 import org.eclipse.tractusx.agents.SkillDistribution;
 import org.eclipse.tractusx.agents.SkillStore;
+import org.eclipse.tractusx.agents.sparql.SkillTemplate;
 import org.eclipse.tractusx.agents.sparql.SparqlQueryProcessor;
 import org.eclipse.tractusx.agents.utils.Monitor;
 
@@ -405,18 +406,17 @@ public class AgentController {
         }
 
         try {
-            // exchange skill against text locally
+            // exchange skill against its compiled text locally
             if (asset != null && skill != null) {
-                Optional<String> skillOption = skillStore.get(skill);
+                Optional<SkillTemplate> skillOption = skillStore.getTemplate(skill);
                 if (skillOption.isPresent()) {
-                    skill = skillOption.get();
+                    processor.execute(request, response, skillOption.get(), graph);
                 } else {
-                    skill = null;
                     return HttpUtils.respond(monitor, headers, HttpStatus.SC_NOT_FOUND, "The requested skill is not registered.", null);
                 }
+            } else {
+                processor.execute(request, response, skill, graph);
             }
-
-            processor.execute(request, response, skill, graph);
             // kind of redundant, but javax.ws.rs likes it this way
             return Response.status(response.getStatus()).build();
         } catch (WebApplicationException e) {
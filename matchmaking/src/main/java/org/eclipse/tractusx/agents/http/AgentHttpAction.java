@@ -23,6 +23,7 @@ import org.apache.http.HttpStatus;
 import org.apache.jena.fuseki.servlets.HttpAction;
 import org.apache.jena.fuseki.system.ActionCategory;
 import org.eclipse.tractusx.agents.TupleSet;
+import org.eclipse.tractusx.agents.sparql.SkillTemplate;
 import org.slf4j.Logger;
 
 import java.net.URLDecoder;
@@ -44,6 +45,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 public class AgentHttpAction extends HttpAction {
     final String skill;
+    final SkillTemplate template;
     final String graphs;
     final TupleSet tupleSet = new TupleSet();
 
@@ -64,8 +66,23 @@ public class AgentHttpAction extends HttpAction {
      * @param skill option skill reference
      */
     public AgentHttpAction(long id, Logger logger, HttpServletRequest request, HttpServletResponse response, String skill, String graphs) {
+        this(id, logger, request, response, skill, null, graphs);
+    }
+
+    /**
+     * creates a new http action
+     *
+     * @param id call id
+     * @param logger the used logging output
+     * @param request servlet input
+     * @param response servlet output
+     * @param skill option skill reference
+     * @param template optional compiled skill, null if the skill has not been stored
+     */
+    public AgentHttpAction(long id, Logger logger, HttpServletRequest request, HttpServletResponse response, String skill, SkillTemplate template, String graphs) {
         super(id, logger, ActionCategory.ACTION, request, response);
         this.skill = skill;
+        this.template = template;
         this.graphs = graphs;
         parseArgs(request, response);
         parseBody(request, response);
@@ -150,6 +167,15 @@ public class AgentHttpAction extends HttpAction {
         return skill;
     }
 
+    /**
+     * access
+     *
+     * @return optional compiled skill
+     */
+    public SkillTemplate getTemplate() {
+        return template;
+    }
+
     /**
      * access
      *
@@ -34,11 +34,9 @@ import org.eclipse.tractusx.agents.utils.Monitor;
 import org.eclipse.tractusx.agents.utils.TypeManager;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Objects;
@@ -227,55 +225,25 @@ public class DelegationServiceImpl implements DelegationService {
                             boundary = boundary + contentType.toString().substring(boundaryIndex + 10);
                         }
                     }
-                    StringBuilder nextPart = null;
-                    String embeddedContentType = null;
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                        if (boundary.equals(line)) {
-                            if (nextPart != null && embeddedContentType != null) {
-                                if (embeddedContentType.equals("application/cx-warnings+json")) {
-                                    List<CatenaxWarning> nextWarnings = typeManager.readValue(nextPart.toString(), WARNING_TYPE_REFERENCE);
-                                    if (warnings.isPresent()) {
-                                        warnings.get().addAll(nextWarnings);
-                                    } else {
-                                        warnings = Optional.of(nextWarnings);
-                                    }
-                                } else {
-                                    inputStream = new ByteArrayInputStream(nextPart.toString().getBytes());
-                                    contentType = okhttp3.MediaType.parse(embeddedContentType);
-                                }
-                            }
-                            nextPart = new StringBuilder();
-                            String contentLine = reader.readLine();
-                            if (contentLine != null && contentLine.startsWith("Content-Type: ")) {
-                                embeddedContentType = contentLine.substring(14);
-                            } else {
-                                embeddedContentType = null;
-                            }
-                        } else if (nextPart != null) {
-                            nextPart.append(line);
-                            nextPart.append("\n");
-                        }
+                    List<MultipartBody.Part> parts;
+                    try (InputStream multipart = inputStream) {
+                        parts = MultipartBody.parse(multipart, boundary);
                     }
-                    reader.close();
-                    // multipart parsing through, now look at the actual result in the last part
-                    if (nextPart != null && embeddedContentType != null) {
-                        // is it a downloaded skill text?
-                        if (embeddedContentType.equals("application/sparql-query")) {
-                            // immediately return
-                            return nextPart.toString();
-                        } else if (embeddedContentType.equals("application/cx-warnings+json")) {
-                            // is it a trailing warnings structure
-                            List<CatenaxWarning> nextWarnings = typeManager.readValue(nextPart.toString(), WARNING_TYPE_REFERENCE);
+                    for (MultipartBody.Part part : parts) {
+                        if (part.getContentType() == null) {
+                            continue;
+                        }
+                        if (part.getContentType().equals(MultipartBody.WARNINGS_CONTENT_TYPE)) {
+                            List<CatenaxWarning> nextWarnings = typeManager.readValue(part.asString(), WARNING_TYPE_REFERENCE);
                             if (warnings.isPresent()) {
                                 warnings.get().addAll(nextWarnings);
                             } else {
                                 warnings = Optional.of(nextWarnings);
                             }
                         } else {
-                            // it is a normal "result" that we take as the actual response
-                            inputStream = new ByteArrayInputStream(nextPart.toString().getBytes());
-                            contentType = okhttp3.MediaType.parse(embeddedContentType);
+                            // a normal "result" (or a downloaded skill text) that we take as the actual response
+                            inputStream = new ByteArrayInputStream(part.getContent());
+                            contentType = okhttp3.MediaType.parse(part.getContentType());
                         }
                     }
                 }
@@ -0,0 +1,71 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.http;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * An OkHttp interceptor which gzip compresses large request bodies
+ * (such as VALUES-bound queries) sent to targets known to inflate them.
+ * Response compression is negotiated by OkHttp itself.
+ */
+public class GzipRequestInterceptor implements Interceptor {
+
+    protected final Pattern targets;
+    protected final long threshold;
+
+    /**
+     * creates a new interceptor
+     *
+     * @param targets   regular expression for target urls which accept compressed bodies
+     * @param threshold minimal body size in bytes to compress
+     */
+    public GzipRequestInterceptor(Pattern targets, long threshold) {
+        this.targets = targets;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        RequestBody body = request.body();
+        // bodies of unknown length (-1) are streamed and left alone
+        if (body == null || request.header("Content-Encoding") != null || body.contentLength() < threshold
+                || !targets.matcher(request.url().toString()).matches()) {
+            return chain.proceed(request);
+        }
+        Buffer compressed = new Buffer();
+        try (BufferedSink gzip = Okio.buffer(new GzipSink(compressed))) {
+            body.writeTo(gzip);
+        }
+        RequestBody compressedBody = RequestBody.create(compressed.readByteString(), body.contentType());
+        return chain.proceed(request.newBuilder()
+                .header("Content-Encoding", "gzip")
+                .method(request.method(), compressedBody)
+                .build());
+    }
+}
@@ -17,15 +17,18 @@
 package org.eclipse.tractusx.agents.http;
 
 import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.Authenticator;
 import java.net.CookieHandler;
+import java.net.MalformedURLException;
 import java.net.ProxySelector;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -34,8 +37,11 @@ import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
 
@@ -44,6 +50,11 @@ import javax.net.ssl.SSLParameters;
  */
 public class HttpClientAdapter extends HttpClient {
 
+    /**
+     * maximal time to wait for a request body to be drained
+     */
+    public static final long BODY_TIMEOUT = 2000;
+
     protected final OkHttpClient delegate;
 
     /**
@@ -101,65 +112,79 @@ public class HttpClientAdapter extends HttpClient {
         return Optional.empty();
     }
 
-    @Override
-    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+    /**
+     * translates the java.net.http request into an OkHttp request
+     * the body publisher is drained into a single growing buffer
+     *
+     * @param request the java.net.http request
+     * @return future OkHttp request which completes as soon as the body has been drained
+     */
+    protected CompletableFuture<Request> adaptRequest(HttpRequest request) {
         var builder = new Request.Builder();
         request.headers().map().forEach((key, values) -> values.forEach(value -> builder.header(key, value)));
-        if (request.bodyPublisher().isPresent()) {
-            var bodyPublisher = request.bodyPublisher().get();
+        try {
+            builder.url(request.uri().toURL());
+        } catch (MalformedURLException | IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException("Could not wrap request because of invalid url", e));
+        }
+        if (request.bodyPublisher().isEmpty()) {
+            builder.method(request.method(), null);
+            return CompletableFuture.completedFuture(builder.build());
+        }
+        var bodyPublisher = request.bodyPublisher().get();
+        MediaType mediaType = request.headers().firstValue("Content-Type").map(MediaType::parse).orElse(null);
+        long contentLength = bodyPublisher.contentLength();
+        CompletableFuture<Request> result = new CompletableFuture<>();
 
-            var subscriber = new Flow.Subscriber<ByteBuffer>() {
+        bodyPublisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
 
-                private ByteBuffer body;
-                private Throwable problem;
-                private boolean ready;
+            private final ByteArrayOutputStream body = new ByteArrayOutputStream(contentLength > 0 && contentLength < Integer.MAX_VALUE ? (int) contentLength : 1024);
 
-                @Override
-                public void onSubscribe(Flow.Subscription subscription) {
-                    subscription.request(bodyPublisher.contentLength());
-                }
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
 
-                @Override
-                public void onNext(ByteBuffer item) {
-                    if (body == null) {
-                        body = item;
-                    } else if (item != null) {
-                        ByteBuffer combined = ByteBuffer.allocate(body.capacity() + item.capacity());
-                        combined.put(body);
-                        combined.put(item);
-                        combined.flip();
-                        body = combined;
+            @Override
+            public void onNext(ByteBuffer item) {
+                if (item != null) {
+                    if (item.hasArray()) {
+                        body.write(item.array(), item.arrayOffset() + item.position(), item.remaining());
+                    } else {
+                        byte[] chunk = new byte[item.remaining()];
+                        item.get(chunk);
+                        body.write(chunk, 0, chunk.length);
                     }
                 }
+            }
 
-                @Override
-                public void onError(Throwable throwable) {
-                    problem = throwable;
-                }
-
-                @Override
-                public void onComplete() {
-                    ready = true;
-                }
-            };
-
-            bodyPublisher.subscribe(subscriber);
-            long startTime = System.currentTimeMillis();
-            while (System.currentTimeMillis() - startTime < 2000 && !subscriber.ready) {
-                Thread.sleep(100);
+            @Override
+            public void onError(Throwable throwable) {
+                result.completeExceptionally(new IOException("Could not wrap request because body cannot be read", throwable));
             }
-            if (!subscriber.ready) {
-                throw new IOException("Could not wrap request because body cannot be read");
+
+            @Override
+            public void onComplete() {
+                builder.method(request.method(), RequestBody.create(body.toByteArray(), mediaType));
+                result.complete(builder.build());
             }
-            if (subscriber.problem != null) {
-                throw new IOException("Could not wrap request because body cannot be read", subscriber.problem);
+        });
+        return result;
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+        Request okRequest;
+        try {
+            okRequest = adaptRequest(request).get(BODY_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("Could not wrap request because body cannot be read", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
-            builder.method(request.method(), RequestBody.create(subscriber.body.array(), MediaType.parse(request.headers().firstValue("Content-Type").get())));
-        } else {
-            builder.method(request.method(), null);
+            throw new IOException("Could not wrap request because body cannot be read", e.getCause());
         }
-        builder.url(request.uri().toURL());
-        Request okRequest = builder.build();
         Call okCall = delegate.newCall(okRequest);
         Response okResponse = okCall.execute();
         return (HttpResponse<T>) new HttpResponseAdapter(okResponse, request);
@@ -167,11 +192,44 @@ public class HttpClientAdapter extends HttpClient {
 
     @Override
     public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
-        throw new UnsupportedOperationException("sendAsync");
+        CompletableFuture<HttpResponse<T>> response = new CompletableFuture<>();
+        adaptRequest(request).whenComplete((okRequest, failure) -> {
+            if (failure != null) {
+                response.completeExceptionally(failure);
+                return;
+            }
+            if (response.isDone()) {
+                return;
+            }
+            Call okCall = delegate.newCall(okRequest);
+            // a cancelled response should not leave the call running in the background
+            response.whenComplete((r, t) -> {
+                if (response.isCancelled()) {
+                    okCall.cancel();
+                }
+            });
+            okCall.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    response.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response okResponse) {
+                    if (!response.complete((HttpResponse<T>) new HttpResponseAdapter(okResponse, request))) {
+                        okResponse.close();
+                    }
+                }
+            });
+        });
+        return response;
     }
 
+    /**
+     * push promises are not supported by OkHttp, so they are simply ignored
+     */
     @Override
     public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
-        throw new UnsupportedOperationException("sendAsync");
+        return sendAsync(request, responseBodyHandler);
     }
 }
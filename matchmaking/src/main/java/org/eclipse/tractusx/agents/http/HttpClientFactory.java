@@ -0,0 +1,109 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.http;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.eclipse.tractusx.agents.AgentConfig;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the http clients of the agent. Control plane (management api)
+ * and data plane (agent to agent) traffic use separate clients such that
+ * they have their own connection pools and dispatcher limits.
+ */
+public class HttpClientFactory {
+
+    public static final String CONTROL_PLANE = "control";
+    public static final String DATA_PLANE = "data";
+
+    protected final AgentConfig config;
+
+    /**
+     * creates a new factory
+     *
+     * @param config agent config
+     */
+    public HttpClientFactory(AgentConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * creates a client for the given traffic class
+     *
+     * @param plane name of the traffic class, such as control or data
+     * @return configured client
+     */
+    public OkHttpClient createClient(String plane) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.getHttpRequests(plane));
+        dispatcher.setMaxRequestsPerHost(config.getHttpHostRequests(plane));
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(config.getHttpConnections(plane), config.getHttpKeepAlive(plane), TimeUnit.MILLISECONDS));
+        if (config.getConnectTimeout() != null) {
+            builder.connectTimeout(config.getConnectTimeout(), TimeUnit.MILLISECONDS);
+        }
+        if (config.getReadTimeout() != null) {
+            builder.readTimeout(config.getReadTimeout(), TimeUnit.MILLISECONDS);
+        }
+        if (config.getWriteTimeout() != null) {
+            builder.writeTimeout(config.getWriteTimeout(), TimeUnit.MILLISECONDS);
+        }
+        if (config.getCallTimeout() != null) {
+            builder.callTimeout(config.getCallTimeout(), TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    /**
+     * creates a client for management api calls
+     *
+     * @return control plane client
+     */
+    public OkHttpClient createControlPlaneClient() {
+        return createClient(CONTROL_PLANE);
+    }
+
+    /**
+     * creates a client for calls to other agents and data planes
+     *
+     * @return data plane client
+     */
+    public OkHttpClient createDataPlaneClient() {
+        return createClient(DATA_PLANE).newBuilder()
+                .addInterceptor(new GzipRequestInterceptor(config.getHttpRequestCompressionPattern(), config.getHttpCompressionThreshold()))
+                .build();
+    }
+
+    /**
+     * derives a client which talks cleartext http/2 without upgrade
+     * round trip, it shares pool and dispatcher with the given client
+     *
+     * @param client the client to derive from
+     * @return h2c client, only usable for http urls
+     */
+    public static OkHttpClient createH2cClient(OkHttpClient client) {
+        return client.newBuilder()
+                .protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE))
+                .build();
+    }
+}
@@ -21,33 +21,192 @@ import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Pipe;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * builds a ok response from an in-memory servlet response implementation
+ * builds a ok response from a servlet response implementation
+ * - in-memory mode: the whole body is collected and turned into a response by toResponse()
+ * - streaming mode: the first bytes are collected up to the buffer size, then the response is
+ * committed and the rest of the body is piped through a bounded buffer into a lazily consumed
+ * response body (the writer blocks while the buffer is full)
  */
 public class HttpServletResponseAdapter implements HttpServletResponse {
 
     Response.Builder builder = new Response.Builder();
     ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    ServletOutputStream sos = new ServletOutputStreamDelegator(bos);
+    final long bufferSize;
+    final long timeout;
+    final CompletableFuture<Response> committed = new CompletableFuture<>();
+    Consumer<HttpServletResponseAdapter> commitListener;
+    Pipe pipe;
+    BufferedSink sink;
+
+    final OutputStream stream = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{ (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writeBody(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBody();
+        }
+    };
+    ServletOutputStream sos = new ServletOutputStreamDelegator(stream);
 
     String contentType;
     long contentLength;
 
+    /**
+     * creates an in-memory response
+     *
+     * @param request the ok request
+     */
     public HttpServletResponseAdapter(Request request) {
+        this(request, -1, 0);
+    }
+
+    /**
+     * creates a response
+     *
+     * @param request    the ok request
+     * @param bufferSize size of the streaming buffer, non-positive for in-memory mode
+     * @param timeout    milliseconds the writer waits for the consumer to drain a full buffer, non-positive to wait forever
+     */
+    public HttpServletResponseAdapter(Request request, long bufferSize, long timeout) {
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
         builder.request(request);
         builder.protocol(Protocol.HTTP_1_1);
     }
 
+    /**
+     * sets a hook which is called right before the status and headers are fixed
+     *
+     * @param listener the hook
+     */
+    public void onCommit(Consumer<HttpServletResponseAdapter> listener) {
+        this.commitListener = listener;
+    }
+
+    /**
+     * writes body bytes
+     *
+     * @param b   bytes
+     * @param off offset
+     * @param len length
+     * @throws IOException if the consumer has gone away
+     */
+    protected synchronized void writeBody(byte[] b, int off, int len) throws IOException {
+        if (sink != null) {
+            sink.write(b, off, len);
+        } else {
+            bos.write(b, off, len);
+            if (bufferSize > 0 && bos.size() >= bufferSize) {
+                commit();
+            }
+        }
+    }
+
+    /**
+     * flushes body bytes to the consumer
+     *
+     * @throws IOException if the consumer has gone away
+     */
+    protected synchronized void flushBody() throws IOException {
+        if (sink != null) {
+            sink.flush();
+        }
+    }
+
+    /**
+     * fixes status and headers, hands out the response and
+     * switches the rest of the body to the pipe
+     *
+     * @throws IOException if the consumer has gone away
+     */
+    protected synchronized void commit() throws IOException {
+        if (sink == null) {
+            if (commitListener != null) {
+                commitListener.accept(this);
+            }
+            pipe = new Pipe(bufferSize);
+            if (timeout > 0) {
+                // a consumer which stopped reading must not block the writer forever
+                pipe.sink().timeout().timeout(timeout, TimeUnit.MILLISECONDS);
+            }
+            sink = Okio.buffer(pipe.sink());
+            MediaType mediaType = contentType != null ? MediaType.parse(contentType) : null;
+            builder.body(ResponseBody.create(Okio.buffer(pipe.source()), mediaType, -1));
+            committed.complete(builder.build());
+            byte[] prefix = bos.toByteArray();
+            bos = null;
+            sink.write(prefix);
+        }
+    }
+
+    /**
+     * signals the end of the body
+     * if the response has not been committed, yet, it is handed out completely
+     */
+    public synchronized void complete() {
+        if (sink != null) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                // the consumer has gone away, nothing to finish
+            }
+        } else if (!committed.isDone()) {
+            if (commitListener != null) {
+                commitListener.accept(this);
+            }
+            committed.complete(toResponse());
+        }
+    }
+
+    /**
+     * aborts a committed body, so that the consumer sees an error rather than a truncated result
+     */
+    public synchronized void abort() {
+        if (pipe != null) {
+            pipe.cancel();
+        }
+    }
+
+    /**
+     * access
+     *
+     * @return the response as soon as it has been committed
+     * @throws InterruptedException if the caller is interrupted
+     * @throws ExecutionException   if the response could not be produced
+     */
+    public Response getResponse() throws InterruptedException, ExecutionException {
+        return committed.get();
+    }
+
     @Override
     public void addCookie(Cookie cookie) {
     }
@@ -169,7 +328,7 @@ public class HttpServletResponseAdapter implements HttpServletResponse {
 
     @Override
     public PrintWriter getWriter() throws IOException {
-        return new PrintWriter(bos);
+        return new PrintWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
     }
 
     @Override
@@ -209,8 +368,8 @@ public class HttpServletResponseAdapter implements HttpServletResponse {
     }
 
     @Override
-    public boolean isCommitted() {
-        return false;
+    public synchronized boolean isCommitted() {
+        return sink != null;
     }
 
     @Override
@@ -228,8 +387,13 @@ public class HttpServletResponseAdapter implements HttpServletResponse {
         return null;
     }
 
-    public Response toResponse() {
-        if (contentType != null) {
+    /**
+     * builds the in-memory response
+     *
+     * @return ok response
+     */
+    public synchronized Response toResponse() {
+        if (contentType != null && bos != null) {
             ResponseBody body = ResponseBody.create(bos.toByteArray(), MediaType.parse(contentType));
             builder.body(body);
         }
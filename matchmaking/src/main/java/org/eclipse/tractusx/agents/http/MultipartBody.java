@@ -0,0 +1,178 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * splits a multipart body (e.g., a result with embedded warnings)
+ * into its parts. The delimiters are searched on the level of bytes,
+ * so binary parts (such as thrift results) are kept intact.
+ */
+public class MultipartBody {
+
+    public static final String WARNINGS_CONTENT_TYPE = "application/cx-warnings+json";
+    protected static final Pattern HEADER_PATTERN = Pattern.compile("^(?<name>[A-Za-z0-9-]+):\\s*(?<value>.*)$");
+
+    /**
+     * a single part of a multipart body
+     */
+    public static class Part {
+        protected final String contentType;
+        protected final byte[] content;
+
+        public Part(String contentType, byte[] content) {
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public String asString() {
+            return new String(content, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * parses a multipart body
+     *
+     * @param body      stream of the body
+     * @param delimiter the delimiter line (two dashes followed by the boundary),
+     *                  if the boundary is unknown, the first line of the body is used
+     * @return list of parts in the order of the body
+     * @throws IOException in case the body cannot be read
+     */
+    public static List<Part> parse(InputStream body, String delimiter) throws IOException {
+        byte[] bytes = body.readAllBytes();
+        if ("--".equals(delimiter)) {
+            delimiter = new String(bytes, 0, lineEnd(bytes, 0), StandardCharsets.ISO_8859_1);
+        }
+        byte[] delimiterBytes = delimiter.getBytes(StandardCharsets.ISO_8859_1);
+        List<Part> parts = new ArrayList<>();
+        int start = indexOfDelimiter(bytes, delimiterBytes, 0);
+        while (start >= 0) {
+            int position = start + delimiterBytes.length;
+            if (position + 1 < bytes.length && bytes[position] == '-' && bytes[position + 1] == '-') {
+                // closing delimiter
+                break;
+            }
+            position = nextLine(bytes, position);
+            int next = indexOfDelimiter(bytes, delimiterBytes, position);
+            int end = next >= 0 ? next : bytes.length;
+            // the line break before a delimiter belongs to the delimiter
+            if (next >= 0 && end > position && bytes[end - 1] == '\n') {
+                end--;
+                if (end > position && bytes[end - 1] == '\r') {
+                    end--;
+                }
+            }
+            String contentType = null;
+            while (position < end) {
+                int lineEnd = Math.min(lineEnd(bytes, position), end);
+                Matcher header = HEADER_PATTERN.matcher(new String(bytes, position, lineEnd - position, StandardCharsets.ISO_8859_1));
+                if (!header.matches()) {
+                    if (lineEnd == position) {
+                        // the empty line separating headers and content
+                        position = nextLine(bytes, position);
+                    }
+                    break;
+                }
+                if ("Content-Type".equalsIgnoreCase(header.group("name"))) {
+                    contentType = header.group("value").trim();
+                }
+                position = nextLine(bytes, lineEnd);
+            }
+            parts.add(new Part(contentType, Arrays.copyOfRange(bytes, Math.min(position, end), end)));
+            start = next;
+        }
+        return parts;
+    }
+
+    /**
+     * finds a delimiter which starts a line
+     *
+     * @param bytes     the body
+     * @param delimiter the delimiter
+     * @param from      position to start the search
+     * @return position of the delimiter or -1 if there is none
+     */
+    protected static int indexOfDelimiter(byte[] bytes, byte[] delimiter, int from) {
+        for (int position = from; position + delimiter.length <= bytes.length; position++) {
+            if ((position == 0 || bytes[position - 1] == '\n') && startsWith(bytes, delimiter, position)) {
+                int after = position + delimiter.length;
+                if (after == bytes.length || bytes[after] == '\r' || bytes[after] == '\n' || bytes[after] == '-') {
+                    return position;
+                }
+            }
+        }
+        return -1;
+    }
+
+    protected static boolean startsWith(byte[] bytes, byte[] prefix, int position) {
+        for (int index = 0; index < prefix.length; index++) {
+            if (bytes[position + index] != prefix[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * access
+     *
+     * @param bytes    the body
+     * @param position inside a line
+     * @return position of the line break (or the end of the body)
+     */
+    protected static int lineEnd(byte[] bytes, int position) {
+        while (position < bytes.length && bytes[position] != '\r' && bytes[position] != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * access
+     *
+     * @param bytes    the body
+     * @param position inside a line
+     * @return position of the next line (or the end of the body)
+     */
+    protected static int nextLine(byte[] bytes, int position) {
+        position = lineEnd(bytes, position);
+        if (position < bytes.length && bytes[position] == '\r') {
+            position++;
+        }
+        if (position < bytes.length && bytes[position] == '\n') {
+            position++;
+        }
+        return position;
+    }
+}
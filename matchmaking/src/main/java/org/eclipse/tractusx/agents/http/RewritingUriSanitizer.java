@@ -89,7 +89,9 @@ public class RewritingUriSanitizer implements UriSanitizer {
         }
 
         List<MediaType> mediaTypes = headers.getAcceptableMediaTypes();
-        if (mediaTypes.isEmpty() || mediaTypes.stream().anyMatch(MediaType.APPLICATION_JSON_TYPE::isCompatible)) {
+        // acceptable media types are sorted by preference, a preferred binary result format survives
+        boolean prefersBinary = !mediaTypes.isEmpty() && (mediaTypes.get(0).getSubtype().endsWith("+thrift") || mediaTypes.get(0).getSubtype().endsWith("+protobuf"));
+        if (mediaTypes.isEmpty() || (!prefersBinary && mediaTypes.stream().anyMatch(MediaType.APPLICATION_JSON_TYPE::isCompatible))) {
             httpBuilder = httpBuilder.addQueryParameter("cx_accept", HttpUtils.urlEncodeParameter("application/json"));
         } else {
             String mediaParam = mediaTypes.stream().map(MediaType::toString).collect(Collectors.joining(", "));
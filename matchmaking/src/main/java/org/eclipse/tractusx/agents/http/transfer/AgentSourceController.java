@@ -36,6 +36,7 @@ import org.apache.jena.sparql.serializer.SerializerRegistry;
 import org.apache.jena.sparql.service.ServiceExecutorRegistry;
 import org.eclipse.tractusx.agents.AgentConfig;
 import org.eclipse.tractusx.agents.SkillStore;
+import org.eclipse.tractusx.agents.http.HttpClientFactory;
 import org.eclipse.tractusx.agents.http.HttpUtils;
 import org.eclipse.tractusx.agents.rdf.RdfStore;
 import org.eclipse.tractusx.agents.service.DataManagement;
@@ -80,7 +81,7 @@ public class AgentSourceController extends HttpServlet  {
         SerializerRegistry.get().addQuerySerializer(Syntax.syntaxSPARQL_10, arqQuerySerializerFactory);
         SerializerRegistry.get().addQuerySerializer(Syntax.syntaxSPARQL_11, arqQuerySerializerFactory);
         this.processor = new SparqlQueryProcessor(reg, monitor, config, rdfStore, typeManager);
-        OkHttpClient httpClient = new OkHttpClient();
+        OkHttpClient httpClient = new HttpClientFactory(config).createControlPlaneClient();
         DataManagement catalogService = new DataManagement(monitor, typeManager, httpClient, config);
         skillStore = new EdcSkillStore(catalogService, typeManager, config);
     }
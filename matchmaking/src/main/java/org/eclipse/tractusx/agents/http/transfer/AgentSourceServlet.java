@@ -52,7 +52,7 @@ public class AgentSourceServlet extends HttpServlet {
     
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        OkHttpClient httpClient = SharedObjectManager.getInstance().getHttpClient();
+        OkHttpClient httpClient = SharedObjectManager.getInstance().getControlPlaneClient();
         String catalogRequestBody = "{" +
                 "\"@context\": {}," +
                 "\"protocol\": \"dataspace-protocol-http\"," +
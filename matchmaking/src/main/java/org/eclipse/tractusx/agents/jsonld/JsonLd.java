@@ -24,17 +24,22 @@ import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.json.JsonString;
 import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonParser;
 import org.eclipse.tractusx.agents.model.Asset;
 import org.eclipse.tractusx.agents.model.ContractAgreement;
 import org.eclipse.tractusx.agents.model.ContractNegotiation;
 import org.eclipse.tractusx.agents.model.DcatCatalog;
+import org.eclipse.tractusx.agents.model.DcatDataset;
 import org.eclipse.tractusx.agents.model.IdResponse;
 import org.eclipse.tractusx.agents.model.TransferProcess;
 
+import java.io.Reader;
 import java.io.StringReader;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 
@@ -51,6 +56,118 @@ public class JsonLd {
         return new DcatCatalog(processJsonLd(cat, null));
     }
 
+    /**
+     * streams over a catalogue such that only a single dataset
+     * needs to be held (and prefix-expanded) in memory at a time
+     *
+     * @param cat      reader delivering the catalogue json
+     * @param datasets consumer for the expanded datasets
+     * @return number of datasets found
+     */
+    public static int processCatalog(Reader cat, Consumer<DcatDataset> datasets) {
+        Map<String, String> namespaces = new HashMap<>();
+        // properties which appear before the context cannot be expanded yet
+        Map<String, JsonValue> pending = new LinkedHashMap<>();
+        boolean hasContext = false;
+        int count = 0;
+        try (JsonParser parser = Json.createParser(cat)) {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_OBJECT) {
+                throw new IllegalArgumentException("Catalogue is not a json object");
+            }
+            while (parser.hasNext()) {
+                JsonParser.Event event = parser.next();
+                if (event == JsonParser.Event.END_OBJECT) {
+                    break;
+                }
+                String prop = parser.getString();
+                parser.next();
+                if ("@context".equals(prop)) {
+                    hasContext = true;
+                    for (Map.Entry<String, JsonValue> ns : parser.getObject().entrySet()) {
+                        namespaces.put(ns.getKey(), JsonLd.asString(ns.getValue()));
+                    }
+                } else if (isDatasetProperty(expandProperty(prop, namespaces))) {
+                    count += processDatasets(parser, namespaces, datasets);
+                } else if (!hasContext && !prop.startsWith("@")) {
+                    pending.put(prop, parser.getValue());
+                } else {
+                    // not interested in any other catalogue properties
+                    parser.getValue();
+                }
+            }
+        }
+        for (Map.Entry<String, JsonValue> prop : pending.entrySet()) {
+            if (isDatasetProperty(expandProperty(prop.getKey(), namespaces))) {
+                JsonValue dataset = prop.getValue();
+                if (dataset.getValueType() == JsonValue.ValueType.ARRAY) {
+                    for (JsonValue ds : dataset.asJsonArray()) {
+                        datasets.accept(new DcatDataset(processJsonLd(ds.asJsonObject(), namespaces)));
+                        count++;
+                    }
+                } else {
+                    datasets.accept(new DcatDataset(processJsonLd(dataset.asJsonObject(), namespaces)));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * hands over the dataset value the parser is currently positioned at
+     *
+     * @param parser     positioned at the start of the dataset value
+     * @param namespaces prefixes of the catalogue
+     * @param datasets   consumer for the expanded datasets
+     * @return number of datasets found
+     */
+    protected static int processDatasets(JsonParser parser, Map<String, String> namespaces, Consumer<DcatDataset> datasets) {
+        int count = 0;
+        if (parser.currentEvent() == JsonParser.Event.START_ARRAY) {
+            while (parser.next() != JsonParser.Event.END_ARRAY) {
+                datasets.accept(new DcatDataset(processJsonLd(parser.getObject(), namespaces)));
+                count++;
+            }
+        } else {
+            datasets.accept(new DcatDataset(processJsonLd(parser.getObject(), namespaces)));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * checks for the properties under which datasets are listed in a catalogue
+     *
+     * @param prop expanded property
+     * @return whether the property holds datasets
+     */
+    protected static boolean isDatasetProperty(String prop) {
+        return DcatCatalog.DATASET_PROPERTY.equals(prop) || DcatCatalog.DATASET_PROPERTY_NS.equals(prop);
+    }
+
+    /**
+     * expands a property name
+     *
+     * @param prop       compact property name
+     * @param namespaces known prefixes
+     * @return expanded property name
+     */
+    protected static String expandProperty(String prop, Map<String, String> namespaces) {
+        int colonIndex = prop.indexOf(":");
+        if (colonIndex > 0) {
+            String prefix = prop.substring(0, colonIndex);
+            if (namespaces.containsKey(prefix)) {
+                prefix = namespaces.get(prefix);
+            } else {
+                prefix = prefix + ":";
+            }
+            return prefix + prop.substring(colonIndex + 1);
+        } else if (!prop.startsWith("@") && namespaces.containsKey("@vocab")) {
+            return namespaces.get("@vocab") + prop;
+        }
+        return prop;
+    }
+
     public static IdResponse processIdResponse(String response) {
         return processIdResponse(Json.createReader(new StringReader(response)).readObject());
     }
@@ -125,23 +242,7 @@ public class JsonLd {
                     }
                 }
                 final JsonObjectBuilder object = Json.createObjectBuilder();
-                sourceObject.forEach((prop, value) -> {
-                    int colonIndex = prop.indexOf(":");
-                    if (colonIndex > 0) {
-                        String prefix = prop.substring(0, colonIndex);
-                        if (namespaces.containsKey(prefix)) {
-                            prefix = namespaces.get(prefix);
-                        } else {
-                            prefix = prefix + ":";
-                        }
-                        prop = prefix + prop.substring(colonIndex + 1);
-                    } else {
-                        if (!prop.startsWith("@") && namespaces.containsKey("@vocab")) {
-                            prop = namespaces.get("@vocab") + prop;
-                        }
-                    }
-                    object.add(prop, processJsonLd(value, namespaces));
-                });
+                sourceObject.forEach((prop, value) -> object.add(expandProperty(prop, namespaces), processJsonLd(value, namespaces)));
                 return (JSONTYPE) object.build();
             default:
                 return source;
@@ -23,6 +23,7 @@ import io.swagger.v3.oas.annotations.info.License;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.handler.HandlerCollection;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.tractusx.agents.AgentConfig;
@@ -77,6 +78,7 @@ public class Bootstrap {
         monitor.debug(String.format("Registering %s", "AgentSourceController Constructor"));
         resourceConfig1.register(AgentSourceServlet.class);
         handler1.addServlet(AgentSourceServlet.class, conf.getMatchmakingPath());
+        handler1.setGzipHandler(createGzipHandler(conf));
         ServerConnector connector1 = new ServerConnector(server);
         connector1.setPort(port1);
         connector1.setName("conn1");
@@ -95,6 +97,7 @@ public class Bootstrap {
         monitor.debug("registering GraphController");
         resourceConfig2.register(sharedObjectManager.getGraphController());
         handler2.addServlet(new ServletHolder(new ServletContainer(resourceConfig2)), "/*");
+        handler2.setGzipHandler(createGzipHandler(conf));
         ServerConnector connector2 = new ServerConnector(server);
         connector2.setPort(port2);
         connector2.setName("conn2");
@@ -131,6 +134,20 @@ public class Bootstrap {
 
     }
 
+    /**
+     * compresses responses and inflates compressed requests of the agent endpoints
+     *
+     * @param conf agent config
+     * @return gzip handler
+     */
+    private static GzipHandler createGzipHandler(AgentConfig conf) {
+        GzipHandler gzipHandler = new GzipHandler();
+        gzipHandler.setMinGzipSize(conf.getHttpCompressionThreshold());
+        gzipHandler.setIncludedMethods("GET", "POST");
+        gzipHandler.setInflateBufferSize(8192);
+        return gzipHandler;
+    }
+
     /**
      * Main method.
      *
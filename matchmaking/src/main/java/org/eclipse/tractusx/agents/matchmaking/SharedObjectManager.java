@@ -25,17 +25,24 @@ import org.apache.jena.sparql.serializer.SerializerRegistry;
 import org.apache.jena.sparql.service.ServiceExecutorRegistry;
 import org.eclipse.tractusx.agents.AgentConfig;
 import org.eclipse.tractusx.agents.AgreementControllerImpl;
+import org.eclipse.tractusx.agents.AgreementStore;
 import org.eclipse.tractusx.agents.SkillStore;
 import org.eclipse.tractusx.agents.http.AgentController;
 import org.eclipse.tractusx.agents.http.DefaultUriSanitizer;
 import org.eclipse.tractusx.agents.http.DelegationServiceImpl;
 import org.eclipse.tractusx.agents.http.GraphController;
+import org.eclipse.tractusx.agents.http.HttpClientFactory;
 import org.eclipse.tractusx.agents.http.UriSanitizer;
 import org.eclipse.tractusx.agents.rdf.RdfStore;
 import org.eclipse.tractusx.agents.service.DataManagement;
 import org.eclipse.tractusx.agents.service.DataspaceSynchronizer;
 import org.eclipse.tractusx.agents.service.EdcSkillStore;
+import org.eclipse.tractusx.agents.service.FileAgreementStore;
+import org.eclipse.tractusx.agents.service.InMemoryAgreementStore;
+import org.eclipse.tractusx.agents.sparql.AdaptiveBatchSize;
 import org.eclipse.tractusx.agents.sparql.DataspaceServiceExecutor;
+import org.eclipse.tractusx.agents.sparql.FederationScheduler;
+import org.eclipse.tractusx.agents.sparql.SourceSelector;
 import org.eclipse.tractusx.agents.sparql.SparqlQueryProcessor;
 import org.eclipse.tractusx.agents.sparql.SparqlQuerySerializerFactory;
 import org.eclipse.tractusx.agents.utils.Config;
@@ -47,6 +54,7 @@ import org.eclipse.tractusx.agents.utils.TypeManager;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 import java.util.Properties;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -60,14 +68,17 @@ public class SharedObjectManager {
     private final ServiceExecutorRegistry reg;
     private final SparqlQueryProcessor processor;
     private final DataManagement catalogService;
-    private final SkillStore skillStore;
+    private final EdcSkillStore skillStore;
     private final AgreementControllerImpl agreementController;
     private final AgentController agentController;
     private final GraphController graphController;
     private final DelegationServiceImpl delegationService;
     private final DataspaceSynchronizer synchronizer;
+    private final FederationScheduler federationScheduler;
+    private final ScheduledExecutorService negotiationScheduler;
     private UriSanitizer sanitizer;
     private final OkHttpClient httpClient;
+    private final OkHttpClient controlPlaneClient;
 
 
     private SharedObjectManager() {
@@ -96,20 +107,33 @@ public class SharedObjectManager {
         }
         Config emptyConfig = ConfigFactory.fromProperties(props);
         this.agentConfig = new AgentConfig(monitor, emptyConfig);
-        this.httpClient = new OkHttpClient();
-        this.catalogService = new DataManagement(monitor, typeManager, httpClient, agentConfig);
-        agreementController = new AgreementControllerImpl(monitor, agentConfig, catalogService);
-        this.rdfStore = new RdfStore(agentConfig, monitor);
+        HttpClientFactory httpClientFactory = new HttpClientFactory(agentConfig);
+        this.controlPlaneClient = httpClientFactory.createControlPlaneClient();
+        this.httpClient = httpClientFactory.createDataPlaneClient();
+        this.catalogService = new DataManagement(monitor, typeManager, controlPlaneClient, agentConfig);
         ScheduledExecutorService executorService = Executors.newScheduledThreadPool(agentConfig.getThreadPoolSize());
+        AgreementStore agreementStore;
+        if (agentConfig.getAgreementStore() != null) {
+            agreementStore = new FileAgreementStore(Path.of(agentConfig.getAgreementStore()), typeManager, monitor);
+        } else {
+            agreementStore = new InMemoryAgreementStore();
+        }
+        // negotiations must not wait behind catalogue synchronisation or skill refreshes
+        negotiationScheduler = Executors.newScheduledThreadPool(agentConfig.getNegotiationThreads());
+        agreementController = new AgreementControllerImpl(monitor, agentConfig, catalogService, negotiationScheduler, agreementStore);
+        this.rdfStore = new RdfStore(agentConfig, monitor);
         synchronizer = new DataspaceSynchronizer(executorService, agentConfig, catalogService, rdfStore, monitor);
         this.reg = new ServiceExecutorRegistry();
-        reg.addBulkLink(new DataspaceServiceExecutor(monitor, agreementController, agentConfig, httpClient, executorService, typeManager));
+        federationScheduler = new FederationScheduler(agentConfig, monitor);
+        AdaptiveBatchSize batchSizes = new AdaptiveBatchSize(agentConfig, monitor);
+        reg.addBulkLink(new DataspaceServiceExecutor(monitor, agreementController, agentConfig, httpClient, federationScheduler, typeManager,
+                new SourceSelector(rdfStore, agentConfig, monitor), batchSizes));
         SparqlQuerySerializerFactory arqQuerySerializerFactory = new SparqlQuerySerializerFactory();
         SerializerRegistry.get().addQuerySerializer(Syntax.syntaxARQ, arqQuerySerializerFactory);
         SerializerRegistry.get().addQuerySerializer(Syntax.syntaxSPARQL_10, arqQuerySerializerFactory);
         SerializerRegistry.get().addQuerySerializer(Syntax.syntaxSPARQL_11, arqQuerySerializerFactory);
-        this.processor = new SparqlQueryProcessor(reg, monitor, agentConfig, rdfStore, typeManager);
-        this.skillStore = new EdcSkillStore(catalogService, typeManager, agentConfig);
+        this.processor = new SparqlQueryProcessor(reg, monitor, agentConfig, rdfStore, typeManager, batchSizes);
+        this.skillStore = new EdcSkillStore(catalogService, typeManager, agentConfig, executorService, monitor);
         try {
             this.sanitizer = (UriSanitizer) Class.forName(agentConfig.getSanitizerClass()).getConstructor(AgentConfig.class).newInstance(agentConfig);
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException | ClassNotFoundException e) {
@@ -121,11 +145,19 @@ public class SharedObjectManager {
     }
 
     public void start() {
+        federationScheduler.start();
+        agreementController.start();
+        skillStore.start();
         synchronizer.start();
     }
 
     public void shutdown() {
+        agreementController.shutdown();
+        negotiationScheduler.shutdownNow();
+        skillStore.shutdown();
         synchronizer.shutdown();
+        federationScheduler.shutdown();
+        rdfStore.close();
     }
 
     public static String convertToCurl(Request request) {
@@ -202,6 +234,10 @@ public class SharedObjectManager {
         return httpClient;
     }
 
+    public OkHttpClient getControlPlaneClient() {
+        return controlPlaneClient;
+    }
+
     public AgentController getAgentController() {
         return agentController;
     }
@@ -28,13 +28,16 @@ import java.util.List;
  */
 public class DcatCatalog extends JsonLdObject {
 
+    public static final String DATASET_PROPERTY = "https://www.w3.org/ns/dcat/dataset";
+    public static final String DATASET_PROPERTY_NS = "http://www.w3.org/ns/dcat#dataset";
+
     List<DcatDataset> datasets = new ArrayList<>();
 
     public DcatCatalog(JsonObject node) {
         super(node);
         JsonValue dataset = node.getOrDefault(
-                "https://www.w3.org/ns/dcat/dataset",
-                node.get("http://www.w3.org/ns/dcat#dataset")
+                DATASET_PROPERTY,
+                node.get(DATASET_PROPERTY_NS)
         );
         if (dataset != null) {
             if (dataset.getValueType() == JsonValue.ValueType.ARRAY) {
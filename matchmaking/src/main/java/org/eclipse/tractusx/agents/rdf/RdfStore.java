@@ -29,9 +29,13 @@ import org.apache.jena.riot.system.ErrorHandler;
 import org.apache.jena.riot.system.ErrorHandlerFactory;
 import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.riot.system.stream.StreamManager;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.DatasetGraphFactory;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.vocabulary.RDF;
 import org.eclipse.tractusx.agents.AgentConfig;
 import org.eclipse.tractusx.agents.MonitorWrapper;
 import org.eclipse.tractusx.agents.utils.Monitor;
@@ -39,10 +43,19 @@ import org.eclipse.tractusx.agents.utils.Monitor;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -53,6 +66,12 @@ import java.util.regex.Pattern;
  */
 public class RdfStore {
 
+    /**
+     * the predicate under which a persistent store remembers the asset files
+     * (and the checksums of their content) it has been initialised with
+     */
+    public static final Node ASSET_FILE = NodeFactory.createURI("https://w3id.org/catenax/ontology/common#assetFile");
+
     // we need a single data access point (with its default graph)
     protected final DatasetGraph dataset;
     protected final DataAccessPoint api;
@@ -62,6 +81,10 @@ public class RdfStore {
 
     protected final MonitorWrapper monitorWrapper;
 
+    // quads per predicate (and per class for rdf:type), maintained with every change of the store
+    protected final Map<Node, AtomicLong> predicateCounts = new ConcurrentHashMap<>();
+    protected final Map<Node, AtomicLong> classCounts = new ConcurrentHashMap<>();
+
     /**
      * create a new RDF store (and initialise with a given ttl file)
      *
@@ -70,23 +93,40 @@ public class RdfStore {
      */
     public RdfStore(AgentConfig config, Monitor monitor) {
         this.config = config;
-        this.dataset = DatasetGraphFactory.createTxnMem();
+        this.monitor = monitor;
+        this.monitorWrapper = new MonitorWrapper(getClass().getName(), monitor);
+        boolean persistent = config.getRdfStore() != null;
+        if (persistent) {
+            // disk-based, memory-mapped store which survives restarts
+            monitor.info(String.format("Connecting to persistent rdf store at %s", config.getRdfStore()));
+            this.dataset = DatabaseMgr.connectDatasetGraph(config.getRdfStore());
+        } else {
+            this.dataset = DatasetGraphFactory.createTxnMem();
+        }
 
         DataService.Builder dataService = DataService.newBuilder(dataset);
         this.service = dataService.build();
         api = new DataAccessPoint(config.getAccessPoint(), service);
-        this.monitor = monitor;
-        this.monitorWrapper = new MonitorWrapper(getClass().getName(), monitor);
         monitor.debug(String.format("Activating data service %s under access point %s", service, api));
         service.goActive();
         // read file with ontology, share this dataset with the catalogue sync procedure
-        if (config.getAssetFiles() != null) {
+        // a persistent store is only initialised again if the asset files have changed
+        Set<Node> assetFiles = persistent ? getAssetFileMarkers(config.getAssetFiles()) : Set.of();
+        if (persistent && assetFiles.equals(getLoadedAssetFiles())) {
+            monitor.info(String.format("Reusing asset %s from persistent rdf store.", config.getDefaultAsset()));
+        } else if (config.getAssetFiles() != null || persistent) {
             startTx();
+            if (persistent) {
+                // the catalogue facts are recreated by the next synchronization
+                dataset.deleteAny(getDefaultGraph(), Node.ANY, Node.ANY, Node.ANY);
+                monitor.info(String.format("Asset files have changed, reinitialising asset %s in persistent rdf store.", config.getDefaultAsset()));
+            }
             StreamRDF dest = StreamRDFLib.dataset(dataset);
             StreamRDF graphDest = StreamRDFLib.extendTriplesToQuads(getDefaultGraph(), dest);
             StreamRDFCounting countingDest = StreamRDFLib.count(graphDest);
             ErrorHandler errorHandler = ErrorHandlerFactory.errorHandlerStd(monitorWrapper);
-            for (String assetFile : config.getAssetFiles()) {
+            String[] files = config.getAssetFiles() != null ? config.getAssetFiles() : new String[0];
+            for (String assetFile : files) {
                 RDFParser.create()
                         .errorHandler(errorHandler)
                         .source(assetFile)
@@ -94,11 +134,118 @@ public class RdfStore {
                         .parse(countingDest);
                 monitor.debug(String.format("Initialised asset %s with file %s resulted in %d triples", config.getDefaultAsset(), assetFile, countingDest.countTriples()));
             }
+            if (persistent) {
+                for (Node assetFile : assetFiles) {
+                    dataset.add(getDefaultGraph(), getDefaultGraph(), ASSET_FILE, assetFile);
+                }
+            }
             commit();
-            monitor.info(String.format("Initialised asset %s with %d triples from %d files", config.getDefaultAsset(), countingDest.countTriples(), config.getAssetFiles().length));
+            monitor.info(String.format("Initialised asset %s with %d triples from %d files", config.getDefaultAsset(), countingDest.countTriples(), files.length));
         } else {
             monitor.info(String.format("Initialised asset %s with 0 triples.", config.getDefaultAsset()));
         }
+        countAll();
+    }
+
+    /**
+     * counts the quads of the store once, afterwards the counts are maintained
+     * by the operations which change the store
+     */
+    protected void countAll() {
+        dataset.begin(TxnType.READ);
+        try {
+            dataset.find().forEachRemaining(quad -> count(quad, 1));
+        } finally {
+            dataset.end();
+        }
+        monitor.debug(String.format("Counted %d predicates and %d classes in the store", predicateCounts.size(), classCounts.size()));
+    }
+
+    /**
+     * records a committed change of the store in the counts
+     *
+     * @param added   quads which have been added to the store
+     * @param deleted quads which have been deleted from the store
+     */
+    public void countChanges(Collection<Quad> added, Collection<Quad> deleted) {
+        added.forEach(quad -> count(quad, 1));
+        deleted.forEach(quad -> count(quad, -1));
+    }
+
+    /**
+     * records a single quad in the counts
+     *
+     * @param quad  the quad
+     * @param delta 1 for an added quad, -1 for a deleted quad
+     */
+    protected void count(Quad quad, long delta) {
+        predicateCounts.computeIfAbsent(quad.getPredicate(), key -> new AtomicLong()).addAndGet(delta);
+        if (RDF.Nodes.type.equals(quad.getPredicate())) {
+            classCounts.computeIfAbsent(quad.getObject(), key -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    /**
+     * access
+     *
+     * @param predicate predicate
+     * @param object    class (for rdf:type) or ANY
+     * @return number of quads in the store with the given predicate (and object)
+     */
+    public long getCount(Node predicate, Node object) {
+        AtomicLong count;
+        if (RDF.Nodes.type.equals(predicate) && object.isConcrete()) {
+            count = classCounts.get(object);
+        } else {
+            count = predicateCounts.get(predicate);
+        }
+        return count == null ? 0 : Math.max(0, count.get());
+    }
+
+    /**
+     * computes the markers which identify the given asset files
+     * (by their location and a checksum of their content)
+     *
+     * @param assetFiles locations of the asset files, may be null
+     * @return set of marker literals
+     */
+    protected Set<Node> getAssetFileMarkers(String[] assetFiles) {
+        Set<Node> markers = new HashSet<>();
+        if (assetFiles != null) {
+            for (String assetFile : assetFiles) {
+                String checksum = "unreadable";
+                try (InputStream content = StreamManager.get().open(assetFile)) {
+                    if (content != null) {
+                        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                        byte[] buffer = new byte[8192];
+                        for (int read = content.read(buffer); read >= 0; read = content.read(buffer)) {
+                            digest.update(buffer, 0, read);
+                        }
+                        checksum = new BigInteger(1, digest.digest()).toString(16);
+                    }
+                } catch (IOException | NoSuchAlgorithmException e) {
+                    monitor.warning(String.format("Could not compute the checksum of asset file %s", assetFile), e);
+                }
+                markers.add(NodeFactory.createLiteral(String.format("%s %s", checksum, assetFile)));
+            }
+        }
+        return markers;
+    }
+
+    /**
+     * reads the markers of the asset files a store has been initialised with
+     *
+     * @return set of marker literals
+     */
+    protected Set<Node> getLoadedAssetFiles() {
+        Set<Node> markers = new HashSet<>();
+        dataset.begin(TxnType.READ);
+        try {
+            dataset.find(getDefaultGraph(), getDefaultGraph(), ASSET_FILE, Node.ANY).forEachRemaining(quad -> markers.add(quad.getObject()));
+        } finally {
+            dataset.end();
+        }
+        return markers;
     }
 
     public static final String CSV_REGEX = "(\"[^\"]*\")?([^%s]*)";
@@ -117,7 +264,16 @@ public class RdfStore {
         }
         monitor.info(String.format("Upserting asset %s with turtle source.", asset));
         startTx();
-        StreamRDF dest = StreamRDFLib.dataset(dataset);
+        List<Quad> added = new ArrayList<>();
+        StreamRDF dest = new StreamRDFWrapper(StreamRDFLib.dataset(dataset)) {
+            @Override
+            public void quad(Quad quad) {
+                if (!dataset.contains(quad)) {
+                    added.add(quad);
+                }
+                super.quad(quad);
+            }
+        };
         StreamRDF graphDest = StreamRDFLib.extendTriplesToQuads(NodeFactory.createURI(asset), dest);
         StreamRDFCounting countingDest = StreamRDFLib.count(graphDest);
         ErrorHandler errorHandler = ErrorHandlerFactory.errorHandlerStd(monitorWrapper);
@@ -165,6 +321,7 @@ public class RdfStore {
         long numberOfTriples = countingDest.countTriples();
         monitor.debug(String.format("Upserting asset %s resulted in %d triples", asset, numberOfTriples));
         commit();
+        countChanges(added, List.of());
         return numberOfTriples;
     }
 
@@ -199,14 +356,16 @@ public class RdfStore {
         monitor.info(String.format("Deleting asset %s.", asset));
         startTx();
         Quad findAssets = Quad.create(NodeFactory.createURI(asset), Node.ANY, Node.ANY, Node.ANY);
-        Iterator<Quad> assetQuads = getDataSet().find(findAssets);
-        int tupleCount = 0;
-        while (assetQuads.hasNext()) {
-            getDataSet().delete(assetQuads.next());
-            tupleCount++;
+        // collect first, the store must not be modified while iterating it
+        List<Quad> assetQuads = new ArrayList<>();
+        getDataSet().find(findAssets).forEachRemaining(assetQuads::add);
+        for (Quad assetQuad : assetQuads) {
+            getDataSet().delete(assetQuad);
         }
+        int tupleCount = assetQuads.size();
         monitor.debug(String.format("Deleting asset %s resulted in %d triples", asset, tupleCount));
         commit();
+        countChanges(List.of(), assetQuads);
         return tupleCount;
     }
 
@@ -266,4 +425,11 @@ public class RdfStore {
     public void abort() {
         dataset.abort();
     }
+
+    /**
+     * releases the store (and the files of a persistent store)
+     */
+    public void close() {
+        dataset.close();
+    }
 }
@@ -19,6 +19,7 @@ package org.eclipse.tractusx.agents.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.json.Json;
+import jakarta.json.JsonValue;
 import jakarta.ws.rs.InternalServerErrorException;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -32,6 +33,7 @@ import org.eclipse.tractusx.agents.model.ContractAgreement;
 import org.eclipse.tractusx.agents.model.ContractNegotiation;
 import org.eclipse.tractusx.agents.model.ContractNegotiationRequest;
 import org.eclipse.tractusx.agents.model.DcatCatalog;
+import org.eclipse.tractusx.agents.model.DcatDataset;
 import org.eclipse.tractusx.agents.model.IdResponse;
 import org.eclipse.tractusx.agents.model.TransferProcess;
 import org.eclipse.tractusx.agents.model.TransferRequest;
@@ -43,8 +45,11 @@ import org.eclipse.tractusx.agents.utils.TypeManager;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static java.lang.String.format;
 
@@ -273,13 +278,74 @@ public class DataManagement {
                 throw new InternalServerErrorException(format("Control plane responded with: %s %s", response.code(), body != null ? body.string() : ""));
             }
 
-            return JsonLd.processCatalog(body.string());
+            return JsonLd.processCatalog(Json.createReader(body.charStream()).readObject());
         } catch (Exception e) {
             monitor.severe(format("Error in calling the control plane at %s", url), e);
             throw e;
         }
     }
 
+    /**
+     * Access the catalogue page by page, streaming each page
+     * such that only a single dataset is held in memory at a time
+     *
+     * @param partnerId                business partner id
+     * @param remoteControlPlaneIdsUrl url of the remote control plane ids endpoint
+     * @param spec                     query specification (offset and filter), the limit is replaced by the page size
+     * @param datasets                 consumer of the expanded datasets
+     * @return number of datasets found
+     * @throws IOException in case something went wrong
+     */
+    public int getCatalog(String partnerId, String remoteControlPlaneIdsUrl, QuerySpec spec, Consumer<DcatDataset> datasets) throws IOException {
+        var url = String.format(CATALOG_CALL, config.getControlPlaneManagementUrl());
+        int pageSize = Math.max(1, config.getCatalogPageSize());
+        int offset = spec.getOffset();
+        int count = 0;
+        Set<String> seen = new HashSet<>();
+        while (true) {
+            QuerySpec page = QuerySpec.Builder.newInstance()
+                    .filter(spec.getFilterExpression())
+                    .sortOrder(spec.getSortOrder())
+                    .sortField(spec.getSortField())
+                    .offset(offset)
+                    .limit(pageSize)
+                    .build();
+            var catalogSpec = String.format(CATALOG_REQUEST_BODY, partnerId, String.format(DSP_PATH, remoteControlPlaneIdsUrl), objectMapper.writeValueAsString(page));
+            var request = new Request.Builder().url(url).post(RequestBody.create(catalogSpec, MediaType.parse("application/json")));
+            config.getControlPlaneManagementHeaders().forEach(request::addHeader);
+
+            int pageCount;
+            int newCount;
+            try (var response = httpClient.newCall(request.build()).execute()) {
+                var body = response.body();
+
+                if (!response.isSuccessful() || body == null) {
+                    throw new InternalServerErrorException(format("Control plane responded with: %s %s", response.code(), body != null ? body.string() : ""));
+                }
+
+                int[] fresh = new int[1];
+                pageCount = JsonLd.processCatalog(body.charStream(), dataset -> {
+                    // connectors ignoring the paging would otherwise make us loop forever
+                    JsonValue id = dataset.getProperties().get("@id");
+                    if (id == null || seen.add(JsonLd.asString(id))) {
+                        fresh[0]++;
+                        datasets.accept(dataset);
+                    }
+                });
+                newCount = fresh[0];
+            } catch (Exception e) {
+                monitor.severe(format("Error in calling the control plane at %s", url), e);
+                throw e;
+            }
+            count += newCount;
+            monitor.debug(format("Received catalog page at offset %d with %d datasets from %s", offset, pageCount, remoteControlPlaneIdsUrl));
+            if (pageCount < pageSize || newCount == 0) {
+                return count;
+            }
+            offset += pageSize;
+        }
+    }
+
     /**
      * Access the (provider control plane) catalogue
      *
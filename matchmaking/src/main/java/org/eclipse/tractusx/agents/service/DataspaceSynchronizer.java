@@ -19,8 +19,10 @@ package org.eclipse.tractusx.agents.service;
 import jakarta.json.Json;
 import jakarta.json.JsonValue;
 import org.apache.jena.atlas.lib.Sink;
+import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.TxnType;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFParser;
 import org.apache.jena.riot.lang.StreamRDFCounting;
@@ -28,7 +30,9 @@ import org.apache.jena.riot.system.ErrorHandler;
 import org.apache.jena.riot.system.ErrorHandlerFactory;
 import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
 import org.eclipse.tractusx.agents.AgentConfig;
 import org.eclipse.tractusx.agents.MonitorWrapper;
 import org.eclipse.tractusx.agents.jsonld.JsonLd;
@@ -39,6 +43,7 @@ import org.eclipse.tractusx.agents.utils.Criterion;
 import org.eclipse.tractusx.agents.utils.Monitor;
 import org.eclipse.tractusx.agents.utils.QuerySpec;
 
+import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -49,6 +54,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -76,7 +88,7 @@ public class DataspaceSynchronizer implements Runnable {
     public static final String XML_SCHEMA_NAMESPACE = "http://www.w3.org/2001/XMLSchema#";
 
     public static final Node SHAPE_OBJECT = createUri(CX_SCHEMA_NAMESPACE, "shapeObject");
-    protected static final Node CX_ASSET = createUri(COMMON_NAMESPACE, "offers");
+    public static final Node CX_ASSET = createUri(COMMON_NAMESPACE, "offers");
     protected static final Set<String> EXPECTED_COMPLEX_OBJECTS = new HashSet<>();
     protected static final QuerySpec FEDERATED_ASSET_QUERY = QuerySpec.Builder.newInstance()
             .filter(List.of(new Criterion(COMMON_NAMESPACE + "isFederated", "=", "true^^xsd:boolean"))).build();
@@ -157,6 +169,7 @@ public class DataspaceSynchronizer implements Runnable {
      * internal state
      */
     protected boolean isStarted = false;
+    protected ExecutorService catalogService;
 
     /**
      * creates the synchronizer
@@ -185,7 +198,13 @@ public class DataspaceSynchronizer implements Runnable {
             long interval = config.getDataspaceSynchronizationInterval();
             Map<String, String> connectors = config.getDataspaceSynchronizationConnectors();
             if (interval > 0 && connectors != null && connectors.size() > 0) {
-                monitor.info(String.format("Starting dataspace synchronization on %d connectors with interval %d milliseconds", connectors.size(), interval));
+                int parallelism = Math.max(1, Math.min(connectors.size(), config.getDataspaceSynchronizationParallelism()));
+                catalogService = Executors.newFixedThreadPool(parallelism, runnable -> {
+                    Thread thread = new Thread(runnable, "dataspace-synchronization");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                monitor.info(String.format("Starting dataspace synchronization on %d connectors (%d in parallel) with interval %d milliseconds", connectors.size(), parallelism, interval));
                 service.schedule(this, interval, TimeUnit.MILLISECONDS);
             }
         }
@@ -198,37 +217,57 @@ public class DataspaceSynchronizer implements Runnable {
         if (isStarted) {
             monitor.info("Shutting down dataspace synchronization");
             isStarted = false;
+            if (catalogService != null) {
+                catalogService.shutdownNow();
+                catalogService = null;
+            }
             service.shutdown();
         }
     }
 
     /**
      * runs the synchronizer when scheduled
+     * catalogues are fetched and converted in parallel, but
+     * written one after the other in short transactions which
+     * only contain the actual changes
      */
     @Override
     public void run() {
         monitor.debug("Synchronization run has been started");
-        if (isStarted) {
-            for (Map.Entry<String, String> remote : config.getDataspaceSynchronizationConnectors().entrySet()) {
-                if (isStarted) {
-                    monitor.debug(String.format("About to synchronize remote connector %s", remote));
-                    rdfStore.startTx();
-                    try {
-                        DcatCatalog catalog = dataManagement.getCatalog(remote.getKey(), remote.getValue(), FEDERATED_ASSET_QUERY);
-                        Node graph = rdfStore.getDefaultGraph();
-                        Node connector = NodeFactory.createURI(remote.getValue().replace("https", "edcs").replace("http", "edc"));
-                        deleteConnectorFacts(graph, connector);
-                        addConnectorFacts(remote.getValue(), catalog, graph, connector);
-                        rdfStore.commit();
-                    } catch (Throwable io) {
-                        monitor.warning(String.format("Could not synchronize remote connector %s because of %s. Going ahead.", remote, io));
-                        rdfStore.abort();
-                    }
-                } else {
-                    monitor.debug(String.format("Synchronization is no more active. Skipping all connectors starting from %s.", remote));
+        ExecutorService executor = catalogService;
+        if (isStarted && executor != null) {
+            Node graph = rdfStore.getDefaultGraph();
+            CompletionService<Map<Node, Set<Quad>>> fetches = new ExecutorCompletionService<>(executor);
+            Map<Future<Map<Node, Set<Quad>>>, Map.Entry<String, String>> remotes = new HashMap<>();
+            try {
+                for (Map.Entry<String, String> remote : config.getDataspaceSynchronizationConnectors().entrySet()) {
+                    remotes.put(fetches.submit(() -> fetchConnectorFacts(remote, graph)), remote);
+                }
+            } catch (RejectedExecutionException e) {
+                monitor.debug("Synchronization is no more active. Skipping all connectors.");
+            }
+            for (int count = 0; count < remotes.size(); count++) {
+                if (!isStarted) {
+                    monitor.debug("Synchronization is no more active. Skipping all remaining connectors.");
                     break;
                 }
+                Future<Map<Node, Set<Quad>>> fetch;
+                try {
+                    fetch = fetches.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                Map.Entry<String, String> remote = remotes.get(fetch);
+                try {
+                    updateConnectorFacts(graph, createConnectorNode(remote.getValue()), fetch.get());
+                } catch (ExecutionException e) {
+                    monitor.warning(String.format("Could not synchronize remote connector %s because of %s. Going ahead.", remote, e.getCause()));
+                } catch (Throwable t) {
+                    monitor.warning(String.format("Could not synchronize remote connector %s because of %s. Going ahead.", remote, t));
+                }
             } // for
+            remotes.keySet().forEach(fetch -> fetch.cancel(true));
             if (isStarted) {
                 monitor.debug("Schedule next synchronization run");
                 service.schedule(this, config.getDataspaceSynchronizationInterval(), TimeUnit.MILLISECONDS);
@@ -238,6 +277,182 @@ public class DataspaceSynchronizer implements Runnable {
         }
     }
 
+    /**
+     * computes the uri node representing a connector
+     *
+     * @param remote url of the remote connector
+     * @return uri node representing the connector
+     */
+    protected static Node createConnectorNode(String remote) {
+        return NodeFactory.createURI(remote.replace("https", "edcs").replace("http", "edc"));
+    }
+
+    /**
+     * retrieves the catalogue of a remote connector and converts it into facts,
+     * may be run in parallel as it does not touch the store
+     *
+     * @param remote business partner id and url of the remote connector
+     * @param graph  to store the facts
+     * @return facts grouped by the offer/asset node
+     * @throws IOException in case the catalogue could not be retrieved
+     */
+    protected Map<Node, Set<Quad>> fetchConnectorFacts(Map.Entry<String, String> remote, Node graph) throws IOException {
+        monitor.debug(String.format("About to synchronize remote connector %s", remote));
+        Node connector = createConnectorNode(remote.getValue());
+        Map<Node, Set<Quad>> facts = new HashMap<>();
+        // datasets are converted as soon as they have been parsed
+        int count = dataManagement.getCatalog(remote.getKey(), remote.getValue(), FEDERATED_ASSET_QUERY, offer -> {
+            Collection<Quad> quads = convertToQuads(graph, connector, offer);
+            // the first quad always links the connector to the asset
+            Node assetNode = quads.iterator().next().getObject();
+            facts.computeIfAbsent(assetNode, node -> new HashSet<>()).addAll(quads);
+        });
+        if (count > 0) {
+            monitor.debug(String.format("Found a catalog with %d entries for remote connector %s", count, remote));
+        } else {
+            monitor.warning(String.format("Found an empty catalog for remote connector %s", remote));
+        }
+        return facts;
+    }
+
+    /**
+     * reads the existing facts about a connector (the offered assets,
+     * their properties and their shacl shapes)
+     *
+     * @param graph     where facts are stored
+     * @param connector to collect the facts for
+     * @return stored facts grouped by the offer/asset node
+     */
+    protected Map<Node, Set<Quad>> readConnectorFacts(Node graph, Node connector) {
+        Map<Node, Set<Quad>> facts = new HashMap<>();
+        DatasetGraph dataset = rdfStore.getDataSet();
+        dataset.begin(TxnType.READ);
+        try {
+            Iterator<Quad> assetQuads = dataset.find(Quad.create(graph, connector, CX_ASSET, Node.ANY));
+            while (assetQuads.hasNext()) {
+                Quad quadAsset = assetQuads.next();
+                Node assetNode = quadAsset.getObject();
+                Set<Quad> assetFacts = facts.computeIfAbsent(assetNode, node -> new HashSet<>());
+                assetFacts.add(quadAsset);
+                Iterator<Quad> shapesQuads = dataset.find(Quad.create(graph, assetNode, SHAPE_OBJECT, Node.ANY));
+                while (shapesQuads.hasNext()) {
+                    dataset.find(Quad.create(graph, shapesQuads.next().getObject(), Node.ANY, Node.ANY)).forEachRemaining(assetFacts::add);
+                }
+                dataset.find(Quad.create(graph, assetNode, Node.ANY, Node.ANY)).forEachRemaining(assetFacts::add);
+            }
+        } finally {
+            dataset.end();
+        }
+        return facts;
+    }
+
+    /**
+     * brings the stored facts about a connector up to date by
+     * only writing the offers/assets which have actually changed
+     *
+     * @param graph     where facts are stored
+     * @param connector uri node representing the connector
+     * @param facts     the new facts grouped by offer/asset node
+     * @return number of fact triples/quads added or deleted
+     */
+    public int updateConnectorFacts(Node graph, Node connector, Map<Node, Set<Quad>> facts) {
+        Map<Node, Set<Quad>> stored = readConnectorFacts(graph, connector);
+        int tupleCount = 0;
+        int assetCount = 0;
+        for (Map.Entry<Node, Set<Quad>> asset : stored.entrySet()) {
+            if (!facts.containsKey(asset.getKey())) {
+                tupleCount += writeDifference(asset.getValue(), Set.of());
+                assetCount++;
+            }
+        }
+        for (Map.Entry<Node, Set<Quad>> asset : facts.entrySet()) {
+            Set<Quad> oldFacts = stored.getOrDefault(asset.getKey(), Set.of());
+            if (!isEquivalent(oldFacts, asset.getValue())) {
+                tupleCount += writeDifference(oldFacts, asset.getValue());
+                assetCount++;
+            }
+        }
+        monitor.debug(String.format("Changed %d tuples of %d assets for connector %s.", tupleCount, assetCount, connector));
+        return tupleCount;
+    }
+
+    /**
+     * writes the difference between two fact sets in a single short transaction
+     *
+     * @param oldFacts facts which are currently stored
+     * @param newFacts facts which should be stored
+     * @return number of fact triples/quads added or deleted
+     */
+    protected int writeDifference(Set<Quad> oldFacts, Set<Quad> newFacts) {
+        List<Quad> deleted = new ArrayList<>();
+        List<Quad> added = new ArrayList<>();
+        rdfStore.startTx();
+        try {
+            for (Quad quad : oldFacts) {
+                if (!newFacts.contains(quad)) {
+                    rdfStore.getDataSet().delete(quad);
+                    deleted.add(quad);
+                }
+            }
+            for (Quad quad : newFacts) {
+                if (!oldFacts.contains(quad)) {
+                    rdfStore.getDataSet().add(quad);
+                    added.add(quad);
+                }
+            }
+            rdfStore.commit();
+        } catch (Throwable t) {
+            rdfStore.abort();
+            throw t;
+        }
+        // keep the statistics of the store without recounting it
+        rdfStore.countChanges(added, deleted);
+        return deleted.size() + added.size();
+    }
+
+    /**
+     * checks whether two fact sets describe the same asset. As shapes
+     * graphs are parsed again in each run, their blank nodes are
+     * compared by an isomorphism of the per-graph triples.
+     *
+     * @param oldFacts facts which are currently stored
+     * @param newFacts facts which should be stored
+     * @return whether the stored facts can be kept
+     */
+    protected static boolean isEquivalent(Set<Quad> oldFacts, Set<Quad> newFacts) {
+        if (oldFacts.equals(newFacts)) {
+            return true;
+        }
+        if (oldFacts.size() != newFacts.size()) {
+            return false;
+        }
+        Map<Node, Graph> oldGraphs = asGraphs(oldFacts);
+        Map<Node, Graph> newGraphs = asGraphs(newFacts);
+        if (!oldGraphs.keySet().equals(newGraphs.keySet())) {
+            return false;
+        }
+        for (Map.Entry<Node, Graph> graph : oldGraphs.entrySet()) {
+            if (!graph.getValue().isIsomorphicWith(newGraphs.get(graph.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * splits a set of quads into its graphs
+     *
+     * @param facts quads to split
+     * @return triples indexed by graph name
+     */
+    protected static Map<Node, Graph> asGraphs(Set<Quad> facts) {
+        Map<Node, Graph> graphs = new HashMap<>();
+        for (Quad quad : facts) {
+            graphs.computeIfAbsent(quad.getGraph(), graph -> GraphFactory.createDefaultGraph()).add(quad.asTriple());
+        }
+        return graphs;
+    }
+
     /**
      * adds new facts about the catalog thats been collected from the given connector
      *
@@ -281,77 +496,6 @@ public class DataspaceSynchronizer implements Runnable {
         return tupleCount;
     }
 
-    /**
-     * deletes existing facts about a connector
-     *
-     * @param graph     to delete the facts from
-     * @param connector to clean up the facts for
-     * @return number of fact triples/quads deleted
-     */
-    public int deleteConnectorFacts(Node graph, Node connector) {
-        // find all offers attached to the connector
-        Quad findAssets = Quad.create(graph, connector, CX_ASSET, Node.ANY);
-        Iterator<Quad> assetQuads = rdfStore.getDataSet().find(findAssets);
-        int tupleCount = 0;
-        while (assetQuads.hasNext()) {
-            Quad quadAsset = assetQuads.next();
-            Node assetNode = quadAsset.getObject();
-            tupleCount += deleteShaclShapes(graph, assetNode);
-            tupleCount += deleteAssetProperties(graph, assetNode);
-            rdfStore.getDataSet().delete(quadAsset);
-            tupleCount++;
-        }
-        monitor.debug(String.format("About to delete %d old tuples.", tupleCount));
-        return tupleCount;
-    }
-
-    /**
-     * deletes properties of a given offer/asset
-     *
-     * @param graph     where facts are stored
-     * @param assetNode to delete properties from
-     * @return number of property facts deleted
-     */
-    public int deleteAssetProperties(Node graph, Node assetNode) {
-        int tupleCount = 0;
-        // remove all remaining properties associated to the offer/asset
-        Quad findAssetProps = Quad.create(graph, assetNode, Node.ANY, Node.ANY);
-        Iterator<Quad> propQuads = rdfStore.getDataSet().find(findAssetProps);
-        while (propQuads.hasNext()) {
-            Quad quadProp = propQuads.next();
-            rdfStore.getDataSet().delete(quadProp);
-            tupleCount++;
-        }
-        return tupleCount;
-    }
-
-    /**
-     * delete all shacl shapes associated to an asset node
-     *
-     * @param graph     where the shapes are stored
-     * @param assetNode to delete the shapes from
-     * @return number of associated shapes (and their properties)
-     */
-    public int deleteShaclShapes(Node graph, Node assetNode) {
-        int tupleCount = 0;
-        // remove all shacl shapes associated to the offer/asset
-        Quad findAssetShapes = Quad.create(graph, assetNode, SHAPE_OBJECT, Node.ANY);
-        Iterator<Quad> shapesQuad = rdfStore.getDataSet().find(findAssetShapes);
-        while (shapesQuad.hasNext()) {
-            Quad shapeQuad = shapesQuad.next();
-            Node shapesObject = shapeQuad.getObject();
-            Quad findShapesPredicates = Quad.create(graph, shapesObject, Node.ANY, Node.ANY);
-            Iterator<Quad> shapesFacts = rdfStore.getDataSet().find(findShapesPredicates);
-            while (shapesFacts.hasNext()) {
-                rdfStore.getDataSet().delete(shapesFacts.next());
-                tupleCount++;
-            }
-            rdfStore.getDataSet().delete(shapeQuad);
-            tupleCount++;
-        }
-        return tupleCount;
-    }
-
     /**
      * Workaround the castration of the IDS catalogue
      *
@@ -22,28 +22,165 @@ import org.eclipse.tractusx.agents.SkillDistribution;
 import org.eclipse.tractusx.agents.SkillStore;
 import org.eclipse.tractusx.agents.jsonld.JsonLd;
 import org.eclipse.tractusx.agents.model.Asset;
+import org.eclipse.tractusx.agents.sparql.SkillTemplate;
 import org.eclipse.tractusx.agents.utils.Criterion;
+import org.eclipse.tractusx.agents.utils.Monitor;
 import org.eclipse.tractusx.agents.utils.QuerySpec;
 import org.eclipse.tractusx.agents.utils.TypeManager;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 
 /**
  * Implements a skill store based on EDC assets
+ * The skill assets are cached (least recently used, with a time to live),
+ * hot entries are refreshed in the background.
  */
 public class EdcSkillStore implements SkillStore {
 
     DataManagement management;
     TypeManager typeManager;
     AgentConfig config;
+    Monitor monitor;
+    ScheduledExecutorService scheduler;
+    ScheduledFuture<?> refresher;
 
+    public static final String QUERY_PROPERTY = "https://w3id.org/catenax/ontology/common#query";
+
+    /**
+     * a cached skill asset together with its compiled skill text, misses
+     * are not cached so that newly registered skills are found immediately
+     */
+    protected static class CachedAsset {
+        protected volatile Asset asset;
+        protected volatile SkillTemplate template;
+        protected volatile long loaded;
+        protected volatile long lastAccess;
+
+        protected CachedAsset(Asset asset, long loaded) {
+            setAsset(asset);
+            this.loaded = loaded;
+            this.lastAccess = loaded;
+        }
+
+        /**
+         * sets the asset and compiles its skill text
+         *
+         * @param asset the loaded skill asset
+         */
+        protected void setAsset(Asset asset) {
+            this.template = SkillTemplate.compile(getQuery(asset));
+            this.asset = asset;
+        }
+    }
+
+    protected final long cacheTtl;
+    protected final Map<String, CachedAsset> cache;
+    // incremented (under the cache lock) by each put, loads started before a put are not cached
+    protected long generation;
+
+    /**
+     * creates a skill store without background refresh
+     *
+     * @param management  control plane access
+     * @param typeManager serialization
+     * @param config      agent config
+     */
     public EdcSkillStore(DataManagement management, TypeManager typeManager, AgentConfig config) {
+        this(management, typeManager, config, null, null);
+    }
+
+    /**
+     * creates a skill store
+     *
+     * @param management  control plane access
+     * @param typeManager serialization
+     * @param config      agent config
+     * @param scheduler   scheduler for refreshing the cache, may be null
+     * @param monitor     logging subsystem, may be null
+     */
+    public EdcSkillStore(DataManagement management, TypeManager typeManager, AgentConfig config, ScheduledExecutorService scheduler, Monitor monitor) {
         this.management = management;
         this.typeManager = typeManager;
         this.config = config;
+        this.scheduler = scheduler;
+        this.monitor = monitor;
+        this.cacheTtl = config.getSkillCacheTtl();
+        int cacheSize = config.getSkillCacheSize();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAsset> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * starts the background refresh
+     */
+    public void start() {
+        if (scheduler != null && cacheTtl > 0 && refresher == null) {
+            refresher = scheduler.scheduleWithFixedDelay(this::refresh, cacheTtl / 2, cacheTtl / 2, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * stops the background refresh
+     */
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.cancel(false);
+            refresher = null;
+        }
+    }
+
+    /**
+     * reloads all entries which have been used since they were loaded
+     * and which are about to expire, the other entries simply expire
+     */
+    protected void refresh() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, CachedAsset>> entries;
+        synchronized (cache) {
+            entries = new ArrayList<>(cache.entrySet());
+        }
+        for (Map.Entry<String, CachedAsset> entry : entries) {
+            CachedAsset cached = entry.getValue();
+            if (cached.lastAccess > cached.loaded && now - cached.loaded >= cacheTtl / 2) {
+                try {
+                    long loadGeneration;
+                    synchronized (cache) {
+                        loadGeneration = generation;
+                    }
+                    Optional<Asset> asset = loadAsset(entry.getKey());
+                    synchronized (cache) {
+                        if (loadGeneration != generation || cache.get(entry.getKey()) != cached) {
+                            // a put in the meantime invalidated the entry
+                            continue;
+                        }
+                        if (asset.isEmpty()) {
+                            cache.remove(entry.getKey());
+                            continue;
+                        }
+                        cached.setAsset(asset.get());
+                        cached.loaded = System.currentTimeMillis();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (monitor != null) {
+                        monitor.warning(String.format("Could not refresh skill %s, keeping the cached version.", entry.getKey()), e);
+                    }
+                }
+            }
+        }
     }
 
     @Override
@@ -71,7 +208,7 @@ public class EdcSkillStore implements SkillStore {
         }
         String ontologiesString = String.join(",", ontologies);
         try {
-            return management.createOrUpdateSkill(
+            String id = management.createOrUpdateSkill(
                     key,
                     name,
                     description,
@@ -84,6 +221,12 @@ public class EdcSkillStore implements SkillStore {
                     allowServicePatern,
                     denyServicePattern
             ).getId();
+            // invalidate only after success: the next access reloads the skill
+            synchronized (cache) {
+                generation++;
+                cache.remove(key);
+            }
+            return id;
         } catch (IOException e) {
             return null;
         }
@@ -96,26 +239,89 @@ public class EdcSkillStore implements SkillStore {
     }
 
     /**
-     * finds an asset
+     * finds an asset (in the cache or at the control plane)
+     *
+     * @param key asset name
+     * @return the skill asset if registered
      */
     protected Optional<Asset> findAsset(String key) {
-        QuerySpec findAsset = QuerySpec.Builder.newInstance().filter(
-                List.of(new Criterion("https://w3id.org/edc/v0.0.1/ns/id", "=", key),
-                        new Criterion("http://www.w3.org/1999/02/22-rdf-syntax-ns#type", "=", "cx-common:SkillAsset"))).build();
+        return findEntry(key).map(cached -> cached.asset);
+    }
+
+    /**
+     * finds an asset and its compiled skill text (in the cache or at the control plane)
+     *
+     * @param key asset name
+     * @return the entry of the skill asset if registered, not necessarily cached
+     */
+    protected Optional<CachedAsset> findEntry(String key) {
+        long now = System.currentTimeMillis();
+        CachedAsset cached = cacheTtl > 0 ? cache.get(key) : null;
+        if (cached != null) {
+            cached.lastAccess = now;
+            if (now - cached.loaded < cacheTtl) {
+                return Optional.of(cached);
+            }
+        }
+        long loadGeneration;
+        synchronized (cache) {
+            loadGeneration = generation;
+        }
         try {
-            // we need to filter until the criterion really works
-            return management
-                    .listAssets(findAsset).stream()
-                    .findFirst();
+            Optional<CachedAsset> entry = loadAsset(key).map(asset -> new CachedAsset(asset, now));
+            if (cacheTtl > 0) {
+                synchronized (cache) {
+                    // a put in the meantime may have made the loaded asset stale
+                    if (loadGeneration == generation) {
+                        if (entry.isPresent()) {
+                            cache.put(key, entry.get());
+                        } else {
+                            cache.remove(key);
+                        }
+                    }
+                }
+            }
+            return entry;
         } catch (IOException e) {
-            return Optional.empty();
+            // rather serve an outdated skill than none
+            return Optional.ofNullable(cached);
         }
     }
 
+    /**
+     * access
+     *
+     * @param asset skill asset
+     * @return the skill text of the asset
+     */
+    protected static String getQuery(Asset asset) {
+        return JsonLd.asString(asset.getPrivateProperties().get(QUERY_PROPERTY));
+    }
+
+    /**
+     * loads an asset from the control plane
+     *
+     * @param key asset name
+     * @return the skill asset if registered
+     * @throws IOException if the control plane cannot be reached
+     */
+    protected Optional<Asset> loadAsset(String key) throws IOException {
+        QuerySpec findAsset = QuerySpec.Builder.newInstance().filter(
+                List.of(new Criterion("https://w3id.org/edc/v0.0.1/ns/id", "=", key),
+                        new Criterion("http://www.w3.org/1999/02/22-rdf-syntax-ns#type", "=", "cx-common:SkillAsset"))).build();
+        // we need to filter until the criterion really works
+        return management
+                .listAssets(findAsset).stream()
+                .findFirst();
+    }
+
     @Override
     public Optional<String> get(String key) {
-        return findAsset(key).map(asset ->
-                JsonLd.asString(asset.getPrivateProperties().get("https://w3id.org/catenax/ontology/common#query"))
-        );
+        return findAsset(key).map(EdcSkillStore::getQuery);
+    }
+
+    @Override
+    public Optional<SkillTemplate> getTemplate(String key) {
+        return findEntry(key).map(cached -> cached.template);
     }
 }
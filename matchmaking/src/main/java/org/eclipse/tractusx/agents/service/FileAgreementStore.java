@@ -0,0 +1,264 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.json.Json;
+import org.eclipse.tractusx.agents.model.ContractAgreement;
+import org.eclipse.tractusx.agents.utils.CachedEndpoint;
+import org.eclipse.tractusx.agents.utils.EndpointDataReference;
+import org.eclipse.tractusx.agents.utils.MatchmakingException;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.eclipse.tractusx.agents.utils.TypeManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+
+/**
+ * An agreement store which appends all changes to a log file
+ * (one json object per line). The log is replayed and compacted
+ * when the store is opened and whenever the number of appended
+ * lines exceeds a threshold, so that still valid endpoints
+ * survive restarts of the agent. As the log contains tokens,
+ * it is only readable by its owner.
+ */
+public class FileAgreementStore extends InMemoryAgreementStore {
+
+    protected static final String OP_PUT = "put";
+    protected static final String OP_REMOVE = "remove";
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+    protected final Path file;
+    protected final ObjectMapper objectMapper;
+    protected final Monitor monitor;
+    protected final int compactionThreshold;
+    protected BufferedWriter writer;
+    protected int appended;
+
+    /**
+     * opens the store
+     *
+     * @param file        location of the log file
+     * @param typeManager for serialization
+     * @param monitor     logging subsystem
+     */
+    public FileAgreementStore(Path file, TypeManager typeManager, Monitor monitor) {
+        this(file, typeManager, monitor, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * opens the store
+     *
+     * @param file                location of the log file
+     * @param typeManager         for serialization
+     * @param monitor             logging subsystem
+     * @param compactionThreshold number of appended lines after which the log is compacted
+     */
+    public FileAgreementStore(Path file, TypeManager typeManager, Monitor monitor, int compactionThreshold) {
+        this.file = file;
+        this.objectMapper = typeManager.getMapper();
+        this.monitor = monitor;
+        this.compactionThreshold = compactionThreshold;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (Files.exists(file)) {
+                replay();
+            }
+            compact();
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new MatchmakingException(String.format("Could not open agreement store %s", file), e);
+        }
+    }
+
+    /**
+     * replays the log into memory, dropping expired endpoints
+     *
+     * @throws IOException in case the log cannot be read
+     */
+    protected void replay() throws IOException {
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JsonNode entry = objectMapper.readTree(line);
+                    String asset = entry.get("asset").asText();
+                    if (OP_REMOVE.equals(entry.path("op").asText())) {
+                        super.remove(asset);
+                    } else {
+                        EndpointDataReference reference = objectMapper.treeToValue(entry.get("reference"), EndpointDataReference.class);
+                        String remoteUrl = entry.hasNonNull("remoteUrl") ? entry.get("remoteUrl").asText() : null;
+                        CachedEndpoint endpoint = new CachedEndpoint(reference, remoteUrl, entry.path("expiry").asLong(), entry.path("created").asLong());
+                        ContractAgreement agreement = null;
+                        if (entry.hasNonNull("agreement")) {
+                            agreement = new ContractAgreement(Json.createReader(new StringReader(entry.get("agreement").asText())).readObject());
+                        }
+                        super.put(asset, endpoint, agreement);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // a torn last line may result from a crash, so we skip it
+                    monitor.warning(String.format("Skipping invalid entry %d in agreement store %s", lineNumber, file), e);
+                }
+            }
+        }
+        long now = System.currentTimeMillis();
+        endpoints.entrySet().removeIf(entry -> {
+            if (!entry.getValue().isValidAt(now)) {
+                agreements.remove(entry.getKey());
+                return true;
+            }
+            return false;
+        });
+        monitor.info(String.format("Restored %d endpoints from agreement store %s", endpoints.size(), file));
+    }
+
+    /**
+     * rewrites the log to only contain the current entries
+     *
+     * @throws IOException in case the log cannot be written
+     */
+    protected void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        Files.createFile(temp, ownerOnly(temp));
+        try (BufferedWriter compacted = Files.newBufferedWriter(temp, StandardCharsets.UTF_8, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<String, CachedEndpoint> entry : endpoints.entrySet()) {
+                compacted.write(putEntry(entry.getKey(), entry.getValue(), agreements.get(entry.getKey())));
+                compacted.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        appended = 0;
+    }
+
+    /**
+     * computes the attributes for creating a file only accessible by its owner
+     *
+     * @param path the file to create
+     * @return owner-only permissions if the file system supports them
+     */
+    protected static FileAttribute<?>[] ownerOnly(Path path) {
+        if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[]{ PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")) };
+        }
+        return new FileAttribute<?>[0];
+    }
+
+    /**
+     * renders a put entry
+     *
+     * @param asset     asset name
+     * @param endpoint  endpoint reference
+     * @param agreement the agreement, may be null
+     * @return json line
+     * @throws IOException in case the entry cannot be serialized
+     */
+    protected String putEntry(String asset, CachedEndpoint endpoint, ContractAgreement agreement) throws IOException {
+        ObjectNode entry = objectMapper.createObjectNode();
+        entry.put("op", OP_PUT);
+        entry.put("asset", asset);
+        entry.put("remoteUrl", endpoint.getRemoteUrl());
+        entry.put("expiry", endpoint.getExpiry());
+        entry.put("created", endpoint.getCreated());
+        entry.set("reference", objectMapper.valueToTree(endpoint.getReference()));
+        if (agreement != null) {
+            entry.put("agreement", agreement.asString());
+        }
+        return objectMapper.writeValueAsString(entry);
+    }
+
+    /**
+     * appends a line to the log and compacts the log
+     * if too many lines have been appended since the last compaction
+     *
+     * @param line json line
+     * @throws IOException in case the log cannot be written
+     */
+    protected synchronized void append(String line) throws IOException {
+        if (writer != null) {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+            appended++;
+            if (appended > Math.max(compactionThreshold, endpoints.size())) {
+                writer.close();
+                try {
+                    compact();
+                } finally {
+                    writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+            }
+        }
+    }
+
+    /**
+     * updates memory and log under the same lock, so the order of the log
+     * (and hence the replay) matches the order of the changes in memory
+     */
+    @Override
+    public synchronized void put(String asset, CachedEndpoint endpoint, ContractAgreement agreement) {
+        super.put(asset, endpoint, agreement);
+        try {
+            append(putEntry(asset, endpoint, agreement));
+        } catch (IOException e) {
+            monitor.warning(String.format("Could not persist endpoint for asset %s in agreement store %s", asset, file), e);
+        }
+    }
+
+    @Override
+    public synchronized void remove(String asset) {
+        super.remove(asset);
+        try {
+            ObjectNode entry = objectMapper.createObjectNode();
+            entry.put("op", OP_REMOVE);
+            entry.put("asset", asset);
+            append(objectMapper.writeValueAsString(entry));
+        } catch (IOException e) {
+            monitor.warning(String.format("Could not persist removal of asset %s in agreement store %s", asset, file), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                monitor.warning(String.format("Could not close agreement store %s", file), e);
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.service;
+
+import org.eclipse.tractusx.agents.AgreementStore;
+import org.eclipse.tractusx.agents.model.ContractAgreement;
+import org.eclipse.tractusx.agents.utils.CachedEndpoint;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory store for agreements which does not survive restarts
+ */
+public class InMemoryAgreementStore implements AgreementStore {
+
+    protected final Map<String, CachedEndpoint> endpoints = new ConcurrentHashMap<>();
+    protected final Map<String, ContractAgreement> agreements = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String asset, CachedEndpoint endpoint, ContractAgreement agreement) {
+        endpoints.put(asset, endpoint);
+        if (agreement != null) {
+            agreements.put(asset, agreement);
+        } else {
+            agreements.remove(asset);
+        }
+    }
+
+    @Override
+    public void remove(String asset) {
+        endpoints.remove(asset);
+        agreements.remove(asset);
+    }
+
+    @Override
+    public Map<String, CachedEndpoint> getEndpoints() {
+        return new HashMap<>(endpoints);
+    }
+
+    @Override
+    public Map<String, ContractAgreement> getAgreements() {
+        return new HashMap<>(agreements);
+    }
+
+    @Override
+    public void close() {
+    }
+}
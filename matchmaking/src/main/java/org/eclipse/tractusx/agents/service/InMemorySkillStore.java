@@ -19,6 +19,7 @@ package org.eclipse.tractusx.agents.service;
 import org.eclipse.tractusx.agents.AgentConfig;
 import org.eclipse.tractusx.agents.SkillDistribution;
 import org.eclipse.tractusx.agents.SkillStore;
+import org.eclipse.tractusx.agents.sparql.SkillTemplate;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -32,6 +33,8 @@ public class InMemorySkillStore implements SkillStore {
 
     // temporary local skill store
     protected final Map<String, String> skills = new HashMap<>();
+    // the skills compiled when they are put
+    protected final Map<String, SkillTemplate> templates = new HashMap<>();
 
     protected AgentConfig config;
 
@@ -52,6 +55,7 @@ public class InMemorySkillStore implements SkillStore {
     @Override
     public String put(String key, String skill, String name, String description, String version, String contract, SkillDistribution dist, boolean isFederated, String allowServicePattern, String denyServicePattern, String... ontologies) {
         skills.put(key, skill);
+        templates.put(key, SkillTemplate.compile(skill));
         return key;
     }
 
@@ -68,4 +72,9 @@ public class InMemorySkillStore implements SkillStore {
             return Optional.of(skills.get(key));
         }
     }
+
+    @Override
+    public Optional<SkillTemplate> getTemplate(String key) {
+        return Optional.ofNullable(templates.get(key));
+    }
 }
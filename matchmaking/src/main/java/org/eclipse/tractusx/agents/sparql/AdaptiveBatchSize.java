@@ -0,0 +1,168 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.utils.Monitor;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adapts the size of federated batches per remote target (connector/asset).
+ * Batches grow multiplicatively while a target answers fast and shrink
+ * proportionally to the observed latency (or halve on errors), always
+ * staying within the configured bounds.
+ */
+public class AdaptiveBatchSize {
+
+    /**
+     * weight of the latest observation in the moving averages
+     */
+    public static final double SMOOTHING = 0.2;
+
+    protected final Monitor monitor;
+    protected final long minSize;
+    protected final long maxSize;
+    protected final long initialSize;
+    protected final long targetLatency;
+    protected final Map<String, TargetStatistics> targets = new ConcurrentHashMap<>();
+
+    /**
+     * statistics about a single target
+     */
+    protected static class TargetStatistics {
+        protected volatile long batchSize;
+        protected double latency;
+        protected double payload;
+        protected double errorRate;
+
+        protected TargetStatistics(long batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    /**
+     * creates a new batch size controller
+     *
+     * @param config  agent config
+     * @param monitor logging subsystem
+     */
+    public AdaptiveBatchSize(AgentConfig config, Monitor monitor) {
+        this.monitor = monitor;
+        this.maxSize = Math.max(1, config.getFederationServiceBatchSize());
+        this.minSize = Math.max(1, Math.min(config.getFederationServiceBatchMin(), maxSize));
+        this.initialSize = Math.max(minSize, Math.min(config.getFederationServiceBatchInitial(), maxSize));
+        this.targetLatency = config.getFederationServiceBatchLatency();
+    }
+
+    /**
+     * access
+     *
+     * @param target remote target url
+     * @return the current batch size for the target
+     */
+    public long getBatchSize(String target) {
+        TargetStatistics statistics = targets.get(target);
+        if (statistics == null) {
+            return initialSize;
+        }
+        return statistics.batchSize;
+    }
+
+    /**
+     * access
+     *
+     * @param targets remote target urls which are known in advance, may be empty
+     * @return the smallest current batch size of the targets, if there are none,
+     *      the smallest batch size of all targets seen so far
+     */
+    public long getBatchSize(Collection<String> targets) {
+        if (targets.isEmpty()) {
+            return targets.values().stream().mapToLong(statistics -> statistics.batchSize).reduce(initialSize, Math::min);
+        }
+        return targets.stream().mapToLong(this::getBatchSize).min().orElse(initialSize);
+    }
+
+    /**
+     * records a successful call
+     *
+     * @param target      remote target url
+     * @param batchLength number of bindings shipped
+     * @param millis      time until the target answered
+     */
+    public void success(String target, long batchLength, long millis) {
+        TargetStatistics statistics = targets.computeIfAbsent(target, key -> new TargetStatistics(initialSize));
+        synchronized (statistics) {
+            update(statistics, batchLength, millis, 0);
+            long size = statistics.batchSize;
+            if (targetLatency > 0 && millis > targetLatency) {
+                // shrink so that a batch of this size would meet the latency
+                size = Math.max(minSize, Math.min(size, (long) (batchLength * ((double) targetLatency / millis))));
+            } else if (batchLength >= size && (targetLatency <= 0 || millis * 2 < targetLatency) && statistics.errorRate < 0.5) {
+                // the target kept up with a full batch, so double
+                size = size > maxSize / 2 ? maxSize : size * 2;
+            }
+            adjust(target, statistics, size);
+        }
+    }
+
+    /**
+     * records a failed call
+     *
+     * @param target      remote target url
+     * @param batchLength number of bindings shipped
+     * @param millis      time until the call failed
+     */
+    public void failure(String target, long batchLength, long millis) {
+        TargetStatistics statistics = targets.computeIfAbsent(target, key -> new TargetStatistics(initialSize));
+        synchronized (statistics) {
+            update(statistics, batchLength, millis, 1);
+            adjust(target, statistics, Math.max(minSize, Math.min(statistics.batchSize, batchLength) / 2));
+        }
+    }
+
+    /**
+     * maintains the moving averages
+     *
+     * @param statistics  of the target
+     * @param batchLength number of bindings shipped
+     * @param millis      time of the call
+     * @param error       1 for a failed call, 0 otherwise
+     */
+    protected void update(TargetStatistics statistics, long batchLength, long millis, int error) {
+        statistics.latency = (1 - SMOOTHING) * statistics.latency + SMOOTHING * millis;
+        statistics.payload = (1 - SMOOTHING) * statistics.payload + SMOOTHING * batchLength;
+        statistics.errorRate = (1 - SMOOTHING) * statistics.errorRate + SMOOTHING * error;
+    }
+
+    /**
+     * sets a new batch size
+     *
+     * @param target     remote target url
+     * @param statistics of the target
+     * @param size       new batch size
+     */
+    protected void adjust(String target, TargetStatistics statistics, long size) {
+        if (size != statistics.batchSize) {
+            monitor.debug(String.format("Adapting batch size of target %s from %d to %d (latency %.0f ms, payload %.0f bindings, error rate %.2f)",
+                    target, statistics.batchSize, size, statistics.latency, statistics.payload, statistics.errorRate));
+            statistics.batchSize = size;
+        }
+    }
+}
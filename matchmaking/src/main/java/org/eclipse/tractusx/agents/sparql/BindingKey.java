@@ -0,0 +1,96 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * implements a compound key over the nodes of a binding
+ * which is used to deduplicate the bindings of a batch.
+ * The components are positional (following a fixed list of variables),
+ * unbound variables are represented by null and the hash code is computed
+ * only once.
+ */
+public class BindingKey {
+
+    protected final Node[] components;
+    protected final int hashCode;
+
+    /**
+     * create a new binding key
+     *
+     * @param theComponents of the binding key
+     */
+    public BindingKey(Node[] theComponents) {
+        this.components = theComponents;
+        this.hashCode = Arrays.hashCode(theComponents);
+    }
+
+    /**
+     * create a new binding key
+     *
+     * @param binding the binding to extract the key from
+     * @param vars    the variables making up the key
+     * @return binding key
+     */
+    public static BindingKey of(Binding binding, List<Var> vars) {
+        Node[] components = new Node[vars.size()];
+        for (int position = 0; position < components.length; position++) {
+            components[position] = binding.get(vars.get(position));
+        }
+        return new BindingKey(components);
+    }
+
+    /**
+     * creates a deduplication index which will not need to rehash
+     *
+     * @param expectedSize maximal number of keys
+     * @param <V>          type of the indexed values
+     * @return pre-sized map
+     */
+    public static <V> Map<BindingKey, V> newIndex(int expectedSize) {
+        return new HashMap<>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+    }
+
+    public Node[] getComponents() {
+        return components;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BindingKey bindingKey = (BindingKey) o;
+        return hashCode == bindingKey.hashCode && Arrays.equals(components, bindingKey.components);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,272 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.op.Op1;
+import org.apache.jena.sparql.algebra.op.OpBGP;
+import org.apache.jena.sparql.algebra.op.OpConditional;
+import org.apache.jena.sparql.algebra.op.OpDiff;
+import org.apache.jena.sparql.algebra.op.OpGroup;
+import org.apache.jena.sparql.algebra.op.OpJoin;
+import org.apache.jena.sparql.algebra.op.OpLeftJoin;
+import org.apache.jena.sparql.algebra.op.OpMinus;
+import org.apache.jena.sparql.algebra.op.OpQuadPattern;
+import org.apache.jena.sparql.algebra.op.OpSequence;
+import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.algebra.op.OpSlice;
+import org.apache.jena.sparql.algebra.op.OpTable;
+import org.apache.jena.sparql.algebra.op.OpTriple;
+import org.apache.jena.sparql.algebra.op.OpUnion;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.util.Symbol;
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.rdf.RdfStore;
+import org.eclipse.tractusx.agents.service.DataspaceSynchronizer;
+import org.eclipse.tractusx.agents.utils.Monitor;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Estimates the cardinality of (parts of) query plans. Local patterns are
+ * estimated from the predicate counts which the store maintains with every
+ * change, service patterns from the result sizes observed in earlier calls.
+ */
+public class CardinalityStatistics {
+
+    /**
+     * the context key under which the statistics are handed to optimizer and executors
+     */
+    public static final Symbol STATISTICS_SYMBOL = Symbol.create("https://w3id.org/catenax/ontology/common#cardinalityStatistics");
+
+    /**
+     * estimate of operators we know nothing about
+     */
+    public static final long UNKNOWN = -1;
+
+    /**
+     * factor by which a constant subject or object reduces a predicate count
+     */
+    public static final long BOUND_SELECTIVITY = 100;
+
+    protected final RdfStore rdfStore;
+    protected final Monitor monitor;
+    protected final Map<String, ServiceStatistics> services = new ConcurrentHashMap<>();
+
+    /**
+     * observed result sizes of a service pattern
+     */
+    protected static class ServiceStatistics {
+        // rows per input binding when the input did not bind the pattern
+        protected double unbound = UNKNOWN;
+    }
+
+    /**
+     * creates new statistics
+     *
+     * @param rdfStore the local store
+     * @param config   agent config
+     * @param monitor  logging subsystem
+     */
+    public CardinalityStatistics(RdfStore rdfStore, AgentConfig config, Monitor monitor) {
+        this.rdfStore = rdfStore;
+        this.monitor = monitor;
+    }
+
+    /**
+     * estimates the number of solutions of an operator
+     *
+     * @param op operator
+     * @return estimated number of solutions or UNKNOWN
+     */
+    public long estimate(Op op) {
+        if (op instanceof OpBGP) {
+            return estimate(((OpBGP) op).getPattern().getList().iterator());
+        } else if (op instanceof OpTriple) {
+            return estimate(((OpTriple) op).getTriple());
+        } else if (op instanceof OpQuadPattern) {
+            return estimate(((OpQuadPattern) op).getPattern().getList().stream().map(Quad::asTriple).iterator());
+        } else if (op instanceof OpTable) {
+            return ((OpTable) op).getTable().size();
+        } else if (op instanceof OpService) {
+            return estimate((OpService) op);
+        } else if (op instanceof OpUnion) {
+            long left = estimate(((OpUnion) op).getLeft());
+            long right = estimate(((OpUnion) op).getRight());
+            return left == UNKNOWN || right == UNKNOWN ? UNKNOWN : left + right;
+        } else if (op instanceof OpJoin) {
+            return min(estimate(((OpJoin) op).getLeft()), estimate(((OpJoin) op).getRight()));
+        } else if (op instanceof OpSequence) {
+            long result = UNKNOWN;
+            for (Op element : ((OpSequence) op).getElements()) {
+                result = min(result, estimate(element));
+            }
+            return result;
+        } else if (op instanceof OpLeftJoin) {
+            return estimate(((OpLeftJoin) op).getLeft());
+        } else if (op instanceof OpConditional) {
+            return estimate(((OpConditional) op).getLeft());
+        } else if (op instanceof OpMinus) {
+            return estimate(((OpMinus) op).getLeft());
+        } else if (op instanceof OpDiff) {
+            return estimate(((OpDiff) op).getLeft());
+        } else if (op instanceof OpSlice) {
+            long length = ((OpSlice) op).getLength();
+            long result = estimate(((OpSlice) op).getSubOp());
+            return length < 0 ? result : min(result, length);
+        } else if (op instanceof OpGroup) {
+            return ((OpGroup) op).getGroupVars().isEmpty() ? 1 : estimate(((OpGroup) op).getSubOp());
+        } else if (op instanceof Op1) {
+            return estimate(((Op1) op).getSubOp());
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * estimates a basic graph pattern by its most selective triple
+     *
+     * @param triples of the pattern
+     * @return estimated number of solutions
+     */
+    protected long estimate(Iterator<Triple> triples) {
+        long result = UNKNOWN;
+        if (!triples.hasNext()) {
+            return 1;
+        }
+        while (triples.hasNext()) {
+            result = min(result, estimate(triples.next()));
+        }
+        return result;
+    }
+
+    /**
+     * estimates a triple pattern against the local store
+     *
+     * @param triple pattern
+     * @return estimated number of solutions
+     */
+    protected long estimate(Triple triple) {
+        Node predicate = triple.getPredicate();
+        Node object = triple.getObject();
+        long count;
+        if (!predicate.isConcrete()) {
+            // the store is only counted per predicate
+            return UNKNOWN;
+        } else if (DataspaceSynchronizer.RDF_TYPE.equals(predicate) && object.isConcrete()) {
+            count = rdfStore.getCount(predicate, object);
+            object = Node.ANY;
+        } else {
+            count = rdfStore.getCount(predicate, Node.ANY);
+        }
+        if (triple.getSubject().isConcrete()) {
+            count = Math.min(count, Math.max(1, count / BOUND_SELECTIVITY));
+        }
+        if (object.isConcrete()) {
+            count = Math.min(count, Math.max(1, count / BOUND_SELECTIVITY));
+        }
+        return count;
+    }
+
+    /**
+     * estimates a service pattern from earlier observations. Only calls whose
+     * input did not bind the pattern are comparable to the absolute counts
+     * of local patterns, so the pattern is unknown until it has run unbound.
+     *
+     * @param opService service pattern
+     * @return estimated number of solutions of an unbound call or UNKNOWN
+     */
+    protected long estimate(OpService opService) {
+        ServiceStatistics statistics = services.get(getServiceKey(opService));
+        if (statistics == null) {
+            return UNKNOWN;
+        }
+        synchronized (statistics) {
+            return statistics.unbound == UNKNOWN ? UNKNOWN : Math.round(Math.ceil(statistics.unbound));
+        }
+    }
+
+    /**
+     * records the result size of a finished service execution whose
+     * input bindings did not bind variables of the pattern
+     *
+     * @param opService the service pattern
+     * @param inputs    number of input bindings
+     * @param outputs   number of produced bindings
+     */
+    public void observe(OpService opService, long inputs, long outputs) {
+        if (inputs <= 0) {
+            return;
+        }
+        ServiceStatistics statistics = services.computeIfAbsent(getServiceKey(opService), key -> new ServiceStatistics());
+        double rows = (double) outputs / inputs;
+        synchronized (statistics) {
+            statistics.unbound = smooth(statistics.unbound, rows);
+        }
+    }
+
+    /**
+     * maintains a moving average
+     *
+     * @param average     current average or UNKNOWN
+     * @param observation latest observation
+     * @return new average
+     */
+    protected static double smooth(double average, double observation) {
+        if (average == UNKNOWN) {
+            return observation;
+        }
+        return (1 - AdaptiveBatchSize.SMOOTHING) * average + AdaptiveBatchSize.SMOOTHING * observation;
+    }
+
+    /**
+     * identifies service patterns across queries by their target and vocabulary
+     *
+     * @param opService service pattern
+     * @return key
+     */
+    protected static String getServiceKey(OpService opService) {
+        Node service = opService.getService();
+        SourceSelector.Requirements requirements = new SourceSelector.Requirements();
+        SourceSelector.collectRequirements(opService.getSubOp(), requirements);
+        return String.format("%s %s %s", service.isVariable() ? "?" : service.toString(),
+                requirements.getPredicates().stream().map(Node::toString).collect(Collectors.toCollection(TreeSet::new)),
+                requirements.getClasses().stream().map(Node::toString).collect(Collectors.toCollection(TreeSet::new)));
+    }
+
+    /**
+     * minimum of two estimates, ignoring unknown ones
+     *
+     * @param first  estimate
+     * @param second estimate
+     * @return minimum
+     */
+    protected static long min(long first, long second) {
+        if (first == UNKNOWN) {
+            return second;
+        }
+        if (second == UNKNOWN) {
+            return first;
+        }
+        return Math.min(first, second);
+    }
+}
@@ -21,6 +21,7 @@ import org.apache.jena.sparql.util.Context;
 import org.apache.jena.sparql.util.Symbol;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -42,15 +43,17 @@ public class CatenaxWarning {
     /**
      * access the thread local
      *
-     * @return current warnings or empty list
+     * @return current warnings or empty list (safe for concurrent branches)
      */
     public static List<CatenaxWarning> getOrSetWarnings(Context context) {
-        List<CatenaxWarning> result = getWarnings(context);
-        if (result == null) {
-            result = new ArrayList<>();
-            setWarnings(context, result);
+        synchronized (context) {
+            List<CatenaxWarning> result = getWarnings(context);
+            if (result == null) {
+                result = Collections.synchronizedList(new ArrayList<>());
+                setWarnings(context, result);
+            }
+            return result;
         }
-        return result;
     }
 
     /**
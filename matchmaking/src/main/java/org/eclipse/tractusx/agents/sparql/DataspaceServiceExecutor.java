@@ -20,19 +20,25 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.OkHttpClient;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.graph.Node;
-import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecException;
-import org.apache.jena.query.ResultSet;
+import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.ResultSetMgr;
 import org.apache.jena.riot.WebContent;
 import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.riot.resultset.ResultSetReaderRegistry;
 import org.apache.jena.sparql.algebra.Op;
 import org.apache.jena.sparql.algebra.OpAsQuery;
+import org.apache.jena.sparql.algebra.OpVars;
 import org.apache.jena.sparql.algebra.Transformer;
+import org.apache.jena.sparql.algebra.op.Op1;
+import org.apache.jena.sparql.algebra.op.OpDistinct;
+import org.apache.jena.sparql.algebra.op.OpLabel;
+import org.apache.jena.sparql.algebra.op.OpOrder;
 import org.apache.jena.sparql.algebra.op.OpProject;
 import org.apache.jena.sparql.algebra.op.OpSequence;
 import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.algebra.op.OpSlice;
 import org.apache.jena.sparql.algebra.op.OpTable;
 import org.apache.jena.sparql.algebra.table.TableData;
 import org.apache.jena.sparql.core.Var;
@@ -59,6 +65,7 @@ import org.apache.jena.sparql.util.Symbol;
 import org.eclipse.tractusx.agents.AgentConfig;
 import org.eclipse.tractusx.agents.AgreementController;
 import org.eclipse.tractusx.agents.http.HttpClientAdapter;
+import org.eclipse.tractusx.agents.http.HttpClientFactory;
 import org.eclipse.tractusx.agents.utils.EndpointDataReference;
 import org.eclipse.tractusx.agents.utils.Monitor;
 import org.eclipse.tractusx.agents.utils.TypeManager;
@@ -79,7 +86,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -102,8 +109,11 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
     final AgreementController agreementController;
     final AgentConfig config;
     final HttpClient client;
-    final ExecutorService executor;
+    final HttpClient h2cClient;
+    final FederationScheduler scheduler;
     final ObjectMapper objectMapper;
+    final AdaptiveBatchSize batchSizes;
+    final SourceSelector sourceSelector;
 
     /**
      * some constants
@@ -119,21 +129,38 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
     /**
      * create a new executor
      *
-     * @param monitor    logging subsystem
-     * @param controller dataspace agreement
+     * @param monitor        logging subsystem
+     * @param controller     dataspace agreement
+     * @param sourceSelector catalogue-based pruning of targets
      */
-    public DataspaceServiceExecutor(Monitor monitor, AgreementController controller, AgentConfig config, OkHttpClient client, ExecutorService executor, TypeManager typeManager) {
+    public DataspaceServiceExecutor(Monitor monitor, AgreementController controller, AgentConfig config, OkHttpClient client, FederationScheduler scheduler, TypeManager typeManager, SourceSelector sourceSelector) {
+        this(monitor, controller, config, client, scheduler, typeManager, sourceSelector, new AdaptiveBatchSize(config, monitor));
+    }
+
+    /**
+     * create a new executor
+     *
+     * @param monitor        logging subsystem
+     * @param controller     dataspace agreement
+     * @param sourceSelector catalogue-based pruning of targets
+     * @param batchSizes     batch sizes per target, shared with the branch evaluation
+     */
+    public DataspaceServiceExecutor(Monitor monitor, AgreementController controller, AgentConfig config, OkHttpClient client, FederationScheduler scheduler, TypeManager typeManager, SourceSelector sourceSelector,
+                                    AdaptiveBatchSize batchSizes) {
         this.monitor = monitor;
         this.agreementController = controller;
         this.config = config;
         this.client = new HttpClientAdapter(client);
-        this.executor = executor;
+        this.h2cClient = new HttpClientAdapter(HttpClientFactory.createH2cClient(client));
+        this.scheduler = scheduler;
         this.objectMapper = typeManager.getMapper();
+        this.batchSizes = batchSizes;
+        this.sourceSelector = sourceSelector;
     }
 
     /**
      * bulk execution call - this is the default
-     * TODO implement batch size per service and not globally
+     * a batch is shipped as soon as one of its targets has reached its adaptive batch size
      *
      * @param opService bound operator
      * @param queryIterator incoming bindings (may set service uri and input params)
@@ -146,6 +173,11 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
         Node serviceNode = opService.getService();
         Set<String> boundVars = new HashSet<>();
         long batchSize = config.getFederationServiceBatchSize();
+        SourceSelector.Requirements requirements = sourceSelector.getRequirements(opService.getSubOp());
+        // decisions are taken once per target and query execution
+        Map<String, Boolean> contributingTargets = new HashMap<>();
+        CardinalityStatistics statistics = executionContext.getContext().get(CardinalityStatistics.STATISTICS_SYMBOL);
+        Set<String> patternVars = OpVars.visibleVars(opService.getSubOp()).stream().map(Var::getVarName).collect(Collectors.toSet());
 
         //
         // returns an iterator over batches
@@ -154,6 +186,9 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
 
             // the active iterator over the current batch
             private QueryIterator batchIterator;
+            // result sizes for the cardinality statistics
+            private long inputs;
+            private long outputs;
 
             /**
              * check whether we still have something left in the current iterator
@@ -177,6 +212,7 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
                     long batchLength = 0;
                     while (this.getInput().hasNext() && batchLength++ < batchSize) {
                         Binding binding = this.getInput().next();
+                        inputs++;
                         Iterator<Var> vars = binding.vars();
                         while (vars.hasNext()) {
                             boundVars.add(vars.next().getVarName());
@@ -188,22 +224,38 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
                         }
                         if (keyNode.isURI()) {
                             String key = keyNode.getURI();
-                            if (!bindings.containsKey(key)) {
-                                bindings.put(key, new ArrayList<>());
+                            if (!contributingTargets.computeIfAbsent(key, target -> isContributing(target, requirements))) {
+                                // the target would not produce any result for this binding
+                                continue;
+                            }
+                            List<Binding> targetBindings = bindings.computeIfAbsent(key, k -> new ArrayList<>());
+                            targetBindings.add(binding);
+                            if (targetBindings.size() >= batchSizes.getBatchSize(key)) {
+                                // this target is saturated, so ship the batch
+                                break;
                             }
-                            bindings.get(key).add(binding);
                         } else {
                             monitor.warning("Omitting a call because of lacking service binding");
                         }
                     }
                     ExecutionContext ctx = this.getExecContext();
 
-                    List<Future<QueryIterator>> futureBindings = bindings.entrySet().stream().map(serviceSpec -> executor.submit(() ->
+                    // calls are scheduled fairly between queries and limited per target
+                    FederationScheduler.Batch<QueryIterator> completionService = scheduler.newBatch(ctx.getContext());
+                    List<Future<QueryIterator>> futureBindings = bindings.entrySet().stream().map(serviceSpec -> completionService.submit(serviceSpec.getKey(), () ->
                             createExecution(opService, serviceSpec.getKey(), boundVars, serviceSpec.getValue(), ctx))).collect(Collectors.toList());
 
-                    batchIterator = new QueryIterFutures(config, monitor, config.getControlPlaneManagementUrl(), config.getDefaultAsset(), serviceNode, ctx.getContext(), futureBindings);
+                    batchIterator = new QueryIterFutures(config, monitor, config.getControlPlaneManagementUrl(), config.getDefaultAsset(), serviceNode, ctx.getContext(),
+                            completionService, futureBindings);
                     return hasNextBinding();
                 } else {
+                    if (statistics != null && inputs > 0) {
+                        // bound runs are not comparable to the counts of local patterns
+                        if (boundVars.stream().noneMatch(patternVars::contains)) {
+                            statistics.observe(opService, inputs, outputs);
+                        }
+                        inputs = 0;
+                    }
                     return false;
                 }
             }
@@ -215,27 +267,105 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
              */
             @Override
             protected Binding moveToNextBinding() {
+                outputs++;
                 return batchIterator.next();
             }
 
             /**
-             * no explicit sub canceling implemented, http is stateless in this respect
+             * cancels the calls of the current batch, for example when
+             * the enclosing query has reached its limit
              */
             @Override
             protected void requestSubCancel() {
-
+                if (batchIterator != null) {
+                    batchIterator.cancel();
+                }
             }
 
             /**
-             * no explicit closing implemented, http is stateless in this respect
+             * releases the calls and results of the current batch
              */
             @Override
             protected void closeSubIterator() {
+                if (batchIterator != null) {
+                    batchIterator.close();
+                    batchIterator = null;
+                }
             }
 
         };
     }
 
+    /**
+     * checks whether a target could contribute to a service pattern
+     *
+     * @param target       the service target
+     * @param requirements of the service pattern
+     * @return whether the target should be called
+     */
+    protected boolean isContributing(String target, SourceSelector.Requirements requirements) {
+        if (sourceSelector.canContribute(target, requirements)) {
+            return true;
+        }
+        // the catalogued closed shapes guarantee an empty result, so the answer stays complete
+        monitor.debug(String.format("Skipping target %s whose catalogued shapes cannot match the service pattern", target));
+        return false;
+    }
+
+    /**
+     * joins the input bindings into the pattern sent to a remote target
+     *
+     * @param opRemote the (transformed) service pattern
+     * @param opTable  the input bindings tagged by the id variable
+     * @param idVar    the id variable
+     * @return the pattern to send
+     */
+    protected static Op bindRemote(Op opRemote, OpTable opTable, Var idVar) {
+        // modifiers pushed down from the enclosing query must apply after the binding,
+        // they are exactly the ones above the pushdown label
+        List<Op1> modifiers = new ArrayList<>();
+        OpOrder pushedOrder = null;
+        Op labelled = opRemote;
+        while (labelled instanceof OpSlice || labelled instanceof OpDistinct || labelled instanceof OpProject || labelled instanceof OpOrder) {
+            labelled = ((Op1) labelled).getSubOp();
+        }
+        if (labelled instanceof OpLabel && ServicePushdown.PUSHDOWN_LABEL.equals(((OpLabel) labelled).getObject())) {
+            List<Var> projected = null;
+            while (opRemote != labelled) {
+                if (opRemote instanceof OpProject) {
+                    projected = ((OpProject) opRemote).getVars();
+                } else if (opRemote instanceof OpOrder) {
+                    pushedOrder = (OpOrder) opRemote;
+                } else {
+                    modifiers.add((Op1) opRemote);
+                }
+                opRemote = ((Op1) opRemote).getSubOp();
+            }
+            opRemote = ((OpLabel) labelled).getSubOp();
+            opRemote = new OpProject(opRemote, projected != null ? projected : new ArrayList<>(OpVars.visibleVars(opRemote)));
+        }
+
+        Op remote;
+
+        // do we have a "sub-select", then we smuggle our binding into it
+        if (opRemote instanceof OpProject) {
+            OpProject opRemoteProject = (OpProject) opRemote;
+            Op join = OpSequence.create(opTable, opRemoteProject.getSubOp());
+            if (pushedOrder != null) {
+                join = pushedOrder.copy(join);
+            }
+            List<Var> resultVars = new ArrayList<>(opRemoteProject.getVars());
+            resultVars.add(idVar);
+            remote = new OpProject(join, resultVars);
+        } else {
+            remote = OpSequence.create(opTable, opRemote);
+        }
+        for (int position = modifiers.size() - 1; position >= 0; position--) {
+            remote = modifiers.get(position).copy(remote);
+        }
+        return remote;
+    }
+
     /**
      * single execution mode - this is not used anymore - batch mode is default
      *
@@ -277,6 +407,8 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
      */
     public QueryIterator createExecution(OpService opOriginal, String serviceUrl, Set<String> boundVars, List<Binding> bindings, ExecutionContext execCxt) {
         Context context = execCxt.getContext();
+        // the batch size is adapted per logical target (and not per data plane endpoint)
+        final String batchTarget = serviceUrl;
 
         // we have to only check outgoing URLs which have not already been checked
         String targetUrl = context.get(DataspaceServiceExecutor.TARGET_URL_SYMBOL);
@@ -296,6 +428,10 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
 
         boolean silent = opOriginal.getSilent();
 
+        // credentials handed in by the caller, replaced by those of a negotiated endpoint
+        String authKey = context.get(AUTH_KEY_SYMBOL);
+        String authCode = context.get(AUTH_CODE_SYMBOL);
+
         // derive the asset type from the service URL, if possible
         // otherwise we will get it from the endpoint address after a ngotiation
         String assetType = serviceUrl.contains("Skill") ? "cx-common:SkillAsset" : serviceUrl.contains("Graph") ? "cx-common:GraphAsset" : "cx-common:Asset";
@@ -356,15 +492,20 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
             if (edcMatcher.group("params") != null) {
                 serviceUrl = serviceUrl + "?" + edcMatcher.group("params");
             }
-            Map<String, Map<String, List<String>>> allServiceParams = context.get(Service.serviceParams);
-            if (allServiceParams == null) {
-                allServiceParams = new HashMap<>();
-                context.put(Service.serviceParams, allServiceParams);
+            // the context is shared by concurrently evaluated branches
+            Map<String, Map<String, List<String>>> allServiceParams;
+            synchronized (context) {
+                allServiceParams = context.get(Service.serviceParams);
+                if (allServiceParams == null) {
+                    allServiceParams = new ConcurrentHashMap<>();
+                    context.put(Service.serviceParams, allServiceParams);
+                }
             }
-            Map<String, List<String>> serviceParams = allServiceParams.computeIfAbsent(serviceUrl, k -> new HashMap<>());
-            serviceParams.put("cx_accept", List.of("application/json"));
-            execCxt.getContext().put(AUTH_KEY_SYMBOL, endpoint.getAuthKey());
-            execCxt.getContext().put(AUTH_CODE_SYMBOL, endpoint.getAuthCode());
+            Map<String, List<String>> serviceParams = allServiceParams.computeIfAbsent(serviceUrl, k -> new ConcurrentHashMap<>());
+            serviceParams.put("cx_accept", List.of(config.getFederationAcceptHeader()));
+            // the endpoint credentials are only valid for this call
+            authKey = endpoint.getAuthKey();
+            authCode = endpoint.getAuthCode();
         } else {
             monitor.info(String.format("About to execute http target %s without dataspace", serviceUrl));
         }
@@ -381,52 +522,34 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
                 VariableDetector vd = new VariableDetector(boundVars);
                 opRemote = NodeTransformLib.transform(vd, opRemote);
                 List<Var> neededVars = vd.getVariables();
-                Map<String, Binding> resultingBindings = new HashMap<>();
-                Map<Node, List<Binding>> newBindings = new HashMap<>();
+                Map<BindingKey, Integer> groupIndex = BindingKey.newIndex(bindings.size());
+                List<Binding> resultingBindings = new ArrayList<>();
+                List<List<Binding>> newBindings = new ArrayList<>();
                 for (Binding originalBinding : bindings) {
-                    StringBuilder keyBuilder = new StringBuilder();
-                    BindingBuilder bb = BindingBuilder.create();
-                    for (Var neededVar : neededVars) {
-                        Node node = originalBinding.get(neededVar);
-                        keyBuilder.append(neededVar.getVarName());
-                        keyBuilder.append("#");
-                        keyBuilder.append(node.toString());
-                        bb.add(neededVar, node);
-                    }
-                    String key = keyBuilder.toString();
-                    Node keyNode;
-                    if (resultingBindings.containsKey(key)) {
-                        Binding existingBinding = resultingBindings.get(key);
-                        keyNode = existingBinding.get(idVar);
-                    } else {
-                        keyNode = NodeFactory.createLiteral(String.valueOf(resultingBindings.size()));
-                        bb.add(idVar, keyNode);
-                        newBindings.put(keyNode, new ArrayList<>());
-                        Binding newBinding = bb.build();
-                        //bb = BindingBuilder.create(newBinding);
-                        resultingBindings.put(key, newBinding);
+                    BindingKey key = BindingKey.of(originalBinding, neededVars);
+                    Integer index = groupIndex.get(key);
+                    if (index == null) {
+                        index = newBindings.size();
+                        BindingBuilder bb = BindingBuilder.create();
+                        Node[] nodes = key.getComponents();
+                        for (int position = 0; position < nodes.length; position++) {
+                            if (nodes[position] != null) {
+                                bb.add(neededVars.get(position), nodes[position]);
+                            }
+                        }
+                        bb.add(idVar, QueryIterJoin.createId(index));
+                        resultingBindings.add(bb.build());
+                        newBindings.add(new ArrayList<>());
+                        groupIndex.put(key, index);
                     }
-                    final BindingBuilder bb2 = BindingBuilder.create(originalBinding);
-                    bb2.set(idVar, keyNode);
-                    newBindings.get(keyNode).add(bb2.build());
+                    newBindings.get(index).add(originalBinding);
                 }
                 neededVars.add(idVar);
-                TableData table = new TableData(neededVars, new ArrayList<>(resultingBindings.values()));
+                TableData table = new TableData(neededVars, resultingBindings);
                 OpTable opTable = OpTable.create(table);
 
-                Query query;
-
-                // do we have a "sub-select", then we smuggle our binding into it
-                if (opRemote instanceof OpProject) {
-                    OpProject opRemoteProject = (OpProject) opRemote;
-                    Op join = OpSequence.create(opTable, opRemoteProject.getSubOp());
-                    List<Var> resultVars = opRemoteProject.getVars();
-                    resultVars.add(idVar);
-                    query = OpAsQuery.asQuery(new OpProject(join, resultVars));
-                } else {
-                    Op join = OpSequence.create(opTable, opRemote);
-                    query = OpAsQuery.asQuery(join);
-                }
+                Op remote = bindRemote(opRemote, opTable, idVar);
+                Query query = OpAsQuery.asQuery(remote);
 
                 monitor.debug(String.format("Prepared target %s for query %s", serviceUrl, query));
 
@@ -451,21 +574,40 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
                         .httpClient(httpClient)
                         .objectMapper(objectMapper)
                         .agentConfig(config)
+                        .acceptHeader(config.getFederationAcceptHeader())
                         .sendMode(querySendMode);
 
-                if (context.isDefined(AUTH_KEY_SYMBOL)) {
-                    String authKeyProp = context.get(AUTH_KEY_SYMBOL);
-                    monitor.debug(String.format("About to use authentication header %s on http target %s", authKeyProp, serviceUrl));
-                    String authCodeProp = context.get(AUTH_CODE_SYMBOL);
-                    queryExecutorBuilder = queryExecutorBuilder.httpHeader(authKeyProp, authCodeProp);
+                if (authKey != null) {
+                    monitor.debug(String.format("About to use authentication header %s on http target %s", authKey, serviceUrl));
+                    queryExecutorBuilder = queryExecutorBuilder.httpHeader(authKey, authCode);
                 }
 
-                try (QueryExecutor qExec = queryExecutorBuilder.build()) {
-                    // Detach from the network stream.
-                    RowSet rowSet = qExec.select().materialize();
-                    QueryIterator queryIterator = QueryIterPlainWrapper.create(rowSet);
+                // identical calls within the same query are answered from the memo
+                ServiceMemo memo = ServiceMemo.getMemo(context);
+                String memoKey = memo != null ? ServiceMemo.getKey(serviceUrl, query.toString()) : null;
+                QueryIterator memoized = fromMemo(memo, memoKey, serviceUrl, newBindings, idVar, execCxt);
+                if (memoized != null) {
+                    return memoized;
+                }
+
+                // Stay attached to the network stream, the executor
+                // is closed together with the resulting iterator
+                QueryExecutor qExec = queryExecutorBuilder.build();
+                long start = System.currentTimeMillis();
+                try {
+                    RowSet rowSet = qExec.select();
+                    // the batch size is judged by the time until the complete result has been read
+                    QueryIterator queryIterator = new QueryIterRowSet(rowSet, qExec,
+                            failure -> recordOutcome(batchTarget, bindings.size(), start, failure));
+                    if (memo != null) {
+                        queryIterator = memo.record(memoKey, rowSet.getResultVars(), queryIterator);
+                    }
                     queryIterator = QueryIter.makeTracked(queryIterator, execCxt);
-                    return new QueryIterJoin(queryIterator, newBindings, idVar, execCxt);
+                    return new QueryIterJoin(queryIterator, newBindings, idVar, rowSet.getResultVars(), execCxt);
+                } catch (RuntimeException ex) {
+                    batchSizes.failure(batchTarget, bindings.size(), System.currentTimeMillis() - start);
+                    qExec.close();
+                    throw ex;
                 }
             } catch (RuntimeException ex) {
                 if (silent) {
@@ -499,68 +641,93 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
                 vars.add(bindingVarName);
                 neededVars.forEach((key1, value) -> vars.add(key1));
                 parameterSet.setVarNames(vars);
-                Map<String, Binding> resultingBindings = new HashMap<>();
-                Map<Node, List<Binding>> newBindings = new HashMap<>();
+                // compute the parameter layout only once per batch
+                Var[] parameterVars = new Var[neededVars.size()];
+                Node[] parameterSources = new Node[neededVars.size()];
+                int parameterCount = 0;
+                for (Map.Entry<String, Node> neededVar : neededVars.entrySet()) {
+                    parameterVars[parameterCount] = Var.alloc(neededVar.getKey());
+                    parameterSources[parameterCount++] = neededVar.getValue();
+                }
+                Map<BindingKey, Integer> groupIndex = BindingKey.newIndex(bindings.size());
+                List<List<Binding>> newBindings = new ArrayList<>();
                 for (Binding originalBinding : bindings) {
-                    StringBuilder keyBuilder = new StringBuilder();
-                    BindingBuilder bb = BindingBuilder.create();
-                    for (Map.Entry<String, Node> neededVar : neededVars.entrySet()) {
-                        Node node = neededVar.getValue();
+                    Node[] nodes = new Node[parameterCount];
+                    for (int position = 0; position < parameterCount; position++) {
+                        Node node = parameterSources[position];
                         if (node.isVariable()) {
                             node = originalBinding.get((Var) node);
                         }
-                        if (node != null) {
-                            keyBuilder.append(neededVar.getKey());
-                            keyBuilder.append("#");
-                            keyBuilder.append(node);
-                            bb.add(Var.alloc(neededVar.getKey()), node);
-                        }
+                        nodes[position] = node;
                     }
-                    String key = keyBuilder.toString();
-                    Node keyNode;
-                    if (resultingBindings.containsKey(key)) {
-                        Binding existingBinding = resultingBindings.get(key);
-                        keyNode = existingBinding.get(idVar);
-                    } else {
-                        keyNode = NodeFactory.createLiteral(String.valueOf(resultingBindings.size()));
-                        bb.add(idVar, keyNode);
-                        newBindings.put(keyNode, new ArrayList<>());
-                        Binding newBinding = bb.build();
-                        //bb=BindingBuilder.create(newBinding);
-                        resultingBindings.put(key, newBinding);
+                    BindingKey key = new BindingKey(nodes);
+                    Integer index = groupIndex.get(key);
+                    if (index == null) {
+                        index = newBindings.size();
+                        BindingBuilder bb = BindingBuilder.create();
+                        for (int position = 0; position < parameterCount; position++) {
+                            if (nodes[position] != null) {
+                                bb.add(parameterVars[position], nodes[position]);
+                            }
+                        }
+                        bb.add(idVar, QueryIterJoin.createId(index));
+                        parameterSet.getRows().add(bb.build());
+                        newBindings.add(new ArrayList<>());
+                        groupIndex.put(key, index);
                     }
-                    final BindingBuilder bb2 = BindingBuilder.create(originalBinding);
-                    bb2.set(idVar, keyNode);
-                    newBindings.get(keyNode).add(bb2.build());
+                    newBindings.get(index).add(originalBinding);
                 }
-                parameterSet.getRows().addAll(resultingBindings.values());
                 parameterSet.reset();
                 long timeoutMillis = config.getReadTimeout();
                 HttpClient httpClient = chooseHttpClient(serviceUrl, context);
 
                 String bindingSet = ResultSetMgr.asString(parameterSet, ResultSetLang.RS_JSON);
+                ServiceMemo memo = ServiceMemo.getMemo(context);
+                String memoKey = memo != null ? ServiceMemo.getKey(serviceUrl, bindingSet) : null;
+                QueryIterator memoized = fromMemo(memo, memoKey, serviceUrl, newBindings, idVar, execCxt);
+                if (memoized != null) {
+                    return memoized;
+                }
                 HttpRequest.Builder skillRequest = HttpRequest.newBuilder()
                         .uri(new URI(serviceUrl))
                         .header("Content-Type", WebContent.contentTypeResultsJSON)
                         .timeout(Duration.ofMillis(timeoutMillis))
-                        .header("Accept", WebContent.contentTypeResultsJSON)
+                        .header("Accept", config.getFederationAcceptHeader())
                         .POST(HttpRequest.BodyPublishers.ofString(bindingSet));
 
-                if (context.isDefined(AUTH_KEY_SYMBOL)) {
-                    String authKeyProp = context.get(AUTH_KEY_SYMBOL);
-                    monitor.debug(String.format("About to use authentication header %s on http target %s", authKeyProp, serviceUrl));
-                    String authCodeProp = context.get(AUTH_CODE_SYMBOL);
-                    skillRequest = skillRequest.header(authKeyProp, authCodeProp);
+                if (authKey != null) {
+                    monitor.debug(String.format("About to use authentication header %s on http target %s", authKey, serviceUrl));
+                    skillRequest = skillRequest.header(authKey, authCode);
                 }
 
-                HttpResponse<InputStream> remoteCall = httpClient.send(skillRequest.build(), HttpResponse.BodyHandlers.ofInputStream());
+                long start = System.currentTimeMillis();
+                HttpResponse<InputStream> remoteCall;
+                try {
+                    remoteCall = httpClient.send(skillRequest.build(), HttpResponse.BodyHandlers.ofInputStream());
+                } catch (IOException ex) {
+                    batchSizes.failure(batchTarget, bindings.size(), System.currentTimeMillis() - start);
+                    throw ex;
+                }
                 if (remoteCall.statusCode() >= 200 && remoteCall.statusCode() < 300) {
-                    ResultSet result = ResultSetMgr.read(remoteCall.body(), ResultSetLang.RS_JSON);
-                    RowSet rowSet = new RowSetAdapter(result);
-                    QueryIterator queryIterator = QueryIterPlainWrapper.create(rowSet);
+                    InputStream remoteBody = remoteCall.body();
+                    RowSet rowSet;
+                    try {
+                        rowSet = new RowSetAdapter(ResultSetMgr.read(remoteBody, getResultLang(remoteCall)));
+                    } catch (RuntimeException ex) {
+                        batchSizes.failure(batchTarget, bindings.size(), System.currentTimeMillis() - start);
+                        remoteBody.close();
+                        throw ex;
+                    }
+                    // the batch size is judged by the time until the complete result has been read
+                    QueryIterator queryIterator = new QueryIterRowSet(rowSet, remoteBody,
+                            failure -> recordOutcome(batchTarget, bindings.size(), start, failure));
+                    if (memo != null) {
+                        queryIterator = memo.record(memoKey, rowSet.getResultVars(), queryIterator);
+                    }
                     queryIterator = QueryIter.makeTracked(queryIterator, execCxt);
-                    return new QueryIterJoin(queryIterator, newBindings, idVar, execCxt);
+                    return new QueryIterJoin(queryIterator, newBindings, idVar, rowSet.getResultVars(), execCxt);
                 } else {
+                    batchSizes.failure(batchTarget, bindings.size(), System.currentTimeMillis() - start);
                     Log.warn(this, "SERVICE " + serviceUrl + " resulted in status code " + remoteCall.statusCode());
                     remoteCall.body().close();
                     // Return the input
@@ -577,6 +744,72 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
         }
     }
 
+    /**
+     * feeds the outcome of a call into the adaptive batch size of its target
+     *
+     * @param target      the remote target
+     * @param batchLength number of bindings shipped
+     * @param start       time when the call was issued
+     * @param failure     the failure while reading the result, null if it has been read completely
+     */
+    protected void recordOutcome(String target, long batchLength, long start, RuntimeException failure) {
+        long millis = System.currentTimeMillis() - start;
+        if (failure == null) {
+            batchSizes.success(target, batchLength, millis);
+        } else {
+            batchSizes.failure(target, batchLength, millis);
+        }
+    }
+
+    /**
+     * answers a call from the memo of the query
+     *
+     * @param memo        memo of the query, may be null
+     * @param key         key of the call
+     * @param serviceUrl  the target of the call
+     * @param newBindings the original bindings per binding id
+     * @param idVar       the binding id variable
+     * @param execCxt     the execution context
+     * @return joined result, null if the call has not been memoized
+     */
+    protected QueryIterator fromMemo(ServiceMemo memo, String key, String serviceUrl, List<List<Binding>> newBindings, Var idVar, ExecutionContext execCxt) {
+        if (memo == null) {
+            return null;
+        }
+        ServiceMemo.Entry entry = memo.lookup(key);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            QueryIterator queryIterator = QueryIter.makeTracked(entry.open(), execCxt);
+            monitor.debug(String.format("Answered call to %s from the memo", serviceUrl));
+            return new QueryIterJoin(queryIterator, newBindings, idVar, entry.getVars(), execCxt);
+        } catch (IOException e) {
+            monitor.warning(String.format("Could not read memoized result of %s, calling again", serviceUrl), e);
+            return null;
+        }
+    }
+
+    /**
+     * determines the result set format of a remote response,
+     * agents which do not negotiate answer with json
+     *
+     * @param response remote response
+     * @return result set language
+     */
+    protected static Lang getResultLang(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse(WebContent.contentTypeResultsJSON);
+        int charsetIndex = contentType.indexOf(';');
+        if (charsetIndex >= 0) {
+            contentType = contentType.substring(0, charsetIndex);
+        }
+        Lang lang = WebContent.contentTypeToLangResultSet(contentType.trim());
+        if (lang == null || !ResultSetReaderRegistry.isRegistered(lang)) {
+            return ResultSetLang.RS_JSON;
+        }
+        return lang;
+    }
+
     /**
      * choose an appropriate client
      *
@@ -588,6 +821,10 @@ public class DataspaceServiceExecutor implements ServiceExecutor, ChainingServic
         if (context == null) {
             monitor.warning(String.format("Context is null when obtaining http client for %s", serviceUrl));
         }
+        // cleartext http/2 is only available for in-cluster agents without tls
+        if (serviceUrl.startsWith("http://") && config.getHttpH2cPattern().matcher(serviceUrl).matches()) {
+            return h2cClient;
+        }
         return client;
     }
 
@@ -0,0 +1,329 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QueryExecException;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVisitor;
+import org.apache.jena.sparql.algebra.OpVisitorBase;
+import org.apache.jena.sparql.algebra.OpWalker;
+import org.apache.jena.sparql.algebra.op.Op1;
+import org.apache.jena.sparql.algebra.op.Op2;
+import org.apache.jena.sparql.algebra.op.OpGroup;
+import org.apache.jena.sparql.algebra.op.OpJoin;
+import org.apache.jena.sparql.algebra.op.OpN;
+import org.apache.jena.sparql.algebra.op.OpProject;
+import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.algebra.op.OpSlice;
+import org.apache.jena.sparql.algebra.op.OpTopN;
+import org.apache.jena.sparql.algebra.op.OpUnion;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.iterator.QueryIterRepeatApply;
+import org.apache.jena.sparql.engine.main.QC;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.tdb2.solver.OpExecutorTDB2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * An operator executor which evaluates the branches of unions and of
+ * non-correlated joins concurrently if they consist of service calls only.
+ * Such branches do not touch the local store (and hence need no
+ * transaction), their calls are still scheduled by the federation scheduler.
+ * Results are streamed rather than collected per branch. All other operators
+ * are executed as usual (using the TDB2 executor for persistent stores).
+ */
+public class FederatedOpExecutor extends OpExecutorTDB2 {
+
+    /**
+     * tags the input bindings of a join such that both sides can be evaluated in batches
+     */
+    public static final Var JOIN_ID = Var.alloc("cx_join_id");
+
+    protected final ExecutorService branchExecutor;
+    protected final AdaptiveBatchSize batchSizes;
+
+    /**
+     * creates a new executor
+     *
+     * @param execCxt        execution context
+     * @param branchExecutor threads evaluating the branches
+     * @param batchSizes     batch sizes per target which determine the chunks fed to the branches
+     */
+    protected FederatedOpExecutor(ExecutionContext execCxt, ExecutorService branchExecutor, AdaptiveBatchSize batchSizes) {
+        super(execCxt);
+        this.branchExecutor = branchExecutor;
+        this.batchSizes = batchSizes;
+    }
+
+    /**
+     * evaluates the branches of a union of service calls concurrently,
+     * each of them against a chunk of the input bindings at a time
+     *
+     * @param opUnion union operator
+     * @param input   input bindings
+     * @return merged results of all branches
+     */
+    @Override
+    protected QueryIterator execute(OpUnion opUnion, QueryIterator input) {
+        List<Op> branches = new ArrayList<>();
+        flattenUnion(opUnion, branches);
+        if (branches.stream().filter(OptimizeJoinStrategy::hasService).count() < 2 || !branches.stream().allMatch(OptimizeJoinStrategy::isRemote)) {
+            return super.execute(opUnion, input);
+        }
+        // the input may depend on the local store and is shared by all branches, so it is read here chunk by chunk
+        return new QueryIterChunks(input, getChunkSize(branches), execCxt) {
+            @Override
+            protected QueryIterator nextChunk(List<Binding> chunk) {
+                List<Supplier<QueryIterator>> suppliers = new ArrayList<>();
+                for (Op branch : branches) {
+                    suppliers.add(() -> evaluate(branch, chunk));
+                }
+                return new QueryIterBranches(branchExecutor, suppliers);
+            }
+        };
+    }
+
+    /**
+     * evaluates both sides of a join of independent service calls
+     * concurrently. Both sides see a chunk of the input bindings at once
+     * (and hence call their services in batches): the right side is indexed
+     * by the input binding it belongs to while the left side is streamed and
+     * merged lazily.
+     *
+     * @param opJoin join operator
+     * @param input  input bindings
+     * @return joined results
+     */
+    @Override
+    protected QueryIterator execute(OpJoin opJoin, QueryIterator input) {
+        Op left = opJoin.getLeft();
+        Op right = opJoin.getRight();
+        if (!OptimizeJoinStrategy.isIndependent(left, right) || !keepsBindings(left) || !keepsBindings(right)) {
+            return super.execute(opJoin, input);
+        }
+        return new QueryIterChunks(input, getChunkSize(List.of(left, right)), execCxt) {
+            @Override
+            protected QueryIterator nextChunk(List<Binding> chunk) {
+                return join(left, right, chunk);
+            }
+        };
+    }
+
+    /**
+     * joins both sides for a chunk of input bindings
+     *
+     * @param left   left operator, streamed
+     * @param right  right operator, indexed
+     * @param chunk  input bindings
+     * @return joined results
+     */
+    protected QueryIterator join(Op left, Op right, List<Binding> chunk) {
+        List<Binding> inputs = new ArrayList<>(chunk.size());
+        long id = 0;
+        for (Binding binding : chunk) {
+            inputs.add(BindingFactory.binding(binding, JOIN_ID, NodeValue.makeInteger(id++).asNode()));
+        }
+        Supplier<Map<Node, List<Binding>>> index = () -> {
+            Map<Node, List<Binding>> result = new HashMap<>();
+            QueryIterator iterator = evaluate(right, inputs);
+            try {
+                iterator.forEachRemaining(binding -> result.computeIfAbsent(binding.get(JOIN_ID), key -> new ArrayList<>()).add(binding));
+            } finally {
+                iterator.close();
+            }
+            return result;
+        };
+        Future<Map<Node, List<Binding>>> rightFuture;
+        try {
+            rightFuture = branchExecutor.submit(index::get);
+        } catch (RejectedExecutionException e) {
+            // no thread left, so the right side is evaluated by the consumer
+            rightFuture = null;
+        }
+        Future<Map<Node, List<Binding>>> future = rightFuture;
+        return new QueryIterRepeatApply(evaluate(left, inputs), execCxt) {
+
+            private Map<Node, List<Binding>> rightIndex;
+
+            @Override
+            protected QueryIterator nextStage(Binding leftBinding) {
+                if (rightIndex == null) {
+                    rightIndex = future != null ? get(future) : index.get();
+                }
+                List<Binding> rightBindings = rightIndex.getOrDefault(leftBinding.get(JOIN_ID), List.of());
+                Iterator<Binding> merged = rightBindings.stream()
+                        .map(rightBinding -> Algebra.merge(leftBinding, rightBinding))
+                        .filter(Objects::nonNull)
+                        .map(FederatedOpExecutor::withoutJoinId)
+                        .iterator();
+                return QueryIterPlainWrapper.create(merged, getExecContext());
+            }
+
+            @Override
+            protected void requestSubCancel() {
+                super.requestSubCancel();
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+
+            @Override
+            protected void closeSubIterator() {
+                super.closeSubIterator();
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        };
+    }
+
+    /**
+     * determines how many input bindings are fed to the branches at once
+     *
+     * @param branches the operators to evaluate
+     * @return the smallest batch size of the (constant) service targets of the branches
+     */
+    protected long getChunkSize(List<Op> branches) {
+        Set<String> targets = new HashSet<>();
+        OpVisitor collector = new OpVisitorBase() {
+            @Override
+            public void visit(OpService opService) {
+                if (opService.getService().isURI()) {
+                    targets.add(opService.getService().getURI());
+                }
+            }
+        };
+        branches.forEach(branch -> OpWalker.walk(branch, collector));
+        return Math.max(1, batchSizes.getBatchSize(targets));
+    }
+
+    /**
+     * evaluates a branch, the resulting iterator may be consumed by another thread
+     *
+     * @param branch the operator
+     * @param inputs input bindings
+     * @return iterator over the resulting bindings
+     */
+    protected QueryIterator evaluate(Op branch, List<Binding> inputs) {
+        // each branch tracks its own iterators, but shares the query context and its cancel signal
+        ExecutionContext branchCxt = new ExecutionContext(execCxt.getContext(), execCxt.getActiveGraph(), execCxt.getDataset(), execCxt.getExecutor());
+        return QC.execute(branch, QueryIterPlainWrapper.create(inputs.iterator(), branchCxt), branchCxt);
+    }
+
+    /**
+     * waits for the right side of a join
+     *
+     * @param future the evaluation of the right side
+     * @return indexed right bindings
+     * @throws QueryCancelledException if the waiting thread is interrupted
+     * @throws QueryExecException      if the evaluation failed
+     */
+    protected static Map<Node, List<Binding>> get(Future<Map<Node, List<Binding>>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new QueryCancelledException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new QueryExecException("Failure evaluating a federated branch.", e.getCause());
+        }
+    }
+
+    /**
+     * removes the join tag from a binding
+     *
+     * @param binding tagged binding
+     * @return binding without tag
+     */
+    protected static Binding withoutJoinId(Binding binding) {
+        BindingBuilder builder = BindingBuilder.create();
+        binding.forEach((var, node) -> {
+            if (!JOIN_ID.equals(var)) {
+                builder.add(var, node);
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * checks whether an operator passes the input bindings (and hence the
+     * join tag) through to its results outside of service calls, so that
+     * it may be evaluated against all inputs at once
+     *
+     * @param op operator
+     * @return false if some projection, aggregation or slice would drop or mix the inputs
+     */
+    protected static boolean keepsBindings(Op op) {
+        if (op instanceof OpService) {
+            return true;
+        }
+        if (op instanceof OpProject || op instanceof OpGroup || op instanceof OpSlice || op instanceof OpTopN) {
+            return false;
+        }
+        if (op instanceof Op1) {
+            return keepsBindings(((Op1) op).getSubOp());
+        }
+        if (op instanceof Op2) {
+            return keepsBindings(((Op2) op).getLeft()) && keepsBindings(((Op2) op).getRight());
+        }
+        if (op instanceof OpN) {
+            return ((OpN) op).getElements().stream().allMatch(FederatedOpExecutor::keepsBindings);
+        }
+        return true;
+    }
+
+    /**
+     * collects the branches of nested unions
+     *
+     * @param op       current operator
+     * @param branches to add to
+     */
+    protected static void flattenUnion(Op op, List<Op> branches) {
+        if (op instanceof OpUnion) {
+            flattenUnion(((OpUnion) op).getLeft(), branches);
+            flattenUnion(((OpUnion) op).getRight(), branches);
+        } else {
+            branches.add(op);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.main.OpExecutor;
+import org.apache.jena.sparql.engine.main.OpExecutorFactory;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * a factory for operator executors which evaluate independent service branches concurrently
+ */
+public class FederatedOpExecutorFactory implements OpExecutorFactory {
+
+    protected final ExecutorService branchExecutor;
+    protected final AdaptiveBatchSize batchSizes;
+
+    /**
+     * creates a new factory
+     *
+     * @param branchExecutor threads evaluating the branches
+     * @param batchSizes     batch sizes per target which determine the chunks fed to the branches
+     */
+    public FederatedOpExecutorFactory(ExecutorService branchExecutor, AdaptiveBatchSize batchSizes) {
+        this.branchExecutor = branchExecutor;
+        this.batchSizes = batchSizes;
+    }
+
+    @Override
+    public OpExecutor create(ExecutionContext execCxt) {
+        return new FederatedOpExecutor(execCxt, branchExecutor, batchSizes);
+    }
+}
@@ -0,0 +1,323 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.utils.Monitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A dedicated scheduler for federated service calls.
+ * - a fixed set of worker threads which is not shared with synchronization or negotiation
+ * - at most a configured number of concurrent calls per target
+ * - a bounded queue whose submitters are blocked when it is full (backpressure)
+ * - round-robin between the queries which have pending calls
+ */
+public class FederationScheduler {
+
+    /**
+     * a pending call
+     */
+    protected static class Task {
+        protected final String target;
+        protected final Runnable runnable;
+
+        protected Task(String target, Runnable runnable) {
+            this.target = target;
+            this.runnable = runnable;
+        }
+    }
+
+    /**
+     * time in milliseconds to wait for each worker when shutting down
+     */
+    public static final long JOIN_TIMEOUT = 5000;
+
+    protected final Monitor monitor;
+    protected final int threads;
+    protected final int targetLimit;
+    protected final int queueDepth;
+    protected final long queueTimeout;
+
+    protected final Object lock = new Object();
+    // insertion order is the round-robin order
+    protected final LinkedHashMap<Object, Deque<Task>> queries = new LinkedHashMap<>();
+    protected final Map<String, Integer> running = new HashMap<>();
+    protected final List<Thread> workers = new ArrayList<>();
+    protected int queued;
+    protected boolean stopped;
+
+    /**
+     * creates a new scheduler
+     *
+     * @param config  agent config
+     * @param monitor logging subsystem
+     */
+    public FederationScheduler(AgentConfig config, Monitor monitor) {
+        this.monitor = monitor;
+        this.threads = Math.max(1, config.getFederationThreads());
+        this.targetLimit = Math.max(1, config.getFederationTargetLimit());
+        this.queueDepth = Math.max(1, config.getFederationQueueDepth());
+        this.queueTimeout = config.getReadTimeout();
+    }
+
+    /**
+     * starts the worker threads, workers which are still alive from a previous start are kept
+     */
+    public void start() {
+        synchronized (lock) {
+            stopped = false;
+            for (int count = 0; count < threads; count++) {
+                if (count < workers.size() && workers.get(count).isAlive()) {
+                    continue;
+                }
+                Thread worker = new Thread(this::work, String.format("federation-%d", count));
+                worker.setDaemon(true);
+                if (count < workers.size()) {
+                    workers.set(count, worker);
+                } else {
+                    workers.add(worker);
+                }
+                worker.start();
+            }
+        }
+        monitor.info(String.format("Started federation scheduler with %d threads, %d calls per target and a queue of %d.", threads, targetLimit, queueDepth));
+    }
+
+    /**
+     * stops the worker threads, pending calls are cancelled and running calls are interrupted
+     */
+    public void shutdown() {
+        List<Thread> stopping;
+        synchronized (lock) {
+            stopped = true;
+            for (Deque<Task> tasks : queries.values()) {
+                for (Task task : tasks) {
+                    if (task.runnable instanceof Future) {
+                        ((Future<?>) task.runnable).cancel(false);
+                    }
+                }
+            }
+            queries.clear();
+            queued = 0;
+            lock.notifyAll();
+            stopping = new ArrayList<>(workers);
+        }
+        stopping.forEach(Thread::interrupt);
+        try {
+            for (Thread worker : stopping) {
+                worker.join(JOIN_TIMEOUT);
+                if (worker.isAlive()) {
+                    monitor.warning(String.format("Federation worker %s did not stop within %d ms.", worker.getName(), JOIN_TIMEOUT));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        monitor.info("Stopped federation scheduler.");
+    }
+
+    /**
+     * schedules a call, blocks if the queue is full
+     *
+     * @param query    identity of the calling query
+     * @param target   the remote target
+     * @param runnable the call
+     * @throws RejectedExecutionException if the scheduler is stopped or the queue did not drain in time
+     */
+    public void execute(Object query, String target, Runnable runnable) {
+        synchronized (lock) {
+            long deadline = System.currentTimeMillis() + queueTimeout;
+            try {
+                while (!stopped && queued >= queueDepth) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new RejectedExecutionException(String.format("Federation queue for target %s did not drain within %d ms.", target, queueTimeout));
+                    }
+                    lock.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for the federation queue.", e);
+            }
+            if (stopped) {
+                throw new RejectedExecutionException("Federation scheduler has been stopped.");
+            }
+            queries.computeIfAbsent(query, key -> new ArrayDeque<>()).add(new Task(target, runnable));
+            queued++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * picks the next call of the next query whose target has capacity left
+     *
+     * @return next call, null if the scheduler has been stopped
+     * @throws InterruptedException if the worker is interrupted
+     */
+    protected Task next() throws InterruptedException {
+        synchronized (lock) {
+            while (!stopped) {
+                for (Iterator<Map.Entry<Object, Deque<Task>>> entries = queries.entrySet().iterator(); entries.hasNext(); ) {
+                    Map.Entry<Object, Deque<Task>> entry = entries.next();
+                    for (Iterator<Task> tasks = entry.getValue().iterator(); tasks.hasNext(); ) {
+                        Task task = tasks.next();
+                        if (running.getOrDefault(task.target, 0) < targetLimit) {
+                            tasks.remove();
+                            entries.remove();
+                            if (!entry.getValue().isEmpty()) {
+                                // move the query to the end of the round
+                                queries.put(entry.getKey(), entry.getValue());
+                            }
+                            running.merge(task.target, 1, Integer::sum);
+                            queued--;
+                            lock.notifyAll();
+                            return task;
+                        }
+                    }
+                }
+                lock.wait();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * releases the target capacity of a call
+     *
+     * @param task the finished call
+     */
+    protected void finished(Task task) {
+        synchronized (lock) {
+            running.computeIfPresent(task.target, (key, count) -> count > 1 ? count - 1 : null);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * worker loop
+     */
+    protected void work() {
+        try {
+            for (Task task = next(); task != null; task = next()) {
+                try {
+                    task.runnable.run();
+                } catch (RuntimeException e) {
+                    monitor.warning(String.format("Federated call to %s failed.", task.target), e);
+                } finally {
+                    finished(task);
+                    // a cancelled call may have interrupted the worker, only shutdown should stop it
+                    synchronized (lock) {
+                        if (!stopped) {
+                            Thread.interrupted();
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * creates a completion service for a batch of calls of a query
+     *
+     * @param query identity of the calling query
+     * @param <V>   result type of the calls
+     * @return a new batch
+     */
+    public <V> Batch<V> newBatch(Object query) {
+        return new Batch<>(query);
+    }
+
+    /**
+     * a completion service over the calls of a single batch
+     *
+     * @param <V> result type of the calls
+     */
+    public class Batch<V> implements CompletionService<V> {
+
+        protected final Object query;
+        protected final BlockingQueue<Future<V>> completed = new LinkedBlockingQueue<>();
+
+        protected Batch(Object query) {
+            this.query = query;
+        }
+
+        /**
+         * submits a call to a target
+         *
+         * @param target the remote target
+         * @param task   the call
+         * @return future result
+         */
+        public Future<V> submit(String target, Callable<V> task) {
+            FutureTask<V> future = new FutureTask<>(task) {
+                @Override
+                protected void done() {
+                    completed.add(this);
+                }
+            };
+            execute(query, target, future);
+            return future;
+        }
+
+        @Override
+        public Future<V> submit(Callable<V> task) {
+            return submit("", task);
+        }
+
+        @Override
+        public Future<V> submit(Runnable task, V result) {
+            return submit("", () -> {
+                task.run();
+                return result;
+            });
+        }
+
+        @Override
+        public Future<V> take() throws InterruptedException {
+            return completed.take();
+        }
+
+        @Override
+        public Future<V> poll() {
+            return completed.poll();
+        }
+
+        @Override
+        public Future<V> poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return completed.poll(timeout, unit);
+        }
+    }
+}
@@ -17,22 +17,57 @@
 package org.eclipse.tractusx.agents.sparql;
 
 import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVars;
+import org.apache.jena.sparql.algebra.OpVisitorBase;
+import org.apache.jena.sparql.algebra.OpWalker;
+import org.apache.jena.sparql.algebra.op.Op1;
+import org.apache.jena.sparql.algebra.op.Op2;
 import org.apache.jena.sparql.algebra.op.OpGraph;
 import org.apache.jena.sparql.algebra.op.OpJoin;
+import org.apache.jena.sparql.algebra.op.OpN;
+import org.apache.jena.sparql.algebra.op.OpNull;
+import org.apache.jena.sparql.algebra.op.OpProcedure;
+import org.apache.jena.sparql.algebra.op.OpPropFunc;
 import org.apache.jena.sparql.algebra.op.OpSequence;
 import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.algebra.op.OpTable;
 import org.apache.jena.sparql.algebra.op.OpUnion;
 import org.apache.jena.sparql.algebra.optimize.TransformJoinStrategy;
+import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.main.JoinClassifier;
 
+import java.util.Set;
+
 /**
  * a modified default join strategy which will always linearize right-hand
  * service and union calls in order to obtain bindings from the
- * left part.
- * TODO improve to find independent/asynchronous calls which should be parallelized (cross-join case)
+ * left part. If cardinality statistics are available, the more
+ * selective part is linearized first. Joins of independent service
+ * calls may be kept in order to evaluate them concurrently.
  */
 public class OptimizeJoinStrategy extends TransformJoinStrategy {
 
+    protected final CardinalityStatistics statistics;
+    protected final boolean parallel;
+
+    /**
+     * creates a strategy which keeps the textual order
+     */
+    public OptimizeJoinStrategy() {
+        this(null, false);
+    }
+
+    /**
+     * creates a cost-based strategy
+     *
+     * @param statistics cardinality estimates, may be null
+     * @param parallel   whether independent service calls are evaluated concurrently
+     */
+    public OptimizeJoinStrategy(CardinalityStatistics statistics, boolean parallel) {
+        this.statistics = statistics;
+        this.parallel = parallel;
+    }
+
     /**
      * implement the federated join strategy
      *
@@ -43,22 +78,128 @@ public class OptimizeJoinStrategy extends TransformJoinStrategy {
      */
     @Override
     public Op transform(OpJoin opJoin, Op left, Op right) {
+        if (parallel && isIndependent(left, right)) {
+            // keep the join, both sides are evaluated at the same time
+            return OpJoin.create(left, right);
+        }
         boolean canDoLinear = JoinClassifier.isLinear(opJoin);
         if (!canDoLinear) {
             if (right instanceof OpService || right instanceof OpUnion) {
                 // join no-matter what with a service or a union
-                return OpSequence.create(left, right);
+                return createSequence(left, right);
             }
             if (left instanceof OpService || left instanceof OpGraph) {
                 // join no matter after service and graph calls
-                return OpSequence.create(left, right);
+                return createSequence(left, right);
             }
             if (left instanceof OpSequence && right instanceof OpSequence) {
                 // join two sequences
-                return OpSequence.create(left, right);
+                return createSequence(left, right);
             }
         }
         // default transform
         return super.transform(opJoin, left, right);
     }
+
+    /**
+     * linearizes a join such that the part with the smaller estimated
+     * cardinality binds first. The textual order is kept if any estimate
+     * is missing (services are only estimated after unbound calls), if
+     * the right part depends on bindings of the left part or if the left part
+     * (e.g., due to optional, filter or minus scoping) must not see the
+     * bindings of the right part.
+     *
+     * @param left  left-part of join
+     * @param right right-part of join
+     * @return sequence operator
+     */
+    protected Op createSequence(Op left, Op right) {
+        if (statistics != null && !hasServiceVariable(right)) {
+            long leftEstimate = statistics.estimate(left);
+            long rightEstimate = statistics.estimate(right);
+            if (leftEstimate != CardinalityStatistics.UNKNOWN && rightEstimate != CardinalityStatistics.UNKNOWN && rightEstimate < leftEstimate
+                    && JoinClassifier.isLinear(OpJoin.create(right, left))) {
+                return OpSequence.create(right, left);
+            }
+        }
+        return OpSequence.create(left, right);
+    }
+
+    /**
+     * checks whether an operator contains service calls whose target
+     * must be bound from the outside
+     *
+     * @param op operator
+     * @return true if some service is addressed by a variable
+     */
+    protected static boolean hasServiceVariable(Op op) {
+        boolean[] result = new boolean[1];
+        OpWalker.walk(op, new OpVisitorBase() {
+            @Override
+            public void visit(OpService opService) {
+                result[0] |= opService.getService().isVariable();
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * checks whether an operator contains service calls
+     *
+     * @param op operator
+     * @return true if some service is called
+     */
+    protected static boolean hasService(Op op) {
+        boolean[] result = new boolean[1];
+        OpWalker.walk(op, new OpVisitorBase() {
+            @Override
+            public void visit(OpService opService) {
+                result[0] = true;
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * checks whether an operator consists of service calls only such that
+     * it can be evaluated without access to the local store
+     *
+     * @param op operator
+     * @return true if only services, tables and operators over them are used
+     */
+    protected static boolean isRemote(Op op) {
+        if (op instanceof OpService || op instanceof OpTable || op instanceof OpNull) {
+            return true;
+        }
+        if (op instanceof OpGraph || op instanceof OpPropFunc || op instanceof OpProcedure) {
+            return false;
+        }
+        if (op instanceof Op1) {
+            return isRemote(((Op1) op).getSubOp());
+        }
+        if (op instanceof Op2) {
+            return isRemote(((Op2) op).getLeft()) && isRemote(((Op2) op).getRight());
+        }
+        if (op instanceof OpN) {
+            return ((OpN) op).getElements().stream().allMatch(OptimizeJoinStrategy::isRemote);
+        }
+        return false;
+    }
+
+    /**
+     * checks whether two operators consist of service calls which
+     * neither share variables nor need bindings from each other
+     *
+     * @param left  left-part of join
+     * @param right right-part of join
+     * @return true if both parts can be evaluated concurrently
+     */
+    protected static boolean isIndependent(Op left, Op right) {
+        if (!isRemote(left) || !isRemote(right) || !hasService(left) || !hasService(right)
+                || hasServiceVariable(left) || hasServiceVariable(right)) {
+            return false;
+        }
+        Set<Var> leftVars = OpVars.visibleVars(left);
+        return OpVars.visibleVars(right).stream().noneMatch(leftVars::contains);
+    }
 }
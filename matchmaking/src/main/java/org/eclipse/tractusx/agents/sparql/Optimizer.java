@@ -16,6 +16,7 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.eclipse.tractusx.agents.sparql;
 
+import org.apache.jena.sparql.ARQConstants;
 import org.apache.jena.sparql.algebra.Op;
 import org.apache.jena.sparql.algebra.optimize.OptimizerStd;
 import org.apache.jena.sparql.util.Context;
@@ -25,6 +26,9 @@ import org.apache.jena.sparql.util.Context;
  * of federation-important sparql constructs better at the level of joins
  */
 public class Optimizer extends OptimizerStd {
+
+    protected final Context queryContext;
+
     /**
      * Create a new optimizer
      *
@@ -32,6 +36,22 @@ public class Optimizer extends OptimizerStd {
      */
     public Optimizer(Context context) {
         super(context);
+        this.queryContext = context;
+    }
+
+    /**
+     * applies the standard optimization and pushes modifiers into service calls
+     *
+     * @param op operator to optimize
+     * @return optimized operator
+     */
+    @Override
+    public Op rewrite(Op op) {
+        op = super.rewrite(op);
+        if (queryContext.isTrue(ServicePushdown.PUSHDOWN_SYMBOL)) {
+            op = ServicePushdown.pushdown(op);
+        }
+        return op;
     }
 
     /**
@@ -42,7 +62,9 @@ public class Optimizer extends OptimizerStd {
      */
     @Override
     protected Op transformJoinStrategy(Op op) {
-        return apply("Federated Index Join strategy", new OptimizeJoinStrategy(), op);
+        CardinalityStatistics statistics = queryContext.get(CardinalityStatistics.STATISTICS_SYMBOL);
+        boolean parallel = queryContext.get(ARQConstants.sysOpExecutorFactory) instanceof FederatedOpExecutorFactory;
+        return apply("Federated Index Join strategy", new OptimizeJoinStrategy(statistics, parallel), op);
     }
 
 }
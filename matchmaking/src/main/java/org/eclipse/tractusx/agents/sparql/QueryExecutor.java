@@ -61,13 +61,12 @@ import org.apache.jena.sparql.exec.http.Params;
 import org.apache.jena.sparql.exec.http.QuerySendMode;
 import org.apache.jena.sparql.util.Context;
 import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.http.MultipartBody;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
@@ -528,38 +527,19 @@ public class QueryExecutor implements QueryExec {
                 if (boundaryIndex >= 0) {
                     boundary = boundary + contentType.substring(boundaryIndex + 10);
                 }
-                StringBuilder nextPart = null;
-                String embeddedContentType = null;
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                        if (boundary.equals(line)) {
-                            if (nextPart != null && embeddedContentType != null) {
-                                if (embeddedContentType.equals("application/cx-warnings+json")) {
-                                    warnings = Optional.of(nextPart.toString());
-                                } else {
-                                    inputStream = new ByteArrayInputStream(nextPart.toString().getBytes());
-                                    contentType = embeddedContentType;
-                                }
-                            }
-                            nextPart = new StringBuilder();
-                            String contentLine = reader.readLine();
-                            if (contentLine != null && contentLine.startsWith("Content-Type: ")) {
-                                embeddedContentType = contentLine.substring(14);
-                            } else {
-                                embeddedContentType = null;
-                            }
-                        } else if (nextPart != null) {
-                            nextPart.append(line);
-                            nextPart.append("\n");
-                        }
-                    }
+                List<MultipartBody.Part> parts;
+                try (InputStream multipart = inputStream) {
+                    parts = MultipartBody.parse(multipart, boundary);
                 }
-                if (nextPart != null && embeddedContentType != null) {
-                    if (embeddedContentType.equals("application/cx-warnings+json")) {
-                        warnings = Optional.of(nextPart.toString());
+                for (MultipartBody.Part part : parts) {
+                    if (part.getContentType() == null) {
+                        continue;
+                    }
+                    if (part.getContentType().equals(MultipartBody.WARNINGS_CONTENT_TYPE)) {
+                        warnings = Optional.of(part.asString());
                     } else {
-                        inputStream = new ByteArrayInputStream(nextPart.toString().getBytes());
-                        contentType = embeddedContentType;
+                        inputStream = new ByteArrayInputStream(part.getContent());
+                        contentType = part.getContentType();
                     }
                 }
             }
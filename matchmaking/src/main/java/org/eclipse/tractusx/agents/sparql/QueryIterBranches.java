@@ -0,0 +1,223 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QueryExecException;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIteratorBase;
+import org.apache.jena.sparql.serializer.SerializationContext;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A query iterator over the results of branches which are evaluated
+ * concurrently. The results of all branches are merged through a bounded
+ * queue as soon as they arrive, so the order of the branches is not kept
+ * and a branch which runs ahead is held back until the consumer catches up.
+ * Branches for which the executor has no thread left are evaluated by the
+ * consumer itself.
+ */
+public class QueryIterBranches extends QueryIteratorBase {
+
+    /**
+     * number of bindings which may be buffered between the branches and the consumer
+     */
+    public static final int CAPACITY = 1024;
+
+    /**
+     * time in milliseconds after which a blocked branch checks for cancellation
+     */
+    protected static final long POLL_INTERVAL = 100;
+
+    /**
+     * marks the end of a branch in the queue
+     */
+    protected static final Object END = new Object();
+
+    /**
+     * marks the failure of a branch in the queue
+     */
+    protected static class Failure {
+        protected final Throwable cause;
+
+        protected Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(CAPACITY);
+    final List<Future<?>> futures = new ArrayList<>();
+    final LinkedList<Supplier<QueryIterator>> pending = new LinkedList<>();
+    volatile boolean cancelled;
+    int remaining;
+    QueryIterator current;
+    Binding next;
+
+    /**
+     * creates a new branch iterator and starts the branches
+     *
+     * @param executor threads evaluating the branches
+     * @param branches factories of the branch iterators
+     */
+    public QueryIterBranches(ExecutorService executor, List<Supplier<QueryIterator>> branches) {
+        for (Supplier<QueryIterator> branch : branches) {
+            try {
+                futures.add(executor.submit(() -> produce(branch)));
+                remaining++;
+            } catch (RejectedExecutionException e) {
+                pending.add(branch);
+            }
+        }
+    }
+
+    /**
+     * evaluates a branch on a thread of the executor
+     *
+     * @param branch factory of the branch iterator
+     */
+    protected void produce(Supplier<QueryIterator> branch) {
+        QueryIterator iterator = null;
+        try {
+            iterator = branch.get();
+            while (!cancelled && iterator.hasNext()) {
+                if (!put(iterator.next())) {
+                    return;
+                }
+            }
+            put(END);
+        } catch (Throwable t) {
+            put(new Failure(t));
+        } finally {
+            if (iterator != null) {
+                iterator.close();
+            }
+        }
+    }
+
+    /**
+     * hands an item to the consumer, waiting while the queue is full
+     *
+     * @param item binding or marker
+     * @return false if the iterator has been cancelled in the meantime
+     */
+    protected boolean put(Object item) {
+        try {
+            while (!cancelled) {
+                if (queue.offer(item, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        while (next == null) {
+            Object item = queue.poll();
+            if (item == null) {
+                if (current == null && !pending.isEmpty()) {
+                    current = pending.removeFirst().get();
+                }
+                if (current != null) {
+                    // evaluate a branch without thread in between
+                    if (current.hasNext()) {
+                        next = current.next();
+                    } else {
+                        current.close();
+                        current = null;
+                    }
+                    continue;
+                }
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    while (item == null) {
+                        if (cancelled) {
+                            throw new QueryCancelledException();
+                        }
+                        item = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    requestCancel();
+                    throw new QueryCancelledException();
+                }
+            }
+            if (item == END) {
+                remaining--;
+            } else if (item instanceof Failure) {
+                requestCancel();
+                Throwable cause = ((Failure) item).cause;
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new QueryExecException("Failure evaluating a federated branch.", cause);
+            } else {
+                next = (Binding) item;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        Binding result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    protected void closeIterator() {
+        requestCancel();
+        remaining = 0;
+        pending.clear();
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    /**
+     * cancels all branches which are still running (may be called from any thread)
+     */
+    @Override
+    protected void requestCancel() {
+        cancelled = true;
+        futures.forEach(future -> future.cancel(true));
+        queue.clear();
+    }
+
+    @Override
+    public void output(IndentedWriter indentedWriter, SerializationContext serializationContext) {
+    }
+}
@@ -0,0 +1,104 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIter1;
+import org.apache.jena.sparql.serializer.SerializationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Query chunk iterator
+ * Reads the input bindings in chunks of a given size and evaluates each
+ * chunk as a whole, so that the input is never held completely in memory
+ * and the next chunk is only read when the results of the previous one
+ * have been consumed.
+ */
+public abstract class QueryIterChunks extends QueryIter1 {
+    protected final long chunkSize;
+    protected QueryIterator current;
+
+    /**
+     * creates a new chunk iterator
+     *
+     * @param input     the input bindings
+     * @param chunkSize maximal number of bindings per chunk
+     * @param execCxt   execution context
+     */
+    protected QueryIterChunks(QueryIterator input, long chunkSize, ExecutionContext execCxt) {
+        super(input, execCxt);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * evaluates a chunk
+     *
+     * @param chunk the input bindings of the chunk
+     * @return iterator over the results of the chunk
+     */
+    protected abstract QueryIterator nextChunk(List<Binding> chunk);
+
+    @Override
+    protected boolean hasNextBinding() {
+        while (current == null || !current.hasNext()) {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            if (!getInput().hasNext()) {
+                return false;
+            }
+            List<Binding> chunk = new ArrayList<>();
+            while (chunk.size() < chunkSize && getInput().hasNext()) {
+                chunk.add(getInput().next());
+            }
+            current = nextChunk(chunk);
+        }
+        return true;
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        return current.next();
+    }
+
+    @Override
+    protected void requestSubCancel() {
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    @Override
+    protected void closeSubIterator() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext cxt) {
+        out.println(Lib.className(this) + " " + chunkSize);
+    }
+}
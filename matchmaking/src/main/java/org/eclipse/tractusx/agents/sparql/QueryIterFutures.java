@@ -28,7 +28,8 @@ import org.eclipse.tractusx.agents.AgentConfig;
 import org.eclipse.tractusx.agents.utils.Monitor;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -36,9 +37,12 @@ import java.util.concurrent.Future;
  * A query iterator sitting on a set of future query iterators
  * It will get and produce contextual information in order to collect any
  * errors appearing.
+ * The futures are consumed in the order of their completion, so
+ * the consuming thread is woken up as soon as any batch has finished.
  */
 public class QueryIterFutures extends QueryIteratorBase {
 
+    final CompletionService<QueryIterator> completionService;
     final List<Future<QueryIterator>> futures;
     QueryIterator current;
     Binding lastBinding;
@@ -59,9 +63,12 @@ public class QueryIterFutures extends QueryIteratorBase {
      * @param targetNode       a node (var, the name/uri of the remote tenant
      * @param sourceAsset      the name of the calling/consuming graph
      * @param executionContext description of the execution context
+     * @param completionService the service which has been used to submit the futures
      * @param futures          list of futures to synchronize on
      */
-    public QueryIterFutures(AgentConfig config, Monitor monitor, String sourceTenant, String sourceAsset, Node targetNode, Context executionContext, List<Future<QueryIterator>> futures) {
+    public QueryIterFutures(AgentConfig config, Monitor monitor, String sourceTenant, String sourceAsset, Node targetNode, Context executionContext,
+                            CompletionService<QueryIterator> completionService, List<Future<QueryIterator>> futures) {
+        this.completionService = completionService;
         this.futures = futures;
         this.monitor = monitor;
         this.config = config;
@@ -107,22 +114,21 @@ public class QueryIterFutures extends QueryIteratorBase {
     }
 
     /**
-     * move to the next ready-made future (or sync/poll for the next ready-made one in a recursion)
+     * move to the next ready-made future (or block until the next one completes)
      *
      * @return whether any service has/will produce any binding
      */
     boolean hasNextInternalBinding() {
         if (!futures.isEmpty()) {
-            Optional<Future<QueryIterator>> boundFuture = futures.stream().filter(Future::isDone).findFirst();
             try {
-                if (boundFuture.isPresent()) {
-                    Future<QueryIterator> currentFuture = boundFuture.get();
-                    futures.remove(currentFuture);
-                    current = currentFuture.get();
-                } else {
-                    Thread.sleep(config.getNegotiationPollInterval());
-                }
+                Future<QueryIterator> currentFuture = completionService.take();
+                futures.remove(currentFuture);
+                current = currentFuture.get();
+            } catch (CancellationException e) {
+                monitor.debug(String.format("Remote batch for context %s has been cancelled", executionContext));
             } catch (InterruptedException e) {
+                requestCancel();
+                Thread.currentThread().interrupt();
                 List<CatenaxWarning> warnings = CatenaxWarning.getOrSetWarnings(executionContext);
                 CatenaxWarning newWarning = new CatenaxWarning();
                 newWarning.setSourceAsset(sourceAsset);
@@ -165,9 +171,21 @@ public class QueryIterFutures extends QueryIteratorBase {
         }
     }
 
+    /**
+     * cancels all pending futures and releases the (streaming) results
+     * of those futures which have already been completed
+     */
     @Override
     protected void requestCancel() {
-        futures.forEach(future -> future.cancel(true));
+        futures.forEach(future -> {
+            if (!future.cancel(true) && future.isDone() && !future.isCancelled()) {
+                try {
+                    future.get().close();
+                } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                    monitor.debug(String.format("Could not release remote batch for context %s", executionContext));
+                }
+            }
+        });
         futures.clear();
     }
 
@@ -18,7 +18,9 @@ package org.eclipse.tractusx.agents.sparql;
 
 import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
@@ -29,21 +31,69 @@ import org.apache.jena.sparql.serializer.SerializationContext;
 
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Query join iterator
- * Prepares the given bindings with a hidden variable which is then projected
+ * Prepares the given bindings with a hidden variable which is then projected.
+ * The hidden variable carries the (integer) index of the group of original
+ * bindings, so that joining a remote result is a direct lookup. The original
+ * bindings are reused as parents of the joined bindings, so only the
+ * variables contributed by the remote side are copied.
  */
 public class QueryIterJoin extends QueryIter1 {
-    protected final Map<Node, List<Binding>> joinBindings;
+    protected final List<List<Binding>> joinBindings;
     protected final Var idVar;
-    protected Iterator<Binding> leftBindings;
+    protected final Var[] resultVars;
+    protected Binding currentResult;
+    protected List<Binding> currentGroup;
+    protected int currentPosition;
 
-    public QueryIterJoin(QueryIterator input, Map<Node, List<Binding>> joinBindings, Var idVar, ExecutionContext execCxt) {
+    /**
+     * creates a new join iterator
+     *
+     * @param input        the remote results
+     * @param joinBindings the groups of original bindings, indexed by the id node
+     * @param idVar        the hidden variable carrying the id node
+     * @param resultVars   the variables of the remote results, null if unknown
+     * @param execCxt      execution context
+     */
+    public QueryIterJoin(QueryIterator input, List<List<Binding>> joinBindings, Var idVar, List<Var> resultVars, ExecutionContext execCxt) {
         super(input, execCxt);
         this.joinBindings = joinBindings;
         this.idVar = idVar;
+        if (resultVars != null) {
+            // compute the var layout of the remote side only once
+            this.resultVars = resultVars.stream().filter(var -> !idVar.equals(var)).toArray(Var[]::new);
+        } else {
+            this.resultVars = null;
+        }
+    }
+
+    /**
+     * creates an id node
+     *
+     * @param index of the group of bindings
+     * @return id node to be used in the hidden variable
+     */
+    public static Node createId(int index) {
+        return NodeFactory.createLiteral(Integer.toString(index), XSDDatatype.XSDinteger);
+    }
+
+    /**
+     * decodes an id node
+     *
+     * @param idNode id node as returned by the remote side, may be null
+     * @return index of the group of bindings, -1 if the node is not a valid id
+     */
+    public static int getIndex(Node idNode) {
+        if (idNode == null || !idNode.isLiteral()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(idNode.getLiteralLexicalForm());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     @Override
@@ -56,45 +106,66 @@ public class QueryIterJoin extends QueryIter1 {
 
     @Override
     public boolean hasNextBinding() {
-        return (leftBindings != null && leftBindings.hasNext()) || hasNextInputBinding();
+        return (currentGroup != null && currentPosition < currentGroup.size()) || hasNextInputBinding();
     }
 
     protected boolean hasNextInputBinding() {
-        if (this.getInput().hasNext()) {
+        while (this.getInput().hasNext()) {
             Binding nextBinding = this.getInput().next();
-            Node idNode = nextBinding.get(idVar);
-            List<Binding> resultBindings = joinBindings.get(idNode);
-            if (resultBindings != null) {
-                leftBindings = resultBindings.stream().map(resultBinding -> {
-                    BindingBuilder bb = BindingBuilder.create(resultBinding);
-                    nextBinding.forEach((v, n) -> {
-                        if (!resultBinding.contains(v)) {
-                            bb.set(v, n);
-                        }
-                    });
-                    return bb.build();
-                }).iterator();
-            } else {
-                leftBindings = null;
+            int index = getIndex(nextBinding.get(idVar));
+            if (index >= 0 && index < joinBindings.size()) {
+                List<Binding> group = joinBindings.get(index);
+                if (!group.isEmpty()) {
+                    currentResult = nextBinding;
+                    currentGroup = group;
+                    currentPosition = 0;
+                    return true;
+                }
             }
-            return hasNextBinding();
-        } else {
-            return false;
         }
+        currentResult = null;
+        currentGroup = null;
+        return false;
     }
 
     @Override
     public Binding moveToNextBinding() {
-        if (leftBindings != null && leftBindings.hasNext()) {
-            return leftBindings.next();
+        if (currentGroup != null && currentPosition < currentGroup.size()) {
+            return merge(currentGroup.get(currentPosition++), currentResult);
         } else {
             return null;
         }
     }
 
+    /**
+     * merges a remote result into an original binding
+     *
+     * @param original the original binding which acts as the parent
+     * @param result   the remote result
+     * @return joined binding
+     */
+    protected Binding merge(Binding original, Binding result) {
+        BindingBuilder bb = BindingBuilder.create(original);
+        if (resultVars != null) {
+            for (Var var : resultVars) {
+                Node node = result.get(var);
+                if (node != null && !original.contains(var)) {
+                    bb.add(var, node);
+                }
+            }
+        } else {
+            for (Iterator<Var> vars = result.vars(); vars.hasNext(); ) {
+                Var var = vars.next();
+                if (!idVar.equals(var) && !original.contains(var)) {
+                    bb.add(var, result.get(var));
+                }
+            }
+        }
+        return bb.build();
+    }
+
     @Override
     protected void details(IndentedWriter out, SerializationContext cxt) {
         out.println(Lib.className(this));
     }
 }
-
@@ -0,0 +1,131 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIteratorBase;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.serializer.SerializationContext;
+
+import java.util.function.Consumer;
+
+/**
+ * A query iterator streaming over a (remote) row set
+ * The underlying connection/resource is kept open until
+ * this iterator is exhausted, cancelled or closed.
+ */
+public class QueryIterRowSet extends QueryIteratorBase {
+
+    protected final RowSet rowSet;
+    protected final AutoCloseable resource;
+    protected Consumer<RuntimeException> completion;
+
+    /**
+     * creates a new streaming iterator
+     *
+     * @param rowSet   the (lazily parsed) row set
+     * @param resource the resource which holds the connection, may be null
+     */
+    public QueryIterRowSet(RowSet rowSet, AutoCloseable resource) {
+        this(rowSet, resource, null);
+    }
+
+    /**
+     * creates a new streaming iterator
+     *
+     * @param rowSet     the (lazily parsed) row set
+     * @param resource   the resource which holds the connection, may be null
+     * @param completion called once with null when the row set is exhausted or with the
+     *                   failure when reading it fails, not called when closed early, may be null
+     */
+    public QueryIterRowSet(RowSet rowSet, AutoCloseable resource, Consumer<RuntimeException> completion) {
+        this.rowSet = rowSet;
+        this.resource = resource;
+        this.completion = completion;
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        try {
+            boolean hasNext = rowSet.hasNext();
+            if (!hasNext) {
+                complete(null);
+            }
+            return hasNext;
+        } catch (RuntimeException e) {
+            complete(e);
+            throw e;
+        }
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        try {
+            return rowSet.next();
+        } catch (RuntimeException e) {
+            complete(e);
+            throw e;
+        }
+    }
+
+    /**
+     * reports the outcome of reading the row set (only once)
+     *
+     * @param failure the failure, null if the row set has been read completely
+     */
+    protected void complete(RuntimeException failure) {
+        Consumer<RuntimeException> listener = completion;
+        completion = null;
+        if (listener != null) {
+            listener.accept(failure);
+        }
+    }
+
+    /**
+     * releases the row set and the underlying connection
+     */
+    @Override
+    protected void closeIterator() {
+        try {
+            rowSet.close();
+        } finally {
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    Log.warn(this, "Could not release remote connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * no asynchronous abort, the connection is released when the
+     * cancelled iterator is closed by the consuming thread
+     */
+    @Override
+    protected void requestCancel() {
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext cxt) {
+        out.println(Lib.className(this));
+    }
+}
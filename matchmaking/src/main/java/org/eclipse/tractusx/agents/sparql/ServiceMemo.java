@@ -0,0 +1,399 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIteratorWrapper;
+import org.apache.jena.sparql.exec.RowSetAdapter;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+import org.eclipse.tractusx.agents.utils.Monitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * A memo of remote results which lives as long as a single query
+ * execution. Identical calls (same target, same remote query including
+ * the bound values) are answered from the memo. Rows are kept in memory
+ * up to a maximum shared by all calls of the query (including the ones
+ * still being received). Once the maximum is reached, the rows of a call
+ * are streamed to a spill file or, without spill directory, not memoized.
+ */
+public class ServiceMemo implements AutoCloseable {
+
+    /**
+     * the context key under which the memo of a query is kept
+     */
+    public static final Symbol MEMO_SYMBOL = Symbol.create("https://w3id.org/catenax/ontology/common#serviceMemo");
+
+    /**
+     * access the memo of a query
+     *
+     * @param context of the query
+     * @return current memo, may be null
+     */
+    public static ServiceMemo getMemo(Context context) {
+        return context.get(MEMO_SYMBOL, null);
+    }
+
+    /**
+     * set the memo of a query
+     *
+     * @param context to set into
+     * @param memo    the memo, may be null
+     */
+    public static void setMemo(Context context, ServiceMemo memo) {
+        context.put(MEMO_SYMBOL, memo);
+    }
+
+    /**
+     * releases the memo of a query
+     *
+     * @param context of the query
+     */
+    public static void release(Context context) {
+        ServiceMemo memo = getMemo(context);
+        if (memo != null) {
+            context.remove(MEMO_SYMBOL);
+            memo.close();
+        }
+    }
+
+    /**
+     * memoized result of a call
+     */
+    public static class Entry {
+        protected final List<Var> vars;
+        protected final List<Binding> rows;
+        protected final Path file;
+
+        protected Entry(List<Var> vars, List<Binding> rows, Path file) {
+            this.vars = vars;
+            this.rows = rows;
+            this.file = file;
+        }
+
+        /**
+         * access
+         *
+         * @return result variables
+         */
+        public List<Var> getVars() {
+            return vars;
+        }
+
+        /**
+         * opens the memoized rows
+         *
+         * @return iterator over the rows
+         * @throws IOException in case the spilled rows cannot be read
+         */
+        public QueryIterator open() throws IOException {
+            if (file == null) {
+                return new QueryIterRowSet(RowSetStream.create(vars, rows.iterator()), null);
+            }
+            InputStream input = Files.newInputStream(file);
+            return new QueryIterRowSet(new RowSetAdapter(ResultSetMgr.read(input, ResultSetLang.RS_TSV)), input);
+        }
+    }
+
+    protected final Monitor monitor;
+    protected final long maxRows;
+    protected final Path spillDirectory;
+    protected final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // rows held in memory by entries and by recordings in progress
+    protected final AtomicLong rows = new AtomicLong();
+    protected boolean closed;
+
+    /**
+     * creates a new memo
+     *
+     * @param maxRows        maximal number of rows kept in memory
+     * @param spillDirectory where to spill further results, may be null
+     * @param monitor        logging subsystem
+     */
+    public ServiceMemo(long maxRows, Path spillDirectory, Monitor monitor) {
+        this.maxRows = maxRows;
+        this.spillDirectory = spillDirectory;
+        this.monitor = monitor;
+    }
+
+    /**
+     * computes the key of a call
+     *
+     * @param target  the url which is called
+     * @param request the complete request (query or parameter set)
+     * @return normalized key
+     */
+    public static String getKey(String target, String request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(target.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(request.getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            return target + "\n" + request;
+        }
+    }
+
+    /**
+     * looks up the result of a call
+     *
+     * @param key of the call
+     * @return memoized result, null if the call has not been memoized
+     */
+    public Entry lookup(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * memoizes the rows of a call while they are consumed
+     *
+     * @param key      of the call
+     * @param vars     result variables
+     * @param iterator over the remote rows
+     * @return iterator which records the rows
+     */
+    public QueryIterator record(String key, List<Var> vars, QueryIterator iterator) {
+        return new QueryIteratorWrapper(iterator) {
+            // rows kept in memory, null after switching to the spill file or giving up
+            private List<Binding> recorded = new ArrayList<>();
+            private Path file;
+            private Writer spill;
+            private boolean finished;
+
+            @Override
+            protected boolean hasNextBinding() {
+                boolean result = super.hasNextBinding();
+                if (!result && !finished) {
+                    finished = true;
+                    if (recorded != null) {
+                        put(key, new Entry(vars, recorded, null), recorded.size());
+                        recorded = null;
+                    } else if (spill != null) {
+                        try {
+                            spill.close();
+                            spill = null;
+                            put(key, new Entry(vars, null, file), 0);
+                        } catch (IOException e) {
+                            abandon(e);
+                        }
+                    }
+                }
+                return result;
+            }
+
+            @Override
+            protected Binding moveToNextBinding() {
+                Binding binding = super.moveToNextBinding();
+                if (finished) {
+                    return binding;
+                }
+                if (recorded != null) {
+                    if (reserve()) {
+                        recorded.add(binding);
+                        return binding;
+                    }
+                    startSpill();
+                }
+                if (spill != null) {
+                    try {
+                        writeRow(spill, vars, binding);
+                    } catch (IOException e) {
+                        abandon(e);
+                    }
+                }
+                return binding;
+            }
+
+            /**
+             * moves the rows recorded so far into a new spill file
+             */
+            private void startSpill() {
+                List<Binding> buffered = recorded;
+                recorded = null;
+                rows.addAndGet(-buffered.size());
+                if (spillDirectory == null) {
+                    finished = true;
+                    return;
+                }
+                try {
+                    Files.createDirectories(spillDirectory);
+                    file = Files.createTempFile(spillDirectory, "memo", ".tsv");
+                    spill = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                    writeHeader(spill, vars);
+                    for (Binding row : buffered) {
+                        writeRow(spill, vars, row);
+                    }
+                } catch (IOException e) {
+                    abandon(e);
+                }
+            }
+
+            /**
+             * gives up memoizing this call
+             *
+             * @param e the reason
+             */
+            private void abandon(IOException e) {
+                monitor.warning(String.format("Could not spill memoized rows to %s", spillDirectory), e);
+                discard();
+            }
+
+            /**
+             * releases the rows and the spill file of an unfinished recording
+             */
+            private void discard() {
+                finished = true;
+                if (recorded != null) {
+                    rows.addAndGet(-recorded.size());
+                    recorded = null;
+                }
+                if (spill != null) {
+                    try {
+                        spill.close();
+                    } catch (IOException e) {
+                        // the file is removed anyway
+                    }
+                    spill = null;
+                }
+                delete(file);
+                file = null;
+            }
+
+            @Override
+            protected void closeIterator() {
+                if (!finished) {
+                    // the consumer stopped early, so the result is incomplete
+                    discard();
+                }
+                super.closeIterator();
+            }
+        };
+    }
+
+    /**
+     * reserves memory for a further row
+     *
+     * @return whether the row fits into the maximum
+     */
+    protected boolean reserve() {
+        if (rows.incrementAndGet() <= maxRows) {
+            return true;
+        }
+        rows.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * writes the header of a spill file
+     *
+     * @param writer the spill file
+     * @param vars   result variables
+     * @throws IOException in case the file cannot be written
+     */
+    protected static void writeHeader(Writer writer, List<Var> vars) throws IOException {
+        writer.write(vars.stream().map(var -> "?" + var.getVarName()).collect(Collectors.joining("\t")));
+        writer.write('\n');
+    }
+
+    /**
+     * writes a row of a spill file
+     *
+     * @param writer  the spill file
+     * @param vars    result variables
+     * @param binding the row
+     * @throws IOException in case the file cannot be written
+     */
+    protected static void writeRow(Writer writer, List<Var> vars, Binding binding) throws IOException {
+        for (int position = 0; position < vars.size(); position++) {
+            if (position > 0) {
+                writer.write('\t');
+            }
+            Node node = binding.get(vars.get(position));
+            if (node != null) {
+                writer.write(NodeFmtLib.strNT(node));
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * memoizes a complete result
+     *
+     * @param key      of the call
+     * @param entry    the result
+     * @param reserved number of in-memory rows reserved by the result
+     */
+    protected synchronized void put(String key, Entry entry, long reserved) {
+        if (closed || entries.containsKey(key)) {
+            rows.addAndGet(-reserved);
+            delete(entry.file);
+            return;
+        }
+        entries.put(key, entry);
+    }
+
+    /**
+     * removes a spill file
+     *
+     * @param file the file, may be null
+     */
+    protected void delete(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                monitor.warning(String.format("Could not remove spilled memo %s", file), e);
+            }
+        }
+    }
+
+    /**
+     * forgets all results and removes spilled files
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Entry entry : entries.values()) {
+            delete(entry.file);
+        }
+        entries.clear();
+    }
+}
@@ -0,0 +1,219 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.SortCondition;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVars;
+import org.apache.jena.sparql.algebra.op.Op1;
+import org.apache.jena.sparql.algebra.op.OpDistinct;
+import org.apache.jena.sparql.algebra.op.OpExtend;
+import org.apache.jena.sparql.algebra.op.OpLabel;
+import org.apache.jena.sparql.algebra.op.OpOrder;
+import org.apache.jena.sparql.algebra.op.OpProject;
+import org.apache.jena.sparql.algebra.op.OpReduced;
+import org.apache.jena.sparql.algebra.op.OpSequence;
+import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.algebra.op.OpSlice;
+import org.apache.jena.sparql.algebra.op.OpTopN;
+import org.apache.jena.sparql.algebra.op.OpUnion;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.util.Symbol;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes solution modifiers of the enclosing query (limit, top-n ordering,
+ * distinct and projection) into service calls where this does not change
+ * the result. Modifiers are only passed through operators which keep
+ * the solutions of their (last) part, such as projections, binds, unions
+ * and sequences. As service calls are executed in batches, a pushed
+ * limit applies to each batch and is hence always enough for the
+ * enclosing query.
+ * The pattern below the pushed modifiers is labelled so that the executor
+ * can tell them from the modifiers of the original pattern and apply them
+ * after joining the input bindings.
+ */
+public class ServicePushdown {
+
+    /**
+     * the context key under which the pushdown is switched on
+     */
+    public static final Symbol PUSHDOWN_SYMBOL = Symbol.create("https://w3id.org/catenax/ontology/common#servicePushdown");
+
+    /**
+     * the label between the pushed modifiers and the original service pattern
+     */
+    public static final String PUSHDOWN_LABEL = "cx:pushdown";
+
+    /**
+     * an absent limit
+     */
+    public static final long UNLIMITED = -1;
+
+    /**
+     * pushes modifiers into the service calls of a query plan
+     *
+     * @param op the optimized query plan
+     * @return rewritten plan
+     */
+    public static Op pushdown(Op op) {
+        return pushdown(op, UNLIMITED, null, null, false);
+    }
+
+    /**
+     * rewrites an operator
+     *
+     * @param op       current operator
+     * @param limit    number of solutions needed by the enclosing query, UNLIMITED if all
+     * @param order    ordering under which the limit is to be taken, null if any
+     * @param required variables needed by the enclosing query, null if all
+     * @param distinct whether duplicates are removed by the enclosing query
+     * @return rewritten operator
+     */
+    protected static Op pushdown(Op op, long limit, List<SortCondition> order, Set<Var> required, boolean distinct) {
+        if (op instanceof OpSlice) {
+            OpSlice opSlice = (OpSlice) op;
+            long start = Math.max(0, opSlice.getStart());
+            long length = opSlice.getLength();
+            long needed = limit == UNLIMITED ? length : length < 0 ? limit : Math.min(length, limit);
+            return opSlice.copy(pushdown(opSlice.getSubOp(), needed < 0 ? UNLIMITED : start + needed, null, required, false));
+        } else if (op instanceof OpTopN) {
+            OpTopN opTopN = (OpTopN) op;
+            long needed = limit == UNLIMITED ? opTopN.getLimit() : Math.min(opTopN.getLimit(), limit);
+            return new OpTopN(pushdown(opTopN.getSubOp(), needed, opTopN.getConditions(), withOrder(required, opTopN.getConditions()), false),
+                    opTopN.getLimit(), opTopN.getConditions());
+        } else if (op instanceof OpOrder) {
+            OpOrder opOrder = (OpOrder) op;
+            if (limit == UNLIMITED) {
+                return op;
+            }
+            return opOrder.copy(pushdown(opOrder.getSubOp(), limit, opOrder.getConditions(), withOrder(required, opOrder.getConditions()), false));
+        } else if (op instanceof OpDistinct || op instanceof OpReduced) {
+            // the number of distinct solutions cannot be estimated from a limit
+            return ((Op1) op).copy(pushdown(((Op1) op).getSubOp(), UNLIMITED, null, required, true));
+        } else if (op instanceof OpProject) {
+            OpProject opProject = (OpProject) op;
+            Set<Var> projected = new LinkedHashSet<>(opProject.getVars());
+            if (required != null) {
+                projected.retainAll(required);
+            }
+            return opProject.copy(pushdown(opProject.getSubOp(), limit, order, projected, distinct));
+        } else if (op instanceof OpExtend) {
+            OpExtend opExtend = (OpExtend) op;
+            Set<Var> extended = null;
+            if (required != null) {
+                extended = new LinkedHashSet<>(required);
+                for (Var var : opExtend.getVarExprList().getVars()) {
+                    extended.addAll(opExtend.getVarExprList().getExpr(var).getVarsMentioned());
+                }
+            }
+            return opExtend.copy(pushdown(opExtend.getSubOp(), limit, order, extended, distinct));
+        } else if (op instanceof OpUnion) {
+            OpUnion opUnion = (OpUnion) op;
+            return OpUnion.create(pushdown(opUnion.getLeft(), limit, order, required, distinct),
+                    pushdown(opUnion.getRight(), limit, order, required, distinct));
+        } else if (op instanceof OpSequence) {
+            // the solutions of a sequence are the ones of its last part
+            OpSequence opSequence = (OpSequence) op;
+            List<Op> elements = new ArrayList<>(opSequence.getElements());
+            if (elements.isEmpty()) {
+                return op;
+            }
+            int last = elements.size() - 1;
+            elements.set(last, pushdown(elements.get(last), limit, order, null, false));
+            return opSequence.copy(elements);
+        } else if (op instanceof OpService) {
+            return pushdown((OpService) op, limit, order, required, distinct);
+        }
+        return op;
+    }
+
+    /**
+     * rewrites the pattern of a service call
+     *
+     * @param opService service call
+     * @param limit     number of solutions needed by the enclosing query, UNLIMITED if all
+     * @param order     ordering under which the limit is to be taken, null if any
+     * @param required  variables needed by the enclosing query, null if all
+     * @param distinct  whether duplicates are removed by the enclosing query
+     * @return rewritten service call
+     */
+    protected static Op pushdown(OpService opService, long limit, List<SortCondition> order, Set<Var> required, boolean distinct) {
+        Op pattern = opService.getSubOp();
+        Set<Var> visible = OpVars.visibleVars(pattern);
+        if (order != null && !order.stream().allMatch(condition -> visible.containsAll(condition.getExpression().getVarsMentioned()))) {
+            // the ordering depends on more than the service can see
+            order = null;
+            limit = UNLIMITED;
+        }
+        List<Var> projected = null;
+        if (required != null) {
+            projected = visible.stream().filter(required::contains).collect(Collectors.toList());
+            if (projected.isEmpty() || projected.size() == visible.size()) {
+                projected = null;
+            }
+        }
+        if (limit == UNLIMITED && projected == null && !distinct) {
+            return opService;
+        }
+        Op pushed = pattern;
+        if (pushed instanceof OpProject) {
+            // the service already projects, so we have to order below that projection
+            if (projected == null) {
+                projected = ((OpProject) pushed).getVars();
+            }
+            pushed = ((OpProject) pushed).getSubOp();
+        }
+        // the label separates the pushed modifiers from the ones of the original pattern
+        pushed = OpLabel.create(PUSHDOWN_LABEL, pushed);
+        if (order != null) {
+            pushed = new OpOrder(pushed, order);
+        }
+        if (projected != null) {
+            pushed = new OpProject(pushed, projected);
+        }
+        if (distinct) {
+            pushed = OpDistinct.create(pushed);
+        }
+        if (limit != UNLIMITED) {
+            pushed = new OpSlice(pushed, Query.NOLIMIT, limit);
+        }
+        return new OpService(opService.getService(), pushed, opService.getSilent());
+    }
+
+    /**
+     * adds the variables of sort conditions to the required ones
+     *
+     * @param required   variables needed by the enclosing query, null if all
+     * @param conditions sort conditions
+     * @return variables needed
+     */
+    protected static Set<Var> withOrder(Set<Var> required, List<SortCondition> conditions) {
+        if (required == null) {
+            return null;
+        }
+        Set<Var> result = new LinkedHashSet<>(required);
+        conditions.forEach(condition -> result.addAll(condition.getExpression().getVarsMentioned()));
+        return result;
+    }
+}
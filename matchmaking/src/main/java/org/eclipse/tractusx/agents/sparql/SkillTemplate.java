@@ -0,0 +1,225 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import jakarta.ws.rs.BadRequestException;
+import org.eclipse.tractusx.agents.Tuple;
+import org.eclipse.tractusx.agents.TupleSet;
+import org.eclipse.tractusx.agents.utils.Monitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A skill text which has been compiled once into a template of
+ * - constant text fragments
+ * - top-level parameters (@name) which are bound to the first tuple
+ * - tuple groups (parenthesized text with parameters) which are repeated for each tuple
+ * Binding a tuple set is then a single pass over the template.
+ */
+public class SkillTemplate {
+
+    public static final Pattern TUPLE_PATTERN = Pattern.compile("\\([^()]*\\)");
+    public static final Pattern VARIABLE_PATTERN = Pattern.compile("@(?<name>[a-zA-Z0-9]+)");
+
+    /**
+     * a parameter slot
+     */
+    protected static class Slot {
+        protected final String name;
+
+        protected Slot(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * a repeated group of fragments and slots
+     */
+    protected static class TupleGroup {
+        protected final List<Object> parts;
+        protected final String[] variables;
+
+        protected TupleGroup(List<Object> parts, String[] variables) {
+            this.parts = parts;
+            this.variables = variables;
+        }
+    }
+
+    protected final String skill;
+    // either String, Slot or TupleGroup
+    protected final List<Object> parts;
+    protected final String[] variables;
+    protected final int length;
+
+    protected SkillTemplate(String skill, List<Object> parts, String[] variables) {
+        this.skill = skill;
+        this.parts = parts;
+        this.variables = variables;
+        this.length = skill.length();
+    }
+
+    /**
+     * access
+     *
+     * @return the skill text the template has been compiled from
+     */
+    public String getSkill() {
+        return skill;
+    }
+
+    /**
+     * compiles a skill text
+     *
+     * @param skill the skill text
+     * @return template
+     */
+    public static SkillTemplate compile(String skill) {
+        List<Object> parts = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        Matcher tupleMatcher = TUPLE_PATTERN.matcher(skill);
+        int lastStart = 0;
+        while (tupleMatcher.find()) {
+            String tuple = tupleMatcher.group(0);
+            List<String> tupleVariables = new ArrayList<>();
+            List<Object> tupleParts = split(tuple, tupleVariables);
+            if (!tupleVariables.isEmpty()) {
+                parts.addAll(split(skill.substring(lastStart, tupleMatcher.start()), variables));
+                parts.add(new TupleGroup(tupleParts, tupleVariables.toArray(new String[0])));
+                lastStart = tupleMatcher.end();
+            }
+        }
+        parts.addAll(split(skill.substring(lastStart), variables));
+        return new SkillTemplate(skill, parts, variables.toArray(new String[0]));
+    }
+
+    /**
+     * splits a text into fragments and slots
+     *
+     * @param text      the text
+     * @param variables collects the names of the slots
+     * @return list of fragments (String) and slots
+     */
+    protected static List<Object> split(String text, List<String> variables) {
+        List<Object> parts = new ArrayList<>();
+        Matcher variableMatcher = VARIABLE_PATTERN.matcher(text);
+        int lastStart = 0;
+        while (variableMatcher.find()) {
+            if (variableMatcher.start() > lastStart) {
+                parts.add(text.substring(lastStart, variableMatcher.start()));
+            }
+            String name = variableMatcher.group("name");
+            parts.add(new Slot(name));
+            variables.add(name);
+            lastStart = variableMatcher.end();
+        }
+        if (text.length() > lastStart) {
+            parts.add(text.substring(lastStart));
+        }
+        return parts;
+    }
+
+    /**
+     * binds the parameters of the template
+     *
+     * @param ts      the tuple set of parameters
+     * @param monitor logging subsystem
+     * @return resulting query text
+     * @throws IllegalArgumentException if the tuple groups could not be bound
+     * @throws BadRequestException      if the top-level parameters could not be bound
+     */
+    public String bind(TupleSet ts, Monitor monitor) {
+        Tuple topLevel = null;
+        if (variables.length > 0) {
+            Collection<Tuple> tuples;
+            try {
+                tuples = ts.getTuples(variables);
+            } catch (Exception e) {
+                throw new BadRequestException("Error: Could not bind variables", e);
+            }
+            if (tuples.size() == 0) {
+                throw new BadRequestException(String.format("Error: Got variables %s on top-level but no bindings.", Arrays.toString(variables)));
+            } else if (tuples.size() > 1) {
+                monitor.warning(String.format("Got %s tuples for top-level bindings of variables %s. Using only the first one.", tuples.size(), Arrays.toString(variables)));
+            }
+            topLevel = tuples.iterator().next();
+        }
+        StringBuilder query = new StringBuilder(length);
+        for (Object part : parts) {
+            if (part instanceof TupleGroup) {
+                TupleGroup group = (TupleGroup) part;
+                Collection<Tuple> tuples;
+                try {
+                    tuples = ts.getTuples(group.variables);
+                } catch (Exception e) {
+                    throw new IllegalArgumentException(e.getMessage(), e);
+                }
+                boolean isFirst = true;
+                for (Tuple tuple : tuples) {
+                    if (isFirst) {
+                        isFirst = false;
+                    } else {
+                        query.append(' ');
+                    }
+                    append(query, group.parts, tuple);
+                }
+            } else if (part instanceof Slot) {
+                append(query, (Slot) part, topLevel);
+            } else {
+                query.append((String) part);
+            }
+        }
+        return query.toString();
+    }
+
+    /**
+     * renders a list of fragments and slots
+     *
+     * @param query target text
+     * @param parts fragments and slots
+     * @param tuple binding of the slots
+     */
+    protected static void append(StringBuilder query, List<Object> parts, Tuple tuple) {
+        for (Object part : parts) {
+            if (part instanceof Slot) {
+                append(query, (Slot) part, tuple);
+            } else {
+                query.append((String) part);
+            }
+        }
+    }
+
+    /**
+     * renders a slot, unbound slots are kept as they are
+     *
+     * @param query target text
+     * @param slot  the slot
+     * @param tuple binding of the slot
+     */
+    protected static void append(StringBuilder query, Slot slot, Tuple tuple) {
+        String value = tuple != null ? tuple.get(slot.name) : null;
+        if (value != null) {
+            query.append(value);
+        } else {
+            query.append('@').append(slot.name);
+        }
+    }
+}
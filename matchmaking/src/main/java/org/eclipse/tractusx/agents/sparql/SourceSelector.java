@@ -0,0 +1,331 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.op.Op1;
+import org.apache.jena.sparql.algebra.op.OpBGP;
+import org.apache.jena.sparql.algebra.op.OpConditional;
+import org.apache.jena.sparql.algebra.op.OpDiff;
+import org.apache.jena.sparql.algebra.op.OpGroup;
+import org.apache.jena.sparql.algebra.op.OpJoin;
+import org.apache.jena.sparql.algebra.op.OpLeftJoin;
+import org.apache.jena.sparql.algebra.op.OpMinus;
+import org.apache.jena.sparql.algebra.op.OpProject;
+import org.apache.jena.sparql.algebra.op.OpQuadPattern;
+import org.apache.jena.sparql.algebra.op.OpSequence;
+import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.algebra.op.OpTriple;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.system.Txn;
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.rdf.RdfStore;
+import org.eclipse.tractusx.agents.service.DataspaceSynchronizer;
+import org.eclipse.tractusx.agents.utils.Monitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+
+/**
+ * Decides on the basis of the synchronized catalogue (the shacl shapes
+ * attached to the offered assets) whether a dataspace target is able
+ * to answer a service pattern at all.
+ */
+public class SourceSelector {
+
+    public static final Node SHACL_PATH = NodeFactory.createURI(DataspaceSynchronizer.SHACL_NAMESPACE + "path");
+    public static final Node SHACL_TARGET_CLASS = NodeFactory.createURI(DataspaceSynchronizer.SHACL_NAMESPACE + "targetClass");
+    public static final Node SHACL_PROPERTY = NodeFactory.createURI(DataspaceSynchronizer.SHACL_NAMESPACE + "property");
+    public static final Node SHACL_CLOSED = NodeFactory.createURI(DataspaceSynchronizer.SHACL_NAMESPACE + "closed");
+    public static final Node CLOSED = NodeFactory.createLiteralByValue(true, XSDDatatype.XSDboolean);
+    public static final Node SHACL_IGNORED_PROPERTIES = NodeFactory.createURI(DataspaceSynchronizer.SHACL_NAMESPACE + "ignoredProperties");
+    public static final Node RDF_FIRST = NodeFactory.createURI(DataspaceSynchronizer.RDF_NAMESPACE + "first");
+    public static final Node RDF_REST = NodeFactory.createURI(DataspaceSynchronizer.RDF_NAMESPACE + "rest");
+    public static final Node RDF_NIL = NodeFactory.createURI(DataspaceSynchronizer.RDF_NAMESPACE + "nil");
+    public static final Node RDFS_SUBCLASS_OF = NodeFactory.createURI("http://www.w3.org/2000/01/rdf-schema#subClassOf");
+
+    protected final RdfStore rdfStore;
+    protected final AgentConfig config;
+    protected final Monitor monitor;
+
+    /**
+     * the predicates and classes which a service pattern cannot do without
+     * (overall and per subject of the triple patterns)
+     */
+    public static class Requirements {
+        protected final Set<Node> predicates = new HashSet<>();
+        protected final Set<Node> classes = new HashSet<>();
+        protected final Map<Node, Set<Node>> subjectPredicates = new HashMap<>();
+        protected final Map<Node, Set<Node>> subjectClasses = new HashMap<>();
+
+        public Set<Node> getPredicates() {
+            return predicates;
+        }
+
+        public Set<Node> getClasses() {
+            return classes;
+        }
+
+        public Map<Node, Set<Node>> getSubjectPredicates() {
+            return subjectPredicates;
+        }
+
+        public Map<Node, Set<Node>> getSubjectClasses() {
+            return subjectClasses;
+        }
+
+        public boolean isEmpty() {
+            return predicates.isEmpty() && classes.isEmpty();
+        }
+
+        /**
+         * adds the requirements of a sub-select such that its hidden
+         * variables are not confused with the variables of this scope
+         *
+         * @param inner   requirements of the sub-select
+         * @param visible the projected variables of the sub-select
+         */
+        protected void merge(Requirements inner, List<Var> visible) {
+            predicates.addAll(inner.predicates);
+            classes.addAll(inner.classes);
+            Map<Node, Node> renaming = new HashMap<>();
+            Function<Node, Node> rename = subject -> subject.isVariable() && !visible.contains(subject)
+                    ? renaming.computeIfAbsent(subject, hidden -> NodeFactory.createBlankNode()) : subject;
+            inner.subjectPredicates.forEach((subject, nodes) ->
+                    subjectPredicates.computeIfAbsent(rename.apply(subject), key -> new HashSet<>()).addAll(nodes));
+            inner.subjectClasses.forEach((subject, nodes) ->
+                    subjectClasses.computeIfAbsent(rename.apply(subject), key -> new HashSet<>()).addAll(nodes));
+        }
+    }
+
+    /**
+     * creates a new selector
+     *
+     * @param rdfStore store holding the synchronized catalogue
+     * @param config   agent config
+     * @param monitor  logging subsystem
+     */
+    public SourceSelector(RdfStore rdfStore, AgentConfig config, Monitor monitor) {
+        this.rdfStore = rdfStore;
+        this.config = config;
+        this.monitor = monitor;
+    }
+
+    /**
+     * computes the requirements of a service pattern
+     *
+     * @param op the pattern to be sent to the target
+     * @return requirements, empty if the selection is switched off
+     */
+    public Requirements getRequirements(Op op) {
+        Requirements requirements = new Requirements();
+        if (config.isFederationSourceSelection()) {
+            collectRequirements(op, requirements);
+        }
+        return requirements;
+    }
+
+    /**
+     * collects the predicates and classes of all triple patterns which
+     * must match for the pattern to produce a result. Optional and
+     * alternative parts, nested services and aggregations (which
+     * produce results on empty input) are not considered.
+     *
+     * @param op           current operator
+     * @param requirements to add to
+     */
+    protected static void collectRequirements(Op op, Requirements requirements) {
+        if (op instanceof OpBGP) {
+            ((OpBGP) op).getPattern().forEach(triple -> addRequirement(triple, requirements));
+        } else if (op instanceof OpTriple) {
+            addRequirement(((OpTriple) op).getTriple(), requirements);
+        } else if (op instanceof OpQuadPattern) {
+            ((OpQuadPattern) op).getPattern().forEach(quad -> addRequirement(quad.asTriple(), requirements));
+        } else if (op instanceof OpJoin) {
+            collectRequirements(((OpJoin) op).getLeft(), requirements);
+            collectRequirements(((OpJoin) op).getRight(), requirements);
+        } else if (op instanceof OpSequence) {
+            ((OpSequence) op).getElements().forEach(element -> collectRequirements(element, requirements));
+        } else if (op instanceof OpLeftJoin) {
+            collectRequirements(((OpLeftJoin) op).getLeft(), requirements);
+        } else if (op instanceof OpConditional) {
+            collectRequirements(((OpConditional) op).getLeft(), requirements);
+        } else if (op instanceof OpMinus) {
+            collectRequirements(((OpMinus) op).getLeft(), requirements);
+        } else if (op instanceof OpDiff) {
+            collectRequirements(((OpDiff) op).getLeft(), requirements);
+        } else if (op instanceof OpProject) {
+            Requirements inner = new Requirements();
+            collectRequirements(((OpProject) op).getSubOp(), inner);
+            requirements.merge(inner, ((OpProject) op).getVars());
+        } else if (op instanceof Op1 && !(op instanceof OpService) && !(op instanceof OpGroup)) {
+            collectRequirements(((Op1) op).getSubOp(), requirements);
+        }
+    }
+
+    /**
+     * adds the constant predicate or class of a triple pattern
+     *
+     * @param triple       the triple pattern
+     * @param requirements to add to
+     */
+    protected static void addRequirement(Triple triple, Requirements requirements) {
+        Node predicate = triple.getPredicate();
+        Node subject = triple.getSubject();
+        if (DataspaceSynchronizer.RDF_TYPE.equals(predicate)) {
+            if (triple.getObject().isURI()) {
+                requirements.classes.add(triple.getObject());
+                requirements.subjectClasses.computeIfAbsent(subject, key -> new HashSet<>()).add(triple.getObject());
+            }
+        } else if (predicate.isURI()) {
+            requirements.predicates.add(predicate);
+            requirements.subjectPredicates.computeIfAbsent(subject, key -> new HashSet<>()).add(predicate);
+        }
+    }
+
+    /**
+     * checks whether a target could contribute to a service pattern. As shapes
+     * only describe some of the data of an asset, a target is only pruned if a
+     * subject of the pattern is required to be an instance of a class which is
+     * targeted by a closed shape of the asset (so that the subject is a focus node
+     * of that shape) and the pattern requires a predicate for that subject
+     * which the closed shape does not allow. Connector-level targets and targets
+     * which are not (or not yet) described in the catalogue are always assumed to contribute.
+     *
+     * @param serviceUrl   the target
+     * @param requirements of the service pattern
+     * @return false if the target is known to produce no result
+     */
+    public boolean canContribute(String serviceUrl, Requirements requirements) {
+        if (requirements.isEmpty()) {
+            return true;
+        }
+        Matcher matcher = DataspaceServiceExecutor.EDC_TARGET_ADDRESS_PATTERN.matcher(serviceUrl);
+        if (!matcher.matches() || matcher.group("protocol") == null) {
+            return true;
+        }
+        String asset = matcher.group("asset");
+        if (asset == null || asset.isEmpty()) {
+            // the connector may offer further (e.g., federated) assets than the catalogued ones
+            return true;
+        }
+        Node connector = NodeFactory.createURI(matcher.group("protocol") + "://" + matcher.group("connector"));
+        Node assetNode = NodeFactory.createURI(asset);
+        Node graph = rdfStore.getDefaultGraph();
+        // selection happens while the query holds a read transaction on the store
+        DatasetGraph dataset = rdfStore.getDataSet();
+        return Txn.calculateRead(dataset, () -> {
+            if (!dataset.contains(graph, connector, DataspaceSynchronizer.CX_ASSET, assetNode)) {
+                return true;
+            }
+            // the allowed predicates of the closed shapes of the asset per target class
+            Map<Node, List<Set<Node>>> closedShapes = new HashMap<>();
+            Iterator<Quad> shapeQuads = dataset.find(graph, assetNode, DataspaceSynchronizer.SHAPE_OBJECT, Node.ANY);
+            while (shapeQuads.hasNext()) {
+                Node shape = shapeQuads.next().getObject();
+                if (dataset.contains(graph, shape, SHACL_CLOSED, CLOSED) && dataset.contains(graph, shape, SHACL_TARGET_CLASS, Node.ANY)) {
+                    Set<Node> allowed = getAllowedPredicates(dataset, graph, shape);
+                    dataset.find(graph, shape, SHACL_TARGET_CLASS, Node.ANY).forEachRemaining(quad ->
+                            closedShapes.computeIfAbsent(quad.getObject(), key -> new ArrayList<>()).add(allowed));
+                }
+            }
+            if (closedShapes.isEmpty()) {
+                return true;
+            }
+            for (Map.Entry<Node, Set<Node>> subject : requirements.getSubjectPredicates().entrySet()) {
+                Set<Node> classes = requirements.getSubjectClasses().get(subject.getKey());
+                if (classes == null) {
+                    continue;
+                }
+                for (Node required : classes) {
+                    // instances of sub classes are focus nodes of the shapes targeting the super class
+                    for (Node targetClass : getSuperClasses(dataset, required)) {
+                        for (Set<Node> allowed : closedShapes.getOrDefault(targetClass, List.of())) {
+                            if (!allowed.containsAll(subject.getValue())) {
+                                return false;
+                            }
+                        }
+                    }
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * computes the predicates which a closed shape allows for its focus nodes,
+     * i.e., the iri paths of its property shapes and its ignored properties
+     *
+     * @param dataset the store
+     * @param graph   the graph of the catalogue
+     * @param shape   the closed node shape
+     * @return set of allowed predicates
+     */
+    protected static Set<Node> getAllowedPredicates(DatasetGraph dataset, Node graph, Node shape) {
+        Set<Node> allowed = new HashSet<>();
+        dataset.find(graph, shape, SHACL_PROPERTY, Node.ANY).forEachRemaining(property ->
+                dataset.find(graph, property.getObject(), SHACL_PATH, Node.ANY).forEachRemaining(path -> {
+                    if (path.getObject().isURI()) {
+                        allowed.add(path.getObject());
+                    }
+                }));
+        Iterator<Quad> ignored = dataset.find(graph, shape, SHACL_IGNORED_PROPERTIES, Node.ANY);
+        while (ignored.hasNext()) {
+            Set<Node> visited = new HashSet<>();
+            Node list = ignored.next().getObject();
+            while (!RDF_NIL.equals(list) && visited.add(list)) {
+                dataset.find(graph, list, RDF_FIRST, Node.ANY).forEachRemaining(member -> allowed.add(member.getObject()));
+                Iterator<Quad> rest = dataset.find(graph, list, RDF_REST, Node.ANY);
+                list = rest.hasNext() ? rest.next().getObject() : RDF_NIL;
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * computes the transitive super classes of a class
+     *
+     * @param dataset the store
+     * @param clazz   the class
+     * @return all super classes including the class itself
+     */
+    protected static Set<Node> getSuperClasses(DatasetGraph dataset, Node clazz) {
+        Set<Node> result = new HashSet<>();
+        List<Node> open = new ArrayList<>();
+        open.add(clazz);
+        while (!open.isEmpty()) {
+            Node current = open.remove(open.size() - 1);
+            if (result.add(current)) {
+                dataset.find(Node.ANY, current, RDFS_SUBCLASS_OF, Node.ANY).forEachRemaining(quad -> open.add(quad.getObject()));
+            }
+        }
+        return result;
+    }
+}
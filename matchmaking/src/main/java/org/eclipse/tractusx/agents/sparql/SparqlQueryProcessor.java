@@ -38,10 +38,12 @@ import org.apache.jena.sparql.ARQConstants;
 import org.apache.jena.sparql.algebra.optimize.RewriteFactory;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
+import org.apache.jena.sparql.engine.main.OpExecutorFactory;
+import org.apache.jena.sparql.engine.main.QC;
 import org.apache.jena.sparql.service.ServiceExecutorRegistry;
+import org.apache.jena.sparql.util.Context;
 import org.eclipse.tractusx.agents.AgentConfig;
 import org.eclipse.tractusx.agents.MonitorWrapper;
-import org.eclipse.tractusx.agents.Tuple;
 import org.eclipse.tractusx.agents.TupleSet;
 import org.eclipse.tractusx.agents.http.AgentHttpAction;
 import org.eclipse.tractusx.agents.http.HttpServletContextAdapter;
@@ -53,13 +55,18 @@ import org.eclipse.tractusx.agents.rdf.RdfStore;
 import org.eclipse.tractusx.agents.utils.Monitor;
 import org.eclipse.tractusx.agents.utils.TypeManager;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -84,11 +91,20 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
     protected final OperationRegistry operationRegistry = OperationRegistry.createEmpty();
     protected final DataAccessPointRegistry dataAccessPointRegistry = new DataAccessPointRegistry();
     protected final RewriteFactory optimizerFactory = new OptimizerFactory();
+    // runs internal queries whose results are streamed back to the caller, further queries are rejected
+    protected final ExecutorService transferExecutor;
+
+    // evaluates independent service branches of queries, branches without thread run on the query thread
+    protected final ExecutorService branchExecutor;
 
     // map EDC monitor to SLF4J (better than the builtin MonitorProvider)
     private final MonitorWrapper monitorWrapper;
     // some state to set when interacting with Fuseki
     protected final RdfStore rdfStore;
+    // cardinalities for ordering federated joins, null if switched off
+    protected final CardinalityStatistics statistics;
+    // concurrent evaluation of service branches, null if switched off
+    protected final OpExecutorFactory opExecutorFactory;
     private long count = -1;
 
     public static final String UNSET_BASE = "http://server/unset-base/";
@@ -104,15 +120,60 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
      * @param monitor  EDC logging
      */
     public SparqlQueryProcessor(ServiceExecutorRegistry registry, Monitor monitor, AgentConfig config, RdfStore rdfStore, TypeManager typeManager) {
+        this(registry, monitor, config, rdfStore, typeManager, new AdaptiveBatchSize(config, monitor));
+    }
+
+    /**
+     * create a new sparql processor
+     *
+     * @param registry   service execution registry
+     * @param monitor    EDC logging
+     * @param batchSizes batch sizes per target, shared with the service executor
+     */
+    public SparqlQueryProcessor(ServiceExecutorRegistry registry, Monitor monitor, AgentConfig config, RdfStore rdfStore, TypeManager typeManager, AdaptiveBatchSize batchSizes) {
         this.monitor = monitor;
         this.registry = registry;
         this.config = config;
         this.monitorWrapper = new MonitorWrapper(getClass().getName(), monitor);
         this.rdfStore = rdfStore;
+        // transfers are never queued: a nested query (e.g., a service calling back into
+        // this agent) would otherwise wait behind the very threads which wait for it
+        this.transferExecutor = new ThreadPoolExecutor(0, config.getTransferThreads(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "sparql-transfer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.branchExecutor = new ThreadPoolExecutor(0, config.getFederationBranchThreads(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "sparql-branch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.statistics = config.isFederationJoinOrdering() ? new CardinalityStatistics(rdfStore, config, monitor) : null;
+        this.opExecutorFactory = config.isFederationParallelBranches() ? new FederatedOpExecutorFactory(branchExecutor, batchSizes) : null;
         this.objectMapper = typeManager.getMapper();
         dataAccessPointRegistry.register(rdfStore.getDataAccessPoint());
     }
 
+    /**
+     * installs the federation-specific optimization, execution and memo into a query context
+     *
+     * @param context the context of the query
+     */
+    protected void setFederationContext(Context context) {
+        context.set(ARQConstants.sysOptimizerFactory, optimizerFactory);
+        context.set(CardinalityStatistics.STATISTICS_SYMBOL, statistics);
+        context.set(ServicePushdown.PUSHDOWN_SYMBOL, config.isFederationPushdown());
+        if (opExecutorFactory != null) {
+            QC.setFactory(context, opExecutorFactory);
+        }
+        if (config.getFederationMemoRows() > 0) {
+            String spill = config.getFederationMemoSpill();
+            ServiceMemo.setMemo(context, new ServiceMemo(config.getFederationMemoRows(), spill != null ? Path.of(spill) : null, monitor));
+        }
+    }
+
     /**
      * access
      *
@@ -160,14 +221,39 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
      * @param graph    graph ref
      */
     public void execute(HttpServletRequest request, HttpServletResponse response, String skill, String graph) {
+        execute(request, response, skill, null, graph);
+    }
+
+    /**
+     * execute sparql based on the given request and response
+     *
+     * @param request  jakarta request
+     * @param response jakarta response
+     * @param skill    stored skill, compiled already
+     * @param graph    graph ref
+     */
+    public void execute(HttpServletRequest request, HttpServletResponse response, SkillTemplate skill, String graph) {
+        execute(request, response, skill.getSkill(), skill, graph);
+    }
+
+    /**
+     * execute sparql based on the given request and response
+     *
+     * @param request  jakarta request
+     * @param response jakarta response
+     * @param skill    skill ref
+     * @param template compiled skill, null if not stored
+     * @param graph    graph ref
+     */
+    protected void execute(HttpServletRequest request, HttpServletResponse response, String skill, SkillTemplate template, String graph) {
         request.getServletContext().setAttribute(Fuseki.attrVerbose, config.isSparqlVerbose());
         request.getServletContext().setAttribute(Fuseki.attrOperationRegistry, operationRegistry);
         request.getServletContext().setAttribute(Fuseki.attrNameRegistry, dataAccessPointRegistry);
-        AgentHttpAction action = new AgentHttpAction(++count, monitorWrapper, getJavaxRequest(request), getJavaxResponse(response), skill, graph);
+        AgentHttpAction action = new AgentHttpAction(++count, monitorWrapper, getJavaxRequest(request), getJavaxResponse(response), skill, template, graph);
         // Should we check whether this already has been done? the context should be quite static
         action.setRequest(rdfStore.getDataAccessPoint(), rdfStore.getDataService());
         ServiceExecutorRegistry.set(action.getContext(), registry);
-        action.getContext().set(ARQConstants.sysOptimizerFactory, optimizerFactory);
+        setFederationContext(action.getContext());
         List<CatenaxWarning> previous = CatenaxWarning.getWarnings(action.getContext());
         CatenaxWarning.setWarnings(action.getContext(), null);
         try {
@@ -186,6 +272,7 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
             throw new InternalServerErrorException(e.getMessage(), e.getCause());
         } finally {
             CatenaxWarning.setWarnings(action.getContext(), previous);
+            ServiceMemo.release(action.getContext());
         }
     }
     
@@ -211,7 +298,7 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
         action.getContext().set(DataspaceServiceExecutor.TARGET_URL_SYMBOL, targetProperties.getOrDefault(DataspaceServiceExecutor.TARGET_URL_SYMBOL.getSymbol(), null));
         action.getContext().set(DataspaceServiceExecutor.AUTH_KEY_SYMBOL, targetProperties.getOrDefault(DataspaceServiceExecutor.AUTH_KEY_SYMBOL.getSymbol(), null));
         action.getContext().set(DataspaceServiceExecutor.AUTH_CODE_SYMBOL, targetProperties.getOrDefault(DataspaceServiceExecutor.AUTH_CODE_SYMBOL.getSymbol(), null));
-        action.getContext().set(ARQConstants.sysOptimizerFactory, optimizerFactory);
+        setFederationContext(action.getContext());
         if (targetProperties.containsKey(DataspaceServiceExecutor.ALLOW_SYMBOL.getSymbol())) {
             action.getContext().set(DataspaceServiceExecutor.ALLOW_SYMBOL,
                     Pattern.compile(String.valueOf(targetProperties.get(DataspaceServiceExecutor.ALLOW_SYMBOL.getSymbol()))));
@@ -255,6 +342,7 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
             }
         } finally {
             CatenaxWarning.setWarnings(action.getContext(), previous);
+            ServiceMemo.release(action.getContext());
         }
         return;
     }
@@ -289,7 +377,7 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
         // wrap jakarta into java.servlet
         HttpServletContextAdapter contextAdapter = new HttpServletContextAdapter(request);
         HttpServletRequestAdapter requestAdapter = new HttpServletRequestAdapter(request, contextAdapter);
-        HttpServletResponseAdapter responseAdapter = new HttpServletResponseAdapter(request);
+        HttpServletResponseAdapter responseAdapter = new HttpServletResponseAdapter(request, config.getTransferBufferSize(), config.getReadTimeout());
         contextAdapter.setAttribute(Fuseki.attrVerbose, config.isSparqlVerbose());
         contextAdapter.setAttribute(Fuseki.attrOperationRegistry, operationRegistry);
         contextAdapter.setAttribute(Fuseki.attrNameRegistry, dataAccessPointRegistry);
@@ -301,7 +389,7 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
         action.getContext().set(DataspaceServiceExecutor.TARGET_URL_SYMBOL, request.header(DataspaceServiceExecutor.TARGET_URL_SYMBOL.getSymbol()));
         action.getContext().set(DataspaceServiceExecutor.AUTH_KEY_SYMBOL, targetProperties.getOrDefault(DataspaceServiceExecutor.AUTH_KEY_SYMBOL.getSymbol(), null));
         action.getContext().set(DataspaceServiceExecutor.AUTH_CODE_SYMBOL, targetProperties.getOrDefault(DataspaceServiceExecutor.AUTH_CODE_SYMBOL.getSymbol(), null));
-        action.getContext().set(ARQConstants.sysOptimizerFactory, optimizerFactory);
+        setFederationContext(action.getContext());
         if (targetProperties.containsKey(DataspaceServiceExecutor.ALLOW_SYMBOL.getSymbol())) {
             action.getContext().set(DataspaceServiceExecutor.ALLOW_SYMBOL,
                     Pattern.compile(String.valueOf(targetProperties.get(DataspaceServiceExecutor.ALLOW_SYMBOL.getSymbol()))));
@@ -320,25 +408,74 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
         List<CatenaxWarning> previous = CatenaxWarning.getWarnings(action.getContext());
         CatenaxWarning.setWarnings(action.getContext(), null);
 
-        // and finally execute the SPARQL action
-        try {
-            executeAction(action);
+        // status and headers are fixed as soon as the first buffer of results is
+        // handed out, so warnings arising later in a large result are not reported
+        responseAdapter.onCommit(adapter -> {
             List<CatenaxWarning> newWarnings = CatenaxWarning.getWarnings(action.getContext());
             if (newWarnings != null) {
-                responseAdapter.addHeader("cx_warnings", objectMapper.writeValueAsString(newWarnings));
-                responseAdapter.addHeader("Access-Control-Expose-Headers", "cx_warnings, content-length, content-type");
+                // concurrent branches may still be adding warnings
+                synchronized (newWarnings) {
+                    newWarnings = new ArrayList<>(newWarnings);
+                }
+                try {
+                    adapter.addHeader("cx_warnings", objectMapper.writeValueAsString(newWarnings));
+                    adapter.addHeader("Access-Control-Expose-Headers", "cx_warnings, content-length, content-type");
+                } catch (JsonProcessingException e) {
+                    monitor.warning("Could not render warnings", e);
+                }
             }
-            if (responseAdapter.getStatus() == 200) {
-                responseAdapter.setStatus(203);
+            if (adapter.getStatus() == 200) {
+                adapter.setStatus(203);
             }
-        } catch (ActionErrorException e) {
-            responseAdapter.setStatus(HttpStatus.SC_BAD_REQUEST, e.getMessage());
-        } catch (QueryExecException | JsonProcessingException | QueryExceptionHTTP e) {
-            responseAdapter.setStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR, e.getMessage());
-        } finally {
+        });
+
+        // and finally execute the SPARQL action while the caller consumes the response
+        try {
+            transferExecutor.execute(() -> {
+                try {
+                    executeAction(action);
+                } catch (ActionErrorException e) {
+                    failTransfer(responseAdapter, HttpStatus.SC_BAD_REQUEST, e);
+                } catch (RuntimeException e) {
+                    failTransfer(responseAdapter, HttpStatus.SC_INTERNAL_SERVER_ERROR, e);
+                } finally {
+                    responseAdapter.complete();
+                    CatenaxWarning.setWarnings(action.getContext(), previous);
+                    ServiceMemo.release(action.getContext());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // all transfer threads are busy, so rather fail fast than block
+            monitor.warning(String.format("Rejecting internal query as all %d transfer threads are busy", config.getTransferThreads()));
+            failTransfer(responseAdapter, HttpStatus.SC_SERVICE_UNAVAILABLE, e);
+            responseAdapter.complete();
             CatenaxWarning.setWarnings(action.getContext(), previous);
+            ServiceMemo.release(action.getContext());
+        }
+        try {
+            return responseAdapter.getResponse();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Interrupted while waiting for the query result", e);
+        } catch (ExecutionException e) {
+            throw new InternalServerErrorException("Could not obtain the query result", e.getCause());
+        }
+    }
+
+    /**
+     * reports a failed internal query
+     *
+     * @param responseAdapter the response
+     * @param status          the error status if the response has not been committed
+     * @param e               the failure
+     */
+    protected void failTransfer(HttpServletResponseAdapter responseAdapter, int status, Exception e) {
+        if (responseAdapter.isCommitted()) {
+            monitor.warning(String.format("Aborting already committed transfer because of %s", e.getMessage()), e);
+            responseAdapter.abort();
+        } else {
+            responseAdapter.setStatus(status, e.getMessage());
         }
-        return responseAdapter.toResponse();
     }
 
     /**
@@ -380,6 +517,7 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
      */
     @Override
     protected void execute(String queryString, HttpAction action) {
+        SkillTemplate template = ((AgentHttpAction) action).getTemplate();
         // make sure the query param is decoded (which Fuseki sometimes forgets)
         queryString = HttpUtils.urlDecodeParameter(queryString);
         // support for the special www-forms form
@@ -393,69 +531,17 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
                 queryString = HttpUtils.urlDecodeParameter(query.get());
             }
         }
-        TupleSet ts = ((AgentHttpAction) action).getInputBindings();
-        Pattern tuplePattern = Pattern.compile("\\([^()]*\\)");
-        Pattern variablePattern = Pattern.compile("@(?<name>[a-zA-Z0-9]+)");
-        Matcher tupleMatcher = tuplePattern.matcher(queryString);
-        StringBuilder replaceQuery = new StringBuilder();
-        int lastStart = 0;
-        while (tupleMatcher.find()) {
-            replaceQuery.append(queryString.substring(lastStart, tupleMatcher.start()));
-            String otuple = tupleMatcher.group(0);
-            Matcher variableMatcher = variablePattern.matcher(otuple);
-            List<String> variables = new java.util.ArrayList<>();
-            while (variableMatcher.find()) {
-                variables.add(variableMatcher.group("name"));
-            }
-            if (variables.size() > 0) {
-                try {
-                    boolean isFirst = true;
-                    Collection<Tuple> tuples = ts.getTuples(variables.toArray(new String[0]));
-                    for (Tuple rtuple : tuples) {
-                        if (isFirst) {
-                            isFirst = false;
-                        } else {
-                            replaceQuery.append(" ");
-                        }
-                        String newTuple = otuple;
-                        for (String key : rtuple.getVariables()) {
-                            newTuple = newTuple.replace("@" + key, rtuple.get(key));
-                        }
-                        replaceQuery.append(newTuple);
-                    }
-                } catch (Exception e) {
-                    System.err.println(e.getMessage());
-                    action.getResponse().setStatus(HttpStatus.SC_BAD_REQUEST);
-                    return;
-                }
-            } else {
-                replaceQuery.append(otuple);
-            }
-            lastStart = tupleMatcher.end();
-        }
-        replaceQuery.append(queryString.substring(lastStart));
-
-        queryString = replaceQuery.toString();
-        Matcher variableMatcher = variablePattern.matcher(queryString);
-        List<String> variables = new java.util.ArrayList<>();
-        while (variableMatcher.find()) {
-            variables.add(variableMatcher.group("name"));
+        if (template == null || !template.getSkill().equals(queryString)) {
+            // ad-hoc queries (and stored skills which have been rewritten above) are compiled for this request only
+            template = SkillTemplate.compile(queryString);
         }
+        TupleSet ts = ((AgentHttpAction) action).getInputBindings();
         try {
-            Collection<Tuple> tuples = ts.getTuples(variables.toArray(new String[0]));
-            if (tuples.size() == 0 && variables.size() > 0) {
-                throw new BadRequestException(String.format("Error: Got variables %s on top-level but no bindings.", Arrays.toString(variables.toArray())));
-            } else if (tuples.size() > 1) {
-                System.err.println(String.format("Warning: Got %s tuples for top-level bindings of variables %s. Using only the first one.", tuples.size(), Arrays.toString(variables.toArray())));
-            }
-            if (tuples.size() > 0) {
-                Tuple rtuple = tuples.iterator().next();
-                for (String key : rtuple.getVariables()) {
-                    queryString = queryString.replace("@" + key, rtuple.get(key));
-                }
-            }
-        } catch (Exception e) {
-            throw new BadRequestException(String.format("Error: Could not bind variables"), e);
+            queryString = template.bind(ts, monitor);
+        } catch (IllegalArgumentException e) {
+            monitor.warning(String.format("Could not bind skill parameters because of %s", e.getMessage()), e);
+            action.getResponse().setStatus(HttpStatus.SC_BAD_REQUEST);
+            return;
         }
 
         //
@@ -471,8 +557,8 @@ public class SparqlQueryProcessor extends SPARQL_QueryGeneral.SPARQL_QueryProc {
                 asset = asset.replace("?", "\\?");
                 String graphPattern = String.format("GRAPH\\s*\\<?(%s)?%s\\>?", UNSET_BASE, asset);
                 Matcher graphMatcher = Pattern.compile(graphPattern).matcher(queryString);
-                replaceQuery = new StringBuilder();
-                lastStart = 0;
+                StringBuilder replaceQuery = new StringBuilder();
+                int lastStart = 0;
                 while (graphMatcher.find()) {
                     replaceQuery.append(queryString.substring(lastStart, graphMatcher.start() - 1));
                     replaceQuery.append(String.format("SERVICE <%s>", targetUrl));
@@ -0,0 +1,120 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.utils;
+
+import com.nimbusds.jose.JWSObject;
+
+import java.text.ParseException;
+
+/**
+ * An endpoint data reference in the agreement cache
+ * together with its (once decoded) token expiry
+ */
+public class CachedEndpoint {
+
+    private final EndpointDataReference reference;
+    private final String remoteUrl;
+    private final long expiry;
+    private final long created;
+    private volatile long lastAccess;
+
+    /**
+     * creates a new cache entry
+     *
+     * @param reference the endpoint data reference
+     * @param remoteUrl connector from which the reference was negotiated, may be null
+     * @param expiry    token expiry in milliseconds since the epoch, 0 if invalid
+     * @param created   time of insertion in milliseconds since the epoch
+     */
+    public CachedEndpoint(EndpointDataReference reference, String remoteUrl, long expiry, long created) {
+        this.reference = reference;
+        this.remoteUrl = remoteUrl;
+        this.expiry = expiry;
+        this.created = created;
+        this.lastAccess = created;
+    }
+
+    /**
+     * creates a new cache entry by decoding the token expiry
+     *
+     * @param reference the endpoint data reference
+     * @param remoteUrl connector from which the reference was negotiated, may be null
+     * @return cache entry
+     */
+    public static CachedEndpoint of(EndpointDataReference reference, String remoteUrl) {
+        return new CachedEndpoint(reference, remoteUrl, decodeExpiry(reference.getAuthCode()), System.currentTimeMillis());
+    }
+
+    /**
+     * decodes the expiry of a jwt token
+     *
+     * @param token the jwt token
+     * @return expiry in milliseconds since the epoch, 0 if the token is invalid
+     */
+    public static long decodeExpiry(String token) {
+        if (token != null) {
+            try {
+                JWSObject jwt = JWSObject.parse(token);
+                Object expiryObject = jwt.getPayload().toJSONObject().get("exp");
+                if (expiryObject instanceof Long) {
+                    // token times are in seconds
+                    return (Long) expiryObject * 1000;
+                }
+            } catch (ParseException | NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    public EndpointDataReference getReference() {
+        return reference;
+    }
+
+    public String getRemoteUrl() {
+        return remoteUrl;
+    }
+
+    public long getExpiry() {
+        return expiry;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * marks the entry as being used
+     */
+    public void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * check validity
+     *
+     * @param time point in time in milliseconds since the epoch
+     * @return whether the token will still be valid at the given time
+     */
+    public boolean isValidAt(long time) {
+        return expiry >= time;
+    }
+}
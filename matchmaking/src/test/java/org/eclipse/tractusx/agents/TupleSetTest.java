@@ -0,0 +1,117 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the lazy explosion of tuple sets
+ */
+public class TupleSetTest {
+
+    /**
+     * renders the tuples of an explosion (and checks the announced size)
+     */
+    private List<String> render(Collection<Tuple> tuples, String... variables) {
+        List<String> result = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            StringBuilder row = new StringBuilder();
+            for (String variable : variables) {
+                row.append(variable).append('=').append(tuple.get(variable)).append(';');
+            }
+            result.add(row.toString());
+        }
+        assertEquals(result.size(), tuples.size(), "Size should match the produced tuples");
+        return result;
+    }
+
+    @Test
+    public void testOwnVariablesOrder() throws Exception {
+        TupleSet ts = new TupleSet();
+        ts.add("a", "1");
+        ts.add("a", "2");
+        ts.add("b", "x");
+        ts.add("b", "y");
+        // the first variable varies fastest
+        assertEquals(List.of("a=1;b=x;", "a=2;b=x;", "a=1;b=y;", "a=2;b=y;"),
+                render(ts.getTuples("a", "b"), "a", "b"));
+    }
+
+    @Test
+    public void testNestedOrder() throws Exception {
+        TupleSet first = new TupleSet();
+        first.add("n", "1");
+        first.add("n", "2");
+        TupleSet second = new TupleSet();
+        second.add("n", "3");
+        TupleSet ts = new TupleSet();
+        ts.merge(first);
+        ts.merge(second);
+        ts.add("c", "x");
+        ts.add("c", "y");
+        // the union of the nested sets varies fastest, then the own variables
+        assertEquals(List.of("c=x;n=1;", "c=x;n=2;", "c=x;n=3;", "c=y;n=1;", "c=y;n=2;", "c=y;n=3;"),
+                render(ts.getTuples("c", "n"), "c", "n"));
+    }
+
+    @Test
+    public void testIteratesRepeatedly() throws Exception {
+        TupleSet ts = new TupleSet();
+        ts.add("a", "1");
+        ts.add("a", "2");
+        Collection<Tuple> tuples = ts.getTuples("a");
+        assertEquals(render(tuples, "a"), render(tuples, "a"), "The explosion should be iterable several times");
+    }
+
+    @Test
+    public void testUnrequestedVariables() throws Exception {
+        TupleSet ts = new TupleSet();
+        ts.add("a", "1");
+        ts.add("b", "x");
+        Collection<Tuple> tuples = ts.getTuples("a");
+        assertEquals(List.of("a=1;b=null;"), render(tuples, "a", "b"));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertTrue(new TupleSet().getTuples("a").isEmpty(), "An empty tuple set should not explode");
+    }
+
+    @Test
+    public void testDuplicateVariable() throws Exception {
+        TupleSet ts = new TupleSet();
+        ts.add("a", "1");
+        assertThrows(Exception.class, () -> ts.getTuples("a", "a"));
+    }
+
+    @Test
+    public void testAlreadyBoundInNested() throws Exception {
+        TupleSet nested = new TupleSet();
+        nested.add("a", "1");
+        TupleSet ts = new TupleSet();
+        ts.merge(nested);
+        assertThrows(Exception.class, () -> ts.add("a", "2"));
+    }
+}
@@ -0,0 +1,83 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests the byte-level parsing of multipart bodies
+ */
+public class MultipartBodyTest {
+
+    // binary content with line breaks, dashes and bytes which are no valid utf-8
+    private static final byte[] BINARY = new byte[] { 0x1c, '\n', (byte) 0xff, '\r', '\n', '-', '-', (byte) 0xc3, 0x00, '\n' };
+
+    private byte[] body(String lineBreak, boolean blankLine) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(("--boundary" + lineBreak + "Content-Type: " + MultipartBody.WARNINGS_CONTENT_TYPE + lineBreak).getBytes(StandardCharsets.UTF_8));
+        if (blankLine) {
+            out.write(lineBreak.getBytes(StandardCharsets.UTF_8));
+        }
+        out.write(("[]" + lineBreak + "--boundary" + lineBreak + "Content-Type: application/sparql-results+thrift" + lineBreak).getBytes(StandardCharsets.UTF_8));
+        if (blankLine) {
+            out.write(lineBreak.getBytes(StandardCharsets.UTF_8));
+        }
+        out.write(BINARY);
+        out.write((lineBreak + "--boundary--" + lineBreak).getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    private void assertParts(List<MultipartBody.Part> parts) {
+        assertEquals(2, parts.size());
+        assertEquals(MultipartBody.WARNINGS_CONTENT_TYPE, parts.get(0).getContentType());
+        assertEquals("[]", parts.get(0).asString());
+        assertEquals("application/sparql-results+thrift", parts.get(1).getContentType());
+        assertArrayEquals(BINARY, parts.get(1).getContent(), "Binary parts should be kept intact");
+    }
+
+    @Test
+    public void testStandardBody() throws IOException {
+        assertParts(MultipartBody.parse(new ByteArrayInputStream(body("\r\n", true)), "--boundary"));
+    }
+
+    @Test
+    public void testBodyWithoutBlankLines() throws IOException {
+        assertParts(MultipartBody.parse(new ByteArrayInputStream(body("\n", false)), "--boundary"));
+    }
+
+    @Test
+    public void testUnknownBoundary() throws IOException {
+        assertParts(MultipartBody.parse(new ByteArrayInputStream(body("\n", true)), "--"));
+    }
+
+    @Test
+    public void testPartWithoutContentType() throws IOException {
+        List<MultipartBody.Part> parts = MultipartBody.parse(new ByteArrayInputStream("--b\n{}\n".getBytes(StandardCharsets.UTF_8)), "--b");
+        assertEquals(1, parts.size());
+        assertNull(parts.get(0).getContentType());
+    }
+}
@@ -0,0 +1,70 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.jsonld;
+
+import org.eclipse.tractusx.agents.model.DcatDataset;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the streaming catalogue processing
+ */
+public class JsonLdTest {
+
+    private static final String CONTEXT = "\"@context\":{\"dcat\":\"http://www.w3.org/ns/dcat#\",\"dct\":\"http://purl.org/dc/terms/\"}";
+    private static final String DATASETS = "\"dcat:dataset\":[{\"@id\":\"asset1\",\"dct:type\":\"Graph\"},{\"@id\":\"asset2\",\"dct:type\":\"Skill\"}]";
+
+    private List<DcatDataset> process(String catalog, int expected) {
+        List<DcatDataset> datasets = new ArrayList<>();
+        int count = JsonLd.processCatalog(new StringReader(catalog), datasets::add);
+        assertEquals(expected, count, "Count should match the delivered datasets");
+        assertEquals(expected, datasets.size(), "All datasets should be delivered");
+        return datasets;
+    }
+
+    @Test
+    public void testContextBeforeDatasets() {
+        List<DcatDataset> datasets = process("{\"@id\":\"catalog\"," + CONTEXT + "," + DATASETS + "}", 2);
+        assertEquals("asset1", datasets.get(0).getId());
+        assertTrue(datasets.get(0).getProperties().containsKey("http://purl.org/dc/terms/type"), "Dataset properties should be expanded");
+    }
+
+    @Test
+    public void testContextAfterDatasets() {
+        List<DcatDataset> datasets = process("{\"@id\":\"catalog\"," + DATASETS + "," + CONTEXT + "}", 2);
+        assertEquals("asset1", datasets.get(0).getId());
+        assertEquals("asset2", datasets.get(1).getId());
+        assertTrue(datasets.get(1).getProperties().containsKey("http://purl.org/dc/terms/type"), "Dataset properties should be expanded");
+    }
+
+    @Test
+    public void testSingleDataset() {
+        List<DcatDataset> datasets = process("{" + CONTEXT + ",\"dcat:dataset\":{\"@id\":\"asset1\"}}", 1);
+        assertEquals("asset1", datasets.get(0).getId());
+    }
+
+    @Test
+    public void testEmptyCatalog() {
+        process("{\"@id\":\"catalog\"," + CONTEXT + "}", 0);
+    }
+}
@@ -0,0 +1,106 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.service;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.utils.ConfigFactory;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.eclipse.tractusx.agents.utils.QuerySpec;
+import org.eclipse.tractusx.agents.utils.TypeManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the paging over remote catalogues
+ */
+public class DataManagementTest {
+
+    private final Monitor monitor = new Monitor() {
+    };
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /**
+     * builds a data management whose control plane answers each call with the given page
+     */
+    private DataManagement dataManagement(IntFunction<String> pages) {
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(chain -> new Response.Builder()
+                .request(chain.request())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(pages.apply(calls.getAndIncrement()), MediaType.parse("application/json")))
+                .build()).build();
+        AgentConfig config = new AgentConfig(monitor, ConfigFactory.fromMap(Map.of(
+                AgentConfig.CONTROL_PLANE_MANAGEMENT, "http://localhost/management",
+                AgentConfig.CATALOG_PAGE_SIZE_PROPERTY, "2")));
+        return new DataManagement(monitor, new TypeManager(), client, config);
+    }
+
+    private static String page(int... assets) {
+        StringBuilder datasets = new StringBuilder();
+        for (int asset : assets) {
+            if (datasets.length() > 0) {
+                datasets.append(",");
+            }
+            datasets.append(String.format("{\"@id\":\"asset%d\"}", asset));
+        }
+        return String.format("{\"@context\":{\"dcat\":\"http://www.w3.org/ns/dcat#\"},\"dcat:dataset\":[%s]}", datasets);
+    }
+
+    @Test
+    public void testStopsAtShortPage() throws IOException {
+        List<String> ids = new ArrayList<>();
+        DataManagement management = dataManagement(call -> call == 0 ? page(1, 2) : page(3));
+        int count = management.getCatalog("BPNL", "http://remote", QuerySpec.none(), dataset -> ids.add(dataset.getId()));
+        assertEquals(3, count);
+        assertEquals(List.of("asset1", "asset2", "asset3"), ids);
+        assertEquals(2, calls.get(), "Paging should stop after a short page");
+    }
+
+    @Test
+    public void testStopsWhenPagingIsIgnored() throws IOException {
+        List<String> ids = new ArrayList<>();
+        // a connector ignoring the offset keeps delivering the same full page
+        DataManagement management = dataManagement(call -> page(1, 2));
+        int count = management.getCatalog("BPNL", "http://remote", QuerySpec.none(), dataset -> ids.add(dataset.getId()));
+        assertEquals(2, count);
+        assertEquals(List.of("asset1", "asset2"), ids);
+        assertEquals(2, calls.get(), "Paging should stop once a page brings no new datasets");
+    }
+
+    @Test
+    public void testEmptyCatalog() throws IOException {
+        DataManagement management = dataManagement(call -> page());
+        assertEquals(0, management.getCatalog("BPNL", "http://remote", QuerySpec.none(), dataset -> {
+        }));
+        assertEquals(1, calls.get());
+    }
+}
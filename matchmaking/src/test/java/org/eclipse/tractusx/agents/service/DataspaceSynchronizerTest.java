@@ -0,0 +1,76 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.service;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the comparison of asset facts in the dataspace synchronizer
+ */
+public class DataspaceSynchronizerTest {
+
+    private final Node graph = NodeFactory.createURI("edc://connector");
+    private final Node asset = NodeFactory.createURI("edc://connector#asset");
+    private final Node shapes = NodeFactory.createURI("http://www.w3.org/ns/shacl#property");
+    private final Node path = NodeFactory.createURI("http://www.w3.org/ns/shacl#path");
+    private final Node name = NodeFactory.createURI("https://w3id.org/catenax/ontology/common#name");
+    private final Node id = NodeFactory.createURI("https://w3id.org/catenax/ontology/common#id");
+
+    private Set<Quad> shape(Node first, Node second, Node firstPath, Node secondPath) {
+        return Set.of(
+                Quad.create(graph, asset, shapes, first),
+                Quad.create(graph, asset, shapes, second),
+                Quad.create(graph, first, path, firstPath),
+                Quad.create(graph, second, path, secondPath));
+    }
+
+    @Test
+    public void testRelabeledBlankNodesAreEquivalent() {
+        Set<Quad> oldFacts = shape(NodeFactory.createBlankNode("a"), NodeFactory.createBlankNode("b"), name, id);
+        Set<Quad> newFacts = shape(NodeFactory.createBlankNode("c"), NodeFactory.createBlankNode("d"), id, name);
+        assertTrue(DataspaceSynchronizer.isEquivalent(oldFacts, newFacts), "Relabeled shapes should be equivalent");
+    }
+
+    @Test
+    public void testSwappedStructureIsNotEquivalent() {
+        Node first = NodeFactory.createBlankNode("a");
+        Node second = NodeFactory.createBlankNode("b");
+        Set<Quad> oldFacts = shape(first, second, name, id);
+        // same quads modulo blank node labels, but both paths hang off the same node
+        Set<Quad> newFacts = Set.of(
+                Quad.create(graph, asset, shapes, first),
+                Quad.create(graph, asset, shapes, second),
+                Quad.create(graph, first, path, name),
+                Quad.create(graph, first, path, id));
+        assertFalse(DataspaceSynchronizer.isEquivalent(oldFacts, newFacts), "Differently structured shapes should not be equivalent");
+    }
+
+    @Test
+    public void testChangedValueIsNotEquivalent() {
+        Set<Quad> oldFacts = shape(NodeFactory.createBlankNode("a"), NodeFactory.createBlankNode("b"), name, id);
+        Set<Quad> newFacts = shape(NodeFactory.createBlankNode("a"), NodeFactory.createBlankNode("b"), name, name);
+        assertFalse(DataspaceSynchronizer.isEquivalent(oldFacts, newFacts), "Changed shapes should not be equivalent");
+    }
+}
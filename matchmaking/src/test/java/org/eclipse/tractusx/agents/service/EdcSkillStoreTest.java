@@ -0,0 +1,213 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.service;
+
+import jakarta.json.Json;
+import okhttp3.OkHttpClient;
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.model.Asset;
+import org.eclipse.tractusx.agents.model.IdResponse;
+import org.eclipse.tractusx.agents.utils.ConfigFactory;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.eclipse.tractusx.agents.utils.TypeManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the caching of skill assets
+ */
+public class EdcSkillStoreTest {
+
+    private static final String SKILL = "SkillAsset?";
+    private static final String FIRST = "SELECT ?s WHERE { ?s ?p @o }";
+    private static final String SECOND = "SELECT ?o WHERE { @s ?p ?o }";
+
+    private final Monitor monitor = new Monitor() {
+    };
+    private final TypeManager typeManager = new TypeManager();
+    // the skill texts registered at the control plane
+    private final Map<String, String> skills = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    // when set, the next load waits for the latch after reading the skill text
+    private volatile CountDownLatch slowLoad;
+    private volatile CountDownLatch loading;
+
+    private EdcSkillStore store(String ttl, String size) {
+        AgentConfig config = new AgentConfig(monitor, ConfigFactory.fromMap(Map.of(
+                AgentConfig.SKILL_CACHE_TTL, ttl,
+                AgentConfig.SKILL_CACHE_SIZE, size)));
+        DataManagement management = new DataManagement(monitor, typeManager, new OkHttpClient(), config) {
+            @Override
+            public IdResponse createOrUpdateSkill(String assetId, String name, String description, String version, String contract,
+                                                  String ontologies, String distributionMode, boolean isFederated, String query, String allowServicePattern,
+                                                  String denyServicePattern) throws IOException {
+                skills.put(assetId, typeManager.getMapper().readTree(query).asText());
+                return new IdResponse(Json.createObjectBuilder().add("@id", assetId).build());
+            }
+        };
+        return new EdcSkillStore(management, typeManager, config) {
+            @Override
+            protected Optional<Asset> loadAsset(String key) throws IOException {
+                loads.incrementAndGet();
+                String query = skills.get(key);
+                CountDownLatch latch = slowLoad;
+                if (latch != null) {
+                    slowLoad = null;
+                    loading.countDown();
+                    try {
+                        latch.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (query == null) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Asset(Json.createObjectBuilder()
+                        .add("@id", key)
+                        .add("https://w3id.org/edc/v0.0.1/ns/properties", Json.createObjectBuilder())
+                        .add("https://w3id.org/edc/v0.0.1/ns/privateProperties", Json.createObjectBuilder()
+                                .add(EdcSkillStore.QUERY_PROPERTY, query))
+                        .build()));
+            }
+        };
+    }
+
+    private void put(EdcSkillStore store, String key, String query) {
+        assertEquals(key, store.put(key, query, null, null, null, "contract", null, false, null, null));
+    }
+
+    @Test
+    public void testCacheHit() {
+        EdcSkillStore store = store("60000", "10");
+        put(store, SKILL, FIRST);
+        assertEquals(Optional.of(FIRST), store.get(SKILL));
+        assertEquals(FIRST, store.getTemplate(SKILL).orElseThrow().getSkill(), "The template should be compiled from the skill");
+        assertEquals(1, loads.get(), "A cached skill should not be loaded again");
+    }
+
+    @Test
+    public void testMissesAreNotCached() {
+        EdcSkillStore store = store("60000", "10");
+        assertTrue(store.get(SKILL).isEmpty());
+        skills.put(SKILL, FIRST);
+        assertEquals(Optional.of(FIRST), store.get(SKILL), "A newly registered skill should be found immediately");
+    }
+
+    @Test
+    public void testTimeToLive() throws InterruptedException {
+        EdcSkillStore store = store("50", "10");
+        put(store, SKILL, FIRST);
+        store.get(SKILL);
+        skills.put(SKILL, SECOND);
+        Thread.sleep(100);
+        assertEquals(Optional.of(SECOND), store.get(SKILL), "An expired skill should be reloaded");
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        EdcSkillStore store = store("60000", "2");
+        put(store, "firstSkill", FIRST);
+        put(store, "secondSkill", FIRST);
+        put(store, "thirdSkill", FIRST);
+        store.get("firstSkill");
+        store.get("secondSkill");
+        store.get("firstSkill");
+        store.get("thirdSkill");
+        assertEquals(3, loads.get());
+        store.get("firstSkill");
+        assertEquals(3, loads.get(), "A recently used skill should stay cached");
+        store.get("secondSkill");
+        assertEquals(4, loads.get(), "The least recently used skill should have been evicted");
+    }
+
+    @Test
+    public void testPutInvalidates() {
+        EdcSkillStore store = store("60000", "10");
+        put(store, SKILL, FIRST);
+        store.get(SKILL);
+        put(store, SKILL, SECOND);
+        assertEquals(Optional.of(SECOND), store.get(SKILL), "A put should invalidate the cached skill");
+        assertEquals(SECOND, store.getTemplate(SKILL).orElseThrow().getSkill());
+    }
+
+    @Test
+    public void testConcurrentPutWinsOverMiss() throws InterruptedException {
+        EdcSkillStore store = store("60000", "10");
+        skills.put(SKILL, FIRST);
+        CountDownLatch release = new CountDownLatch(1);
+        loading = new CountDownLatch(1);
+        slowLoad = release;
+        AtomicReference<Optional<String>> missed = new AtomicReference<>();
+        Thread reader = new Thread(() -> missed.set(store.get(SKILL)));
+        reader.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        put(store, SKILL, SECOND);
+        release.countDown();
+        reader.join();
+        assertEquals(Optional.of(FIRST), missed.get(), "The slow miss should answer what it has loaded");
+        assertEquals(Optional.of(SECOND), store.get(SKILL), "The slow miss should not have cached a stale skill");
+    }
+
+    @Test
+    public void testRefreshReloadsUsedEntries() throws InterruptedException {
+        EdcSkillStore store = store("100", "10");
+        put(store, SKILL, FIRST);
+        put(store, "idleSkill", FIRST);
+        store.get(SKILL);
+        store.get("idleSkill");
+        Thread.sleep(60);
+        store.get(SKILL);
+        skills.put(SKILL, SECOND);
+        store.refresh();
+        assertEquals(3, loads.get(), "Only entries used since they were loaded should be refreshed");
+        assertEquals(Optional.of(SECOND), store.get(SKILL), "The refreshed skill should be served from the cache");
+        assertEquals(SECOND, store.getTemplate(SKILL).orElseThrow().getSkill(), "The refresh should recompile the skill");
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testRefreshSkipsConcurrentPut() throws InterruptedException {
+        EdcSkillStore store = store("100", "10");
+        put(store, SKILL, FIRST);
+        store.get(SKILL);
+        Thread.sleep(60);
+        store.get(SKILL);
+        CountDownLatch release = new CountDownLatch(1);
+        loading = new CountDownLatch(1);
+        slowLoad = release;
+        Thread refresher = new Thread(store::refresh);
+        refresher.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        put(store, SKILL, SECOND);
+        release.countDown();
+        refresher.join();
+        assertEquals(Optional.of(SECOND), store.get(SKILL), "A refresh should not restore a skill replaced in the meantime");
+    }
+}
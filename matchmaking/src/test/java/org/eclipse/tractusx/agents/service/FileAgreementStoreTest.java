@@ -0,0 +1,154 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.service;
+
+import org.eclipse.tractusx.agents.utils.CachedEndpoint;
+import org.eclipse.tractusx.agents.utils.EndpointDataReference;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.eclipse.tractusx.agents.utils.TypeManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the file agreement store
+ */
+public class FileAgreementStoreTest {
+
+    private final TypeManager typeManager = new TypeManager();
+    private final Monitor monitor = new Monitor() {
+    };
+
+    @TempDir
+    Path folder;
+
+    private CachedEndpoint endpoint(String id, long expiry) {
+        EndpointDataReference reference = EndpointDataReference.Builder.newInstance()
+                .id(id)
+                .contractId("contract-" + id)
+                .endpoint("http://localhost/" + id)
+                .authKey("Authorization")
+                .authCode("token-" + id)
+                .property("http://www.w3.org/1999/02/22-rdf-syntax-ns#type", "https://w3id.org/catenax/ontology/common#GraphAsset")
+                .build();
+        return new CachedEndpoint(reference, "http://connector", expiry, System.currentTimeMillis());
+    }
+
+    @Test
+    public void testReplaySkipsTornLastLine() throws Exception {
+        Path file = folder.resolve("agreements.log");
+        long expiry = System.currentTimeMillis() + 3600000L;
+        FileAgreementStore store = new FileAgreementStore(file, typeManager, monitor);
+        store.put("asset1", endpoint("1", expiry), null);
+        store.put("asset2", endpoint("2", expiry), null);
+        store.remove("asset2");
+        store.close();
+        Files.write(file, "{\"op\":\"put\",\"asset\":\"asset3\",\"refer".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FileAgreementStore reopened = new FileAgreementStore(file, typeManager, monitor);
+        assertEquals(1, reopened.getEndpoints().size(), "Only the complete and not removed entry should survive");
+        CachedEndpoint restored = reopened.getEndpoints().get("asset1");
+        assertEquals("token-1", restored.getReference().getAuthCode(), "Token should be restored");
+        assertEquals("https://w3id.org/catenax/ontology/common#GraphAsset",
+                restored.getReference().getProperties().get("http://www.w3.org/1999/02/22-rdf-syntax-ns#type"), "Asset properties should be restored");
+        reopened.close();
+        assertEquals(1, Files.readAllLines(file, StandardCharsets.UTF_8).size(), "Log should have been compacted when opened");
+    }
+
+    @Test
+    public void testReplayDropsExpired() throws Exception {
+        Path file = folder.resolve("agreements.log");
+        FileAgreementStore store = new FileAgreementStore(file, typeManager, monitor);
+        store.put("asset1", endpoint("1", System.currentTimeMillis() - 1000L), null);
+        store.close();
+        FileAgreementStore reopened = new FileAgreementStore(file, typeManager, monitor);
+        assertTrue(reopened.getEndpoints().isEmpty(), "Expired endpoints should not be restored");
+        reopened.close();
+    }
+
+    @Test
+    public void testCompactionThreshold() throws Exception {
+        Path file = folder.resolve("agreements.log");
+        long expiry = System.currentTimeMillis() + 3600000L;
+        FileAgreementStore store = new FileAgreementStore(file, typeManager, monitor, 5);
+        for (int count = 0; count < 20; count++) {
+            store.put("asset", endpoint(String.valueOf(count), expiry), null);
+        }
+        assertTrue(Files.readAllLines(file, StandardCharsets.UTF_8).size() <= 6, "Log should be compacted while appending");
+        store.close();
+        FileAgreementStore reopened = new FileAgreementStore(file, typeManager, monitor);
+        assertEquals("token-19", reopened.getEndpoints().get("asset").getReference().getAuthCode(), "Latest entry should survive compaction");
+        reopened.close();
+        assertFalse(Files.exists(folder.resolve("agreements.log.tmp")), "Temporary file should be gone");
+    }
+
+    @Test
+    public void testConcurrentChangesReplayAsInMemory() throws Exception {
+        Path file = folder.resolve("agreements.log");
+        long expiry = System.currentTimeMillis() + 3600000L;
+        FileAgreementStore store = new FileAgreementStore(file, typeManager, monitor, 50);
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            int offset = thread;
+            threads.add(new Thread(() -> {
+                for (int count = 0; count < 200; count++) {
+                    String asset = "asset" + (count % 5);
+                    if ((count + offset) % 3 == 0) {
+                        store.remove(asset);
+                    } else {
+                        store.put(asset, endpoint(offset + "-" + count, expiry), null);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Map<String, String> expected = new HashMap<>();
+        store.getEndpoints().forEach((asset, endpoint) -> expected.put(asset, endpoint.getReference().getAuthCode()));
+        store.close();
+        FileAgreementStore reopened = new FileAgreementStore(file, typeManager, monitor);
+        Map<String, String> replayed = new HashMap<>();
+        reopened.getEndpoints().forEach((asset, endpoint) -> replayed.put(asset, endpoint.getReference().getAuthCode()));
+        reopened.close();
+        assertEquals(expected, replayed, "The log should replay to the state in memory");
+    }
+
+    @Test
+    public void testOwnerOnlyPermissions() throws Exception {
+        Path file = folder.resolve("agreements.log");
+        FileAgreementStore store = new FileAgreementStore(file, typeManager, monitor);
+        store.close();
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)), "Log should only be accessible by its owner");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.utils.ConfigFactory;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the adaption of federated batch sizes
+ */
+public class AdaptiveBatchSizeTest {
+
+    private static final String TARGET = "edc://connector#asset";
+
+    private final Monitor monitor = new Monitor() {
+    };
+
+    private AdaptiveBatchSize batchSize(String max, String min, String initial) {
+        return new AdaptiveBatchSize(new AgentConfig(monitor, ConfigFactory.fromMap(Map.of(
+                AgentConfig.FEDERATION_SERVICE_BATCH_SIZE, max,
+                AgentConfig.FEDERATION_SERVICE_BATCH_MIN, min,
+                AgentConfig.FEDERATION_SERVICE_BATCH_INITIAL, initial,
+                AgentConfig.FEDERATION_SERVICE_BATCH_LATENCY, "1000"))), monitor);
+    }
+
+    private final AdaptiveBatchSize sizes = batchSize("1000", "10", "100");
+
+    @Test
+    public void testInitialSize() {
+        assertEquals(100, sizes.getBatchSize(TARGET));
+    }
+
+    @Test
+    public void testGrowsOnFastFullBatches() {
+        sizes.success(TARGET, 100, 100);
+        assertEquals(200, sizes.getBatchSize(TARGET));
+        for (int call = 0; call < 10; call++) {
+            sizes.success(TARGET, sizes.getBatchSize(TARGET), 100);
+        }
+        assertEquals(1000, sizes.getBatchSize(TARGET), "Growth should stop at the maximum");
+    }
+
+    @Test
+    public void testKeepsSizeOnPartialOrModerateBatches() {
+        sizes.success(TARGET, 50, 100);
+        assertEquals(100, sizes.getBatchSize(TARGET), "A partial batch should not grow the size");
+        sizes.success(TARGET, 100, 700);
+        assertEquals(100, sizes.getBatchSize(TARGET), "A batch close to the target latency should not grow the size");
+    }
+
+    @Test
+    public void testShrinksOnSlowBatches() {
+        sizes.success(TARGET, 100, 2000);
+        assertEquals(50, sizes.getBatchSize(TARGET), "Size should shrink in proportion to the latency");
+        sizes.success(TARGET, 50, 100000);
+        assertEquals(10, sizes.getBatchSize(TARGET), "Shrinking should stop at the minimum");
+    }
+
+    @Test
+    public void testHalvesOnFailures() {
+        sizes.failure(TARGET, 100, 100);
+        assertEquals(50, sizes.getBatchSize(TARGET));
+        for (int call = 0; call < 10; call++) {
+            sizes.failure(TARGET, sizes.getBatchSize(TARGET), 100);
+        }
+        assertEquals(10, sizes.getBatchSize(TARGET), "Halving should stop at the minimum");
+    }
+
+    @Test
+    public void testTargetsAreIndependent() {
+        sizes.failure(TARGET, 100, 100);
+        assertEquals(100, sizes.getBatchSize("edc://other#asset"));
+    }
+
+    @Test
+    public void testSmallestSizeOfSeveralTargets() {
+        sizes.failure(TARGET, 100, 100);
+        assertEquals(50, sizes.getBatchSize(List.of(TARGET, "edc://other#asset")));
+        assertEquals(100, sizes.getBatchSize(List.of("edc://other#asset")));
+        assertEquals(50, sizes.getBatchSize(List.of()), "Unknown targets should get the smallest size seen so far");
+    }
+
+    @Test
+    public void testBoundsAreConsistent() {
+        AdaptiveBatchSize small = batchSize("50", "100", "1000");
+        assertEquals(50, small.getBatchSize(TARGET), "Initial size should be capped by the maximum");
+        small.failure(TARGET, 50, 100);
+        assertEquals(50, small.getBatchSize(TARGET), "Minimum should be capped by the maximum");
+    }
+}
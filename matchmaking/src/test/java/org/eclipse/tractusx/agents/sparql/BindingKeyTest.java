@@ -0,0 +1,78 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests the compound keys used to deduplicate batch bindings
+ */
+public class BindingKeyTest {
+
+    private final Var a = Var.alloc("a");
+    private final Var b = Var.alloc("b");
+    private final Var c = Var.alloc("c");
+    private final Node one = NodeFactory.createURI("http://example.org/one");
+    private final Node two = NodeFactory.createLiteral("two");
+
+    @Test
+    public void testEqualBindings() {
+        Binding first = BindingFactory.binding(BindingFactory.binding(a, one), b, two);
+        Binding second = BindingFactory.binding(BindingFactory.binding(b, two), a, one);
+        BindingKey firstKey = BindingKey.of(first, List.of(a, b));
+        BindingKey secondKey = BindingKey.of(second, List.of(a, b));
+        assertEquals(firstKey, secondKey, "Keys should not depend on the binding order");
+        assertEquals(firstKey.hashCode(), secondKey.hashCode());
+    }
+
+    @Test
+    public void testIgnoresOtherVariables() {
+        Binding first = BindingFactory.binding(BindingFactory.binding(a, one), c, one);
+        Binding second = BindingFactory.binding(BindingFactory.binding(a, one), c, two);
+        assertEquals(BindingKey.of(first, List.of(a)), BindingKey.of(second, List.of(a)));
+    }
+
+    @Test
+    public void testUnboundIsPositional() {
+        BindingKey first = BindingKey.of(BindingFactory.binding(a, one), List.of(a, b));
+        BindingKey second = BindingKey.of(BindingFactory.binding(b, one), List.of(a, b));
+        assertNull(first.getComponents()[1], "Unbound variables should be null");
+        assertNotEquals(first, second, "Positions should be distinguished");
+    }
+
+    @Test
+    public void testIndexDeduplicates() {
+        Map<BindingKey, Integer> index = BindingKey.newIndex(2);
+        index.merge(BindingKey.of(BindingFactory.binding(a, one), List.of(a)), 1, Integer::sum);
+        index.merge(BindingKey.of(BindingFactory.binding(a, two), List.of(a)), 1, Integer::sum);
+        index.merge(BindingKey.of(BindingFactory.binding(a, one), List.of(a)), 1, Integer::sum);
+        assertEquals(2, index.size());
+        assertEquals(2, index.get(new BindingKey(new Node[] { one })));
+    }
+}
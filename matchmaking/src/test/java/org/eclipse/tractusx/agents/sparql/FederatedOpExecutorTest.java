@@ -0,0 +1,194 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.op.OpBGP;
+import org.apache.jena.sparql.algebra.op.OpJoin;
+import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.algebra.op.OpUnion;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.main.QC;
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.utils.ConfigFactory;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the concurrent and chunked evaluation of federated unions and joins
+ */
+public class FederatedOpExecutorTest {
+
+    private static final String CX = "https://w3id.org/catenax/ontology/common#";
+    private static final Var INPUT = Var.alloc("input");
+
+    private final Monitor monitor = new Monitor() {
+    };
+    private final AdaptiveBatchSize batchSizes = new AdaptiveBatchSize(new AgentConfig(monitor, ConfigFactory.fromMap(Map.of(
+            AgentConfig.FEDERATION_SERVICE_BATCH_SIZE, "100",
+            AgentConfig.FEDERATION_SERVICE_BATCH_MIN, "1",
+            AgentConfig.FEDERATION_SERVICE_BATCH_INITIAL, "10"))), monitor);
+    private final DatasetGraph dataset = DatasetGraphFactory.create();
+    private final ExecutionContext execCxt = new ExecutionContext(ARQ.getContext().copy(), dataset.getDefaultGraph(), dataset, QC.getFactory(ARQ.getContext()));
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+    private final List<Integer> chunks = Collections.synchronizedList(new ArrayList<>());
+    private RuntimeException failure;
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * a service whose result binds the given variable for each input
+     */
+    private OpService service(String target, String var) {
+        BasicPattern pattern = new BasicPattern();
+        pattern.add(Triple.create(Var.alloc(var + "Subject"), NodeFactory.createURI(CX + var), Var.alloc(var)));
+        return new OpService(NodeFactory.createURI(target), new OpBGP(pattern), false);
+    }
+
+    /**
+     * an executor which simulates the remote calls
+     */
+    private FederatedOpExecutor executor(ExecutorService branchExecutor) {
+        return new FederatedOpExecutor(execCxt, branchExecutor, batchSizes) {
+            @Override
+            protected QueryIterator evaluate(Op branch, List<Binding> inputs) {
+                chunks.add(inputs.size());
+                if (failure != null) {
+                    throw failure;
+                }
+                Triple triple = ((OpBGP) ((OpService) branch).getSubOp()).getPattern().get(0);
+                Var var = (Var) triple.getObject();
+                Node value = ((OpService) branch).getService();
+                List<Binding> results = inputs.stream().map(input -> BindingFactory.binding(input, var, value)).collect(Collectors.toList());
+                return QueryIterPlainWrapper.create(results.iterator(), execCxt);
+            }
+        };
+    }
+
+    private QueryIterator input(int size) {
+        return QueryIterPlainWrapper.create(IntStream.range(0, size)
+                .mapToObj(index -> BindingFactory.binding(INPUT, NodeFactory.createLiteral(Integer.toString(index))))
+                .iterator(), execCxt);
+    }
+
+    private List<Binding> consume(QueryIterator iterator) {
+        List<Binding> result = new ArrayList<>();
+        iterator.forEachRemaining(result::add);
+        iterator.close();
+        return result;
+    }
+
+    @Test
+    public void testUnionFeedsChunks() {
+        Op union = OpUnion.create(service("edc://a#asset", "left"), service("edc://b#asset", "right"));
+        List<Binding> result = consume(executor(pool).execute((OpUnion) union, input(25)));
+        assertEquals(50, result.size(), "Each branch should answer each input");
+        Collections.sort(chunks);
+        assertEquals(List.of(5, 5, 10, 10, 10, 10), chunks, "Branches should see the input in chunks of the batch size");
+    }
+
+    @Test
+    public void testJoinFeedsChunks() {
+        OpJoin join = (OpJoin) OpJoin.create(service("edc://a#asset", "left"), service("edc://b#asset", "right"));
+        List<Binding> result = consume(executor(pool).execute(join, input(25)));
+        assertEquals(25, result.size(), "Each input should be joined with itself");
+        assertTrue(result.stream().allMatch(binding -> binding.contains(Var.alloc("left")) && binding.contains(Var.alloc("right"))
+                && !binding.contains(FederatedOpExecutor.JOIN_ID)), "Both sides should be merged without the join tag");
+        Collections.sort(chunks);
+        assertEquals(List.of(5, 5, 10, 10, 10, 10), chunks, "Both sides should see the input in chunks of the batch size");
+    }
+
+    @Test
+    public void testChunksFollowSmallestBatchSize() {
+        batchSizes.failure("edc://b#asset", 10, 100);
+        OpJoin join = (OpJoin) OpJoin.create(service("edc://a#asset", "left"), service("edc://b#asset", "right"));
+        consume(executor(pool).execute(join, input(10)));
+        assertEquals(List.of(5, 5, 5, 5), chunks, "The slowest target should determine the chunk size");
+    }
+
+    @Test
+    public void testJoinFailurePropagates() {
+        failure = new IllegalStateException("remote failed");
+        OpJoin join = (OpJoin) OpJoin.create(service("edc://a#asset", "left"), service("edc://b#asset", "right"));
+        QueryIterator iterator = executor(pool).execute(join, input(5));
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> consume(iterator));
+        assertSame(failure, thrown, "The failure of a side should reach the consumer");
+    }
+
+    @Test
+    public void testUnionFailurePropagates() {
+        failure = new IllegalStateException("remote failed");
+        Op union = OpUnion.create(service("edc://a#asset", "left"), service("edc://b#asset", "right"));
+        QueryIterator iterator = executor(pool).execute((OpUnion) union, input(5));
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> consume(iterator));
+        assertSame(failure, thrown, "The failure of a branch should reach the consumer");
+    }
+
+    @Test
+    public void testCallerRunsWithoutThreads() {
+        ThreadPoolExecutor none = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+        none.shutdown();
+        OpJoin join = (OpJoin) OpJoin.create(service("edc://a#asset", "left"), service("edc://b#asset", "right"));
+        assertEquals(25, consume(executor(none).execute(join, input(25))).size(), "The join should be evaluated by the consumer");
+        Op union = OpUnion.create(service("edc://a#asset", "left"), service("edc://b#asset", "right"));
+        assertEquals(50, consume(executor(none).execute((OpUnion) union, input(25))).size(), "The union should be evaluated by the consumer");
+    }
+
+    @Test
+    public void testCancelStopsChunks() {
+        Op union = OpUnion.create(service("edc://a#asset", "left"), service("edc://b#asset", "right"));
+        QueryIterator iterator = executor(pool).execute((OpUnion) union, input(25));
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        iterator.cancel();
+        iterator.close();
+        assertTrue(chunks.size() <= 2, "No further chunk should be read after cancellation");
+    }
+}
@@ -0,0 +1,190 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.utils.ConfigFactory;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the scheduling of federated service calls
+ */
+public class FederationSchedulerTest {
+
+    private static final String TARGET = "edc://connector#asset";
+
+    private final Monitor monitor = new Monitor() {
+    };
+    private FederationScheduler scheduler;
+
+    @AfterEach
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private FederationScheduler start(String threads, String targetLimit, String queueDepth) {
+        scheduler = new FederationScheduler(new AgentConfig(monitor, ConfigFactory.fromMap(Map.of(
+                AgentConfig.FEDERATION_THREADS, threads,
+                AgentConfig.FEDERATION_TARGET_LIMIT, targetLimit,
+                AgentConfig.FEDERATION_QUEUE_DEPTH, queueDepth,
+                AgentConfig.READ_TIMEOUT_PROPERTY, "200"))), monitor);
+        scheduler.start();
+        return scheduler;
+    }
+
+    /**
+     * occupies the (single) worker until the returned latch is released
+     */
+    private CountDownLatch block(Object query) throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(query, "edc://blocker#asset", () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    public void testTargetLimit() throws InterruptedException {
+        start("4", "2", "100");
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger maximum = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+        for (int call = 0; call < 8; call++) {
+            scheduler.execute(this, TARGET, () -> {
+                maximum.accumulateAndGet(current.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                current.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(maximum.get() <= 2, "A target should never see more than the limit of concurrent calls");
+    }
+
+    @Test
+    public void testRoundRobin() throws InterruptedException {
+        start("1", "4", "100");
+        CountDownLatch release = block("blocker");
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(6);
+        for (String query : List.of("first", "second")) {
+            for (int call = 0; call < 3; call++) {
+                scheduler.execute(query, TARGET, () -> {
+                    order.add(query);
+                    done.countDown();
+                });
+            }
+        }
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "second", "first", "second", "first", "second"), order,
+                "Queries with pending calls should take turns");
+    }
+
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        start("1", "4", "2");
+        CountDownLatch release = block("blocker");
+        scheduler.execute(this, TARGET, () -> { });
+        scheduler.execute(this, TARGET, () -> { });
+        long begin = System.currentTimeMillis();
+        assertThrows(RejectedExecutionException.class, () -> scheduler.execute(this, TARGET, () -> { }),
+                "A full queue should reject calls which do not fit in time");
+        assertTrue(System.currentTimeMillis() - begin >= 200, "A full queue should block the submitter first");
+        CountDownLatch unblocked = new CountDownLatch(1);
+        Thread submitter = new Thread(() -> {
+            scheduler.execute(this, TARGET, unblocked::countDown);
+        });
+        submitter.start();
+        release.countDown();
+        assertTrue(unblocked.await(5, TimeUnit.SECONDS), "A blocked submitter should proceed once the queue drains");
+        submitter.join();
+    }
+
+    @Test
+    public void testShutdownStopsWorkers() throws Exception {
+        start("2", "4", "100");
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch running = new CountDownLatch(1);
+        scheduler.execute(this, TARGET, () -> {
+            running.countDown();
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        FederationScheduler.Batch<String> batch = scheduler.newBatch(this);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        List<Thread> workers = new ArrayList<>(scheduler.workers);
+        scheduler.shutdown();
+        assertTrue(interrupted.get(), "Running calls should be interrupted");
+        assertTrue(workers.stream().noneMatch(Thread::isAlive), "Workers should have been joined");
+        assertThrows(RejectedExecutionException.class, () -> batch.submit(TARGET, () -> "result"));
+        scheduler.start();
+        assertEquals(2, scheduler.workers.size(), "A restart should reuse the worker slots");
+        Future<String> future = scheduler.newBatch(this).submit(TARGET, () -> "result");
+        assertEquals("result", future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCancelledCallKeepsWorker() throws Exception {
+        start("1", "4", "100");
+        CountDownLatch running = new CountDownLatch(1);
+        Future<String> cancelled = scheduler.newBatch(this).submit(TARGET, () -> {
+            running.countDown();
+            Thread.sleep(60000);
+            return "late";
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        cancelled.cancel(true);
+        Future<String> next = scheduler.newBatch(this).submit(TARGET, () -> "result");
+        assertEquals("result", next.get(5, TimeUnit.SECONDS), "Interrupting a call should not stop its worker");
+        assertFalse(scheduler.workers.isEmpty());
+    }
+}
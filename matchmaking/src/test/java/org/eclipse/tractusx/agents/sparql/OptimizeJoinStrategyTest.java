@@ -0,0 +1,165 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.op.OpBGP;
+import org.apache.jena.sparql.algebra.op.OpFilter;
+import org.apache.jena.sparql.algebra.op.OpLeftJoin;
+import org.apache.jena.sparql.algebra.op.OpSequence;
+import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.expr.E_GreaterThan;
+import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.expr.ExprVar;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.rdf.ExternalFormat;
+import org.eclipse.tractusx.agents.rdf.RdfStore;
+import org.eclipse.tractusx.agents.service.DataspaceSynchronizer;
+import org.eclipse.tractusx.agents.utils.ConfigFactory;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests the cost-based linearization of federated joins
+ */
+public class OptimizeJoinStrategyTest {
+
+    private static final String CX = "https://w3id.org/catenax/ontology/common#";
+
+    private final Monitor monitor = new Monitor() {
+    };
+    private CardinalityStatistics statistics;
+    private OptimizeJoinStrategy strategy;
+
+    @BeforeEach
+    public void setUp() {
+        AgentConfig config = new AgentConfig(monitor, ConfigFactory.empty());
+        RdfStore store = new RdfStore(config, monitor);
+        List<Quad> quads = new ArrayList<>();
+        for (int count = 0; count < 10; count++) {
+            quads.add(Quad.create(store.getDefaultGraph(), NodeFactory.createURI(CX + "part" + count),
+                    NodeFactory.createURI(CX + "name"), NodeFactory.createLiteral("part" + count)));
+        }
+        store.startTx();
+        quads.forEach(store.getDataSet()::add);
+        store.commit();
+        store.countChanges(quads, List.of());
+        statistics = new CardinalityStatistics(store, config, monitor);
+        strategy = new OptimizeJoinStrategy(statistics, false);
+    }
+
+    private Op local() {
+        BasicPattern pattern = new BasicPattern();
+        pattern.add(Triple.create(Var.alloc("part"), NodeFactory.createURI(CX + "name"), Var.alloc("name")));
+        return new OpBGP(pattern);
+    }
+
+    private OpService service(Node target) {
+        BasicPattern pattern = new BasicPattern();
+        pattern.add(Triple.create(Var.alloc("part"), NodeFactory.createURI(CX + "weight"), Var.alloc("weight")));
+        return new OpService(target, new OpBGP(pattern), false);
+    }
+
+    @Test
+    public void testUnknownServiceKeepsOrder() {
+        Op left = local();
+        Op right = service(NodeFactory.createURI("edc://connector#asset"));
+        OpSequence sequence = (OpSequence) strategy.createSequence(left, right);
+        assertSame(left, sequence.get(0), "Unobserved services should not be moved ahead");
+    }
+
+    @Test
+    public void testSelectiveServiceGoesFirst() {
+        Op left = local();
+        OpService right = service(NodeFactory.createURI("edc://connector#asset"));
+        statistics.observe(right, 1, 2);
+        OpSequence sequence = (OpSequence) strategy.createSequence(left, right);
+        assertSame(right, sequence.get(0), "Services known to be selective when unbound should bind first");
+    }
+
+    @Test
+    public void testLargeServiceKeepsOrder() {
+        Op left = local();
+        OpService right = service(NodeFactory.createURI("edc://connector#asset"));
+        statistics.observe(right, 1, 1000);
+        OpSequence sequence = (OpSequence) strategy.createSequence(left, right);
+        assertSame(left, sequence.get(0), "Local patterns which are more selective should bind first");
+    }
+
+    @Test
+    public void testServiceVariableKeepsOrder() {
+        Op left = local();
+        OpService right = service(Var.alloc("target"));
+        statistics.observe(right, 1, 2);
+        OpSequence sequence = (OpSequence) strategy.createSequence(left, right);
+        assertSame(left, sequence.get(0), "Services addressed by a variable need the bindings of the left part");
+    }
+
+    @Test
+    public void testScopedFilterKeepsOrder() {
+        Op left = OpFilter.filter(new E_GreaterThan(new ExprVar("weight"), NodeValue.makeInteger(1)), local());
+        OpService right = service(NodeFactory.createURI("edc://connector#asset"));
+        statistics.observe(right, 1, 2);
+        OpSequence sequence = (OpSequence) strategy.createSequence(left, right);
+        assertSame(left, sequence.get(0), "Filters must not see the bindings of the right part");
+    }
+
+    @Test
+    public void testScopedOptionalKeepsOrder() {
+        BasicPattern optional = new BasicPattern();
+        optional.add(Triple.create(Var.alloc("other"), NodeFactory.createURI(CX + "weight"), Var.alloc("weight")));
+        Op left = OpLeftJoin.create(local(), new OpBGP(optional), (ExprList) null);
+        OpService right = service(NodeFactory.createURI("edc://connector#asset"));
+        statistics.observe(right, 1, 2);
+        OpSequence sequence = (OpSequence) strategy.createSequence(left, right);
+        assertSame(left, sequence.get(0), "Optionals must not see the bindings of the right part");
+    }
+
+    @Test
+    public void testVariablePredicateIsUnknown() {
+        BasicPattern pattern = new BasicPattern();
+        pattern.add(Triple.create(Var.alloc("s"), Var.alloc("p"), Var.alloc("o")));
+        assertEquals(CardinalityStatistics.UNKNOWN, statistics.estimate(new OpBGP(pattern)), "Variable predicates should not be counted");
+        assertEquals(10, statistics.estimate(local()), "Predicates should be counted");
+    }
+
+    @Test
+    public void testCountsFollowTheStore() {
+        RdfStore store = new RdfStore(new AgentConfig(monitor, ConfigFactory.empty()), monitor);
+        store.registerAsset("urn:graph/asset", "<urn:a> <" + CX + "name> \"a\". <urn:b> <" + CX + "name> \"b\". <urn:a> a <" + CX + "Part>.",
+                ExternalFormat.TURTLE);
+        store.registerAsset("urn:graph/asset", "<urn:a> <" + CX + "name> \"a\".", ExternalFormat.TURTLE);
+        assertEquals(2, store.getCount(NodeFactory.createURI(CX + "name"), Node.ANY), "Upserting known quads should not count them again");
+        assertEquals(1, store.getCount(DataspaceSynchronizer.RDF_TYPE, NodeFactory.createURI(CX + "Part")), "Classes should be counted");
+        store.deleteAsset("urn:graph/asset");
+        assertEquals(0, store.getCount(NodeFactory.createURI(CX + "name"), Node.ANY), "Deleted quads should not be counted");
+    }
+}
@@ -0,0 +1,152 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.main.QC;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the concurrent evaluation of federated branches
+ */
+public class QueryIterBranchesTest {
+
+    private static final Var VALUE = Var.alloc("value");
+
+    private final DatasetGraph dataset = DatasetGraphFactory.create();
+    private final ExecutionContext execCxt = new ExecutionContext(ARQ.getContext().copy(), dataset.getDefaultGraph(), dataset, QC.getFactory(ARQ.getContext()));
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private Binding binding(int value) {
+        return BindingFactory.binding(VALUE, NodeFactory.createLiteral(Integer.toString(value)));
+    }
+
+    private Supplier<QueryIterator> branch(int from, int to) {
+        return () -> QueryIterPlainWrapper.create(IntStream.range(from, to).mapToObj(this::binding).iterator(), execCxt);
+    }
+
+    private Set<String> values(QueryIterator iterator) {
+        List<Binding> bindings = new ArrayList<>();
+        iterator.forEachRemaining(bindings::add);
+        iterator.close();
+        return bindings.stream().map(binding -> binding.get(VALUE).getLiteralLexicalForm()).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testMergesAllBranches() {
+        QueryIterator iterator = new QueryIterBranches(pool, List.of(branch(0, 2000), branch(2000, 3000), branch(3000, 3001)));
+        assertEquals(3001, values(iterator).size(), "All bindings of all branches should be merged");
+    }
+
+    @Test
+    public void testFailurePropagates() {
+        IllegalStateException failure = new IllegalStateException("remote failed");
+        QueryIterator iterator = new QueryIterBranches(pool, List.of(branch(0, 10), () -> {
+            throw failure;
+        }));
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> values(iterator));
+        assertSame(failure, thrown, "The failure of a branch should reach the consumer");
+    }
+
+    @Test
+    public void testCallerRunsWhenSaturated() throws InterruptedException {
+        ThreadPoolExecutor saturated = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        saturated.submit(() -> {
+            blocked.countDown();
+            release.await();
+            return null;
+        });
+        blocked.await();
+        try {
+            AtomicReference<Thread> thread = new AtomicReference<>();
+            QueryIterator iterator = new QueryIterBranches(saturated, List.of(() -> {
+                thread.set(Thread.currentThread());
+                return branch(0, 5).get();
+            }));
+            assertEquals(5, values(iterator).size(), "A branch without thread should still be evaluated");
+            assertSame(Thread.currentThread(), thread.get(), "A branch without thread should run on the consumer");
+        } finally {
+            release.countDown();
+            saturated.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelStopsBranches() throws InterruptedException {
+        CountDownLatch closed = new CountDownLatch(1);
+        Iterator<Binding> endless = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Binding next() {
+                return binding(0);
+            }
+        };
+        QueryIterator iterator = new QueryIterBranches(pool, List.of(() -> new QueryIterPlainWrapper(endless, execCxt) {
+            @Override
+            protected void closeIterator() {
+                super.closeIterator();
+                closed.countDown();
+            }
+        }));
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        iterator.cancel();
+        assertTrue(closed.await(5, TimeUnit.SECONDS), "A cancelled iterator should stop its branches");
+        iterator.close();
+    }
+}
@@ -0,0 +1,105 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the streaming of remote row sets
+ */
+public class QueryIterRowSetTest {
+
+    private static final Var VALUE = Var.alloc("value");
+
+    private final List<RuntimeException> outcomes = new ArrayList<>();
+
+    private List<Binding> rows(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(index -> BindingFactory.binding(VALUE, NodeFactory.createLiteral(Integer.toString(index))))
+                .collect(Collectors.toList());
+    }
+
+    private QueryIterRowSet iterator(Iterator<Binding> rows) {
+        return new QueryIterRowSet(RowSetStream.create(List.of(VALUE), rows), null, outcomes::add);
+    }
+
+    @Test
+    public void testCompletesWhenExhausted() {
+        QueryIterRowSet iterator = iterator(rows(3).iterator());
+        iterator.next();
+        iterator.next();
+        assertTrue(outcomes.isEmpty(), "The outcome should not be known before the end of the result");
+        iterator.next();
+        assertFalse(iterator.hasNext());
+        assertFalse(iterator.hasNext());
+        iterator.close();
+        assertEquals(1, outcomes.size(), "The outcome should be reported once");
+        assertNull(outcomes.get(0), "An exhausted result should be reported as success");
+    }
+
+    @Test
+    public void testCompletesWithFailure() {
+        IllegalStateException failure = new IllegalStateException("connection reset");
+        Iterator<Binding> rows = rows(2).iterator();
+        QueryIterRowSet iterator = iterator(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                if (!rows.hasNext()) {
+                    throw failure;
+                }
+                return true;
+            }
+
+            @Override
+            public Binding next() {
+                return rows.next();
+            }
+        });
+        iterator.next();
+        iterator.next();
+        assertThrows(IllegalStateException.class, iterator::hasNext);
+        iterator.close();
+        assertEquals(1, outcomes.size(), "The outcome should be reported once");
+        assertSame(failure, outcomes.get(0), "A broken result should be reported as failure");
+    }
+
+    @Test
+    public void testNoOutcomeWhenClosedEarly() {
+        QueryIterRowSet iterator = iterator(rows(3).iterator());
+        iterator.next();
+        iterator.close();
+        assertTrue(outcomes.isEmpty(), "A result which has not been read completely should not be judged");
+    }
+}
@@ -0,0 +1,191 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.main.QC;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the memoization of remote results within a query
+ */
+public class ServiceMemoTest {
+
+    private static final String KEY = ServiceMemo.getKey("edc://connector#asset", "SELECT * WHERE { ?s ?p ?o }");
+    private static final Var SUBJECT = Var.alloc("s");
+    private static final Var OBJECT = Var.alloc("o");
+    private static final List<Var> VARS = List.of(SUBJECT, OBJECT);
+
+    private final Monitor monitor = new Monitor() {
+    };
+    private final DatasetGraph dataset = DatasetGraphFactory.create();
+    private final ExecutionContext execCxt = new ExecutionContext(ARQ.getContext().copy(), dataset.getDefaultGraph(), dataset, QC.getFactory(ARQ.getContext()));
+
+    @TempDir
+    Path spillDirectory;
+
+    private List<Binding> rows(int count) {
+        return IntStream.range(0, count).mapToObj(index -> {
+            BindingBuilder builder = BindingBuilder.create();
+            builder.add(SUBJECT, NodeFactory.createURI("urn:part:" + index));
+            if (index % 2 == 0) {
+                builder.add(OBJECT, NodeFactory.createLiteral(Integer.toString(index), XSDDatatype.XSDinteger));
+            } else {
+                builder.add(OBJECT, NodeFactory.createLiteral("part\t" + index, "en"));
+            }
+            return builder.build();
+        }).collect(Collectors.toList());
+    }
+
+    private QueryIterator record(ServiceMemo memo, List<Binding> rows) {
+        return memo.record(KEY, VARS, QueryIterPlainWrapper.create(rows.iterator(), execCxt));
+    }
+
+    private List<Binding> consume(QueryIterator iterator) {
+        List<Binding> result = new ArrayList<>();
+        iterator.forEachRemaining(result::add);
+        iterator.close();
+        return result;
+    }
+
+    private List<Path> spillFiles() throws IOException {
+        if (!Files.exists(spillDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testMemoHit() throws IOException {
+        ServiceMemo memo = new ServiceMemo(10, null, monitor);
+        List<Binding> rows = rows(3);
+        assertNull(memo.lookup(KEY), "Nothing should be memoized before the call");
+        assertEquals(rows, consume(record(memo, rows)), "Recording should pass all rows");
+        ServiceMemo.Entry entry = memo.lookup(KEY);
+        assertNotNull(entry, "A completed call should be memoized");
+        assertEquals(VARS, entry.getVars());
+        assertEquals(rows, consume(entry.open()), "The memo should answer the same rows");
+        assertEquals(rows, consume(entry.open()), "The memo should be readable repeatedly");
+        assertEquals(3, memo.rows.get());
+    }
+
+    @Test
+    public void testBudgetExceededWithoutSpill() {
+        ServiceMemo memo = new ServiceMemo(2, null, monitor);
+        List<Binding> rows = rows(5);
+        assertEquals(rows, consume(record(memo, rows)), "Giving up the memo should not affect the consumer");
+        assertNull(memo.lookup(KEY), "A call exceeding the budget should not be memoized without spill directory");
+        assertEquals(0, memo.rows.get(), "The reserved rows should be released");
+    }
+
+    @Test
+    public void testBudgetExceededWithSpill() throws IOException {
+        ServiceMemo memo = new ServiceMemo(2, spillDirectory, monitor);
+        List<Binding> rows = rows(5);
+        assertEquals(rows, consume(record(memo, rows)), "Spilling should not affect the consumer");
+        ServiceMemo.Entry entry = memo.lookup(KEY);
+        assertNotNull(entry, "A call exceeding the budget should be spilled");
+        assertEquals(1, spillFiles().size());
+        assertEquals(rows, consume(entry.open()), "The spilled rows should be answered unchanged");
+        assertEquals(0, memo.rows.get(), "Spilled rows should not count against the budget");
+    }
+
+    @Test
+    public void testBudgetIsShared() {
+        ServiceMemo memo = new ServiceMemo(4, null, monitor);
+        consume(record(memo, rows(3)));
+        List<Binding> rows = rows(2);
+        consume(memo.record("other", VARS, QueryIterPlainWrapper.create(rows.iterator(), execCxt)));
+        assertNotNull(memo.lookup(KEY));
+        assertNull(memo.lookup("other"), "The budget should be shared by all calls of the query");
+        assertEquals(3, memo.rows.get());
+    }
+
+    @Test
+    public void testEarlyCloseInMemory() {
+        ServiceMemo memo = new ServiceMemo(10, null, monitor);
+        QueryIterator iterator = record(memo, rows(3));
+        iterator.next();
+        iterator.close();
+        assertNull(memo.lookup(KEY), "An incomplete result should not be memoized");
+        assertEquals(0, memo.rows.get(), "The rows of an incomplete result should be released");
+    }
+
+    @Test
+    public void testEarlyCloseWhileSpilling() throws IOException {
+        ServiceMemo memo = new ServiceMemo(1, spillDirectory, monitor);
+        QueryIterator iterator = record(memo, rows(5));
+        iterator.next();
+        iterator.next();
+        iterator.next();
+        assertEquals(1, spillFiles().size(), "The recording should have started to spill");
+        iterator.close();
+        assertNull(memo.lookup(KEY), "An incomplete result should not be memoized");
+        assertTrue(spillFiles().isEmpty(), "The spill file of an incomplete result should be deleted");
+    }
+
+    @Test
+    public void testSpillFilesDeleted() throws IOException {
+        ServiceMemo memo = new ServiceMemo(1, spillDirectory, monitor);
+        consume(record(memo, rows(3)));
+        consume(record(memo, rows(3)));
+        assertEquals(1, spillFiles().size(), "The spill file of a duplicate result should be deleted");
+        memo.close();
+        assertNull(memo.lookup(KEY));
+        assertTrue(spillFiles().isEmpty(), "Closing the memo should delete its spill files");
+        consume(record(memo, rows(3)));
+        assertTrue(spillFiles().isEmpty(), "A closed memo should not keep further spill files");
+    }
+
+    @Test
+    public void testRelease() {
+        ServiceMemo memo = new ServiceMemo(10, null, monitor);
+        ServiceMemo.setMemo(execCxt.getContext(), memo);
+        consume(record(memo, rows(3)));
+        ServiceMemo.release(execCxt.getContext());
+        assertNull(ServiceMemo.getMemo(execCxt.getContext()), "The memo should be removed from the context");
+        assertNull(memo.lookup(KEY), "A released memo should forget its results");
+    }
+}
@@ -0,0 +1,120 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVisitorBase;
+import org.apache.jena.sparql.algebra.OpWalker;
+import org.apache.jena.sparql.algebra.op.OpDistinct;
+import org.apache.jena.sparql.algebra.op.OpLabel;
+import org.apache.jena.sparql.algebra.op.OpOrder;
+import org.apache.jena.sparql.algebra.op.OpProject;
+import org.apache.jena.sparql.algebra.op.OpSequence;
+import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.algebra.op.OpSlice;
+import org.apache.jena.sparql.algebra.op.OpTable;
+import org.apache.jena.sparql.algebra.table.TableN;
+import org.apache.jena.sparql.core.Var;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the pushdown of solution modifiers into service calls
+ */
+public class ServicePushdownTest {
+
+    private final Var idVar = Var.alloc("binding");
+    private final OpTable opTable = OpTable.create(new TableN(List.of(idVar)));
+
+    private OpService pushdown(String query) {
+        Op op = ServicePushdown.pushdown(Algebra.compile(QueryFactory.create(query)));
+        OpService[] result = new OpService[1];
+        OpWalker.walk(op, new OpVisitorBase() {
+            @Override
+            public void visit(OpService opService) {
+                result[0] = opService;
+            }
+        });
+        return result[0];
+    }
+
+    @Test
+    public void testLimitAndProjection() {
+        OpService service = pushdown("SELECT ?x WHERE { SERVICE <edc://connector#asset> { ?x ?p ?o } } LIMIT 5");
+        OpSlice slice = assertInstanceOf(OpSlice.class, service.getSubOp(), "Limit should be pushed");
+        assertEquals(5, slice.getLength(), "Limit should be kept");
+        OpProject project = assertInstanceOf(OpProject.class, slice.getSubOp(), "Projection should be pushed");
+        assertEquals(List.of(Var.alloc("x")), project.getVars(), "Only required variables should be projected");
+        OpLabel label = assertInstanceOf(OpLabel.class, project.getSubOp(), "Original pattern should be labelled");
+        assertEquals(ServicePushdown.PUSHDOWN_LABEL, label.getObject(), "Label should mark the pushdown");
+    }
+
+    @Test
+    public void testTopN() {
+        OpService service = pushdown("SELECT * WHERE { SERVICE <edc://connector#asset> { ?x ?p ?o } } ORDER BY ?o LIMIT 5");
+        OpSlice slice = assertInstanceOf(OpSlice.class, service.getSubOp(), "Limit should be pushed");
+        OpOrder order = assertInstanceOf(OpOrder.class, slice.getSubOp(), "Ordering should be pushed together with the limit");
+        assertInstanceOf(OpLabel.class, order.getSubOp(), "Original pattern should be labelled");
+    }
+
+    @Test
+    public void testNoModifiers() {
+        OpService service = pushdown("SELECT * WHERE { SERVICE <edc://connector#asset> { ?x ?p ?o } }");
+        assertTrue(!(service.getSubOp() instanceof OpSlice) && !(service.getSubOp() instanceof OpLabel), "Nothing should be pushed");
+    }
+
+    @Test
+    public void testSubSelectModifiersAreKept() {
+        OpService service = pushdown("SELECT * WHERE { SERVICE <edc://connector#asset> { SELECT DISTINCT ?x WHERE { ?x ?p ?o } LIMIT 3 } } LIMIT 5");
+        OpSlice slice = assertInstanceOf(OpSlice.class, service.getSubOp(), "Limit should be pushed");
+        assertEquals(5, slice.getLength(), "Pushed limit should be kept");
+        OpLabel label = assertInstanceOf(OpLabel.class, slice.getSubOp(), "Original pattern should be labelled");
+        OpSlice inner = assertInstanceOf(OpSlice.class, label.getSubOp(), "Sub-select limit should be kept below the label");
+        assertEquals(3, inner.getLength(), "Sub-select limit should be untouched");
+        assertInstanceOf(OpDistinct.class, inner.getSubOp(), "Sub-select distinct should be kept below the label");
+    }
+
+    @Test
+    public void testBindUnwrapsOnlyPushedModifiers() {
+        OpService service = pushdown("SELECT * WHERE { SERVICE <edc://connector#asset> { SELECT DISTINCT ?x WHERE { ?x ?p ?o } LIMIT 3 } } LIMIT 5");
+        Op remote = DataspaceServiceExecutor.bindRemote(service.getSubOp(), opTable, idVar);
+        OpSlice slice = assertInstanceOf(OpSlice.class, remote, "Pushed limit should apply after the binding");
+        assertEquals(5, slice.getLength(), "Pushed limit should be kept");
+        OpProject project = assertInstanceOf(OpProject.class, slice.getSubOp(), "Binding should be projected");
+        assertTrue(project.getVars().contains(idVar), "Id variable should be projected");
+        Op join = project.getSubOp();
+        assertTrue(join.toString().contains("(slice _ 3"), "Sub-select limit should survive: " + join);
+        assertTrue(join.toString().contains("(distinct"), "Sub-select distinct should survive: " + join);
+    }
+
+    @Test
+    public void testBindUnlabelledSubSelect() {
+        Op pattern = Algebra.compile(QueryFactory.create("SELECT DISTINCT ?x WHERE { ?x ?p ?o } LIMIT 3"));
+        Op remote = DataspaceServiceExecutor.bindRemote(pattern, opTable, idVar);
+        OpSequence sequence = assertInstanceOf(OpSequence.class, remote, "Unlabelled patterns should not be taken apart");
+        assertSame(opTable, sequence.get(0), "Bindings should come first");
+        assertSame(pattern, sequence.get(1), "Pattern should be kept");
+    }
+}
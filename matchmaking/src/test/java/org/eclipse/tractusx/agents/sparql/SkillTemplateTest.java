@@ -0,0 +1,93 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import jakarta.ws.rs.BadRequestException;
+import org.eclipse.tractusx.agents.TupleSet;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the compilation and binding of skill texts
+ */
+public class SkillTemplateTest {
+
+    private final Monitor monitor = new Monitor() {
+    };
+
+    @Test
+    public void testTupleGroups() throws Exception {
+        SkillTemplate template = SkillTemplate.compile("SELECT * WHERE { VALUES (?a ?b) { (@a @b) } }");
+        TupleSet ts = new TupleSet();
+        ts.add("a", "1");
+        ts.add("a", "2");
+        ts.add("b", "\"x\"");
+        assertEquals("SELECT * WHERE { VALUES (?a ?b) { (1 \"x\") (2 \"x\") } }", template.bind(ts, monitor),
+                "The group should be repeated for each tuple, groups without parameters should be kept");
+    }
+
+    @Test
+    public void testTopLevelParameters() throws Exception {
+        SkillTemplate template = SkillTemplate.compile("SELECT ?s WHERE { ?s <urn:p> @o . } LIMIT @limit");
+        TupleSet ts = new TupleSet();
+        ts.add("o", "<urn:first>");
+        ts.add("o", "<urn:second>");
+        ts.add("limit", "10");
+        assertEquals("SELECT ?s WHERE { ?s <urn:p> <urn:first> . } LIMIT 10", template.bind(ts, monitor),
+                "Top-level parameters should be bound to the first tuple");
+        assertEquals("SELECT ?s WHERE { ?s <urn:p> @o . } LIMIT @limit", template.getSkill());
+    }
+
+    @Test
+    public void testMissingTopLevelBinding() {
+        SkillTemplate template = SkillTemplate.compile("SELECT ?s WHERE { ?s <urn:p> @o . }");
+        assertThrows(BadRequestException.class, () -> template.bind(new TupleSet(), monitor),
+                "Unbound top-level parameters should be rejected");
+    }
+
+    @Test
+    public void testMissingGroupBinding() throws Exception {
+        SkillTemplate template = SkillTemplate.compile("SELECT * WHERE { VALUES (?a) { (@a) } ?s <urn:p> @b . }");
+        TupleSet ts = new TupleSet();
+        ts.add("b", "1");
+        assertEquals("SELECT * WHERE { VALUES (?a) {  } ?s <urn:p> 1 . }", template.bind(ts, monitor),
+                "An unbound group should be rendered empty");
+    }
+
+    @Test
+    public void testPartialBindingKeepsSlot() throws Exception {
+        SkillTemplate template = SkillTemplate.compile("SELECT * WHERE { ?s <urn:p> @a . ?s <urn:q> @b . }");
+        TupleSet ts = new TupleSet();
+        ts.add("a", "1");
+        assertEquals("SELECT * WHERE { ?s <urn:p> 1 . ?s <urn:q> @b . }", template.bind(ts, monitor),
+                "Parameters without value should be kept as they are");
+    }
+
+    @Test
+    public void testValuesContainingParameters() throws Exception {
+        SkillTemplate template = SkillTemplate.compile("SELECT * WHERE { ?s <urn:p> @a . ?s <urn:q> @b . VALUES (?c) { (@c) } }");
+        TupleSet ts = new TupleSet();
+        ts.add("a", "\"mail@b\"@en");
+        ts.add("b", "2");
+        ts.add("c", "\"@a\"");
+        assertEquals("SELECT * WHERE { ?s <urn:p> \"mail@b\"@en . ?s <urn:q> 2 . VALUES (?c) { (\"@a\") } }", template.bind(ts, monitor),
+                "Bound values should never be substituted again");
+    }
+}
@@ -0,0 +1,180 @@
+// Copyright (c) 2022,2024 Contributors to the Eclipse Foundation
+//
+// See the NOTICE file(s) distributed with this work for additional
+// information regarding copyright ownership.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Apache License, Version 2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0.
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+// WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+// License for the specific language governing permissions and limitations
+// under the License.
+//
+// SPDX-License-Identifier: Apache-2.0
+package org.eclipse.tractusx.agents.sparql;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.eclipse.tractusx.agents.AgentConfig;
+import org.eclipse.tractusx.agents.rdf.RdfStore;
+import org.eclipse.tractusx.agents.service.DataspaceSynchronizer;
+import org.eclipse.tractusx.agents.utils.ConfigFactory;
+import org.eclipse.tractusx.agents.utils.Monitor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the shape-based source selection
+ */
+public class SourceSelectorTest {
+
+    private static final String CX = "https://w3id.org/catenax/ontology/common#";
+    private static final String SH = DataspaceSynchronizer.SHACL_NAMESPACE;
+
+    private final Monitor monitor = new Monitor() {
+    };
+    private final AgentConfig config = new AgentConfig(monitor, ConfigFactory.fromMap(Map.of(AgentConfig.FEDERATION_SOURCE_SELECTION, "true")));
+
+    private Op compile(String pattern) {
+        return Algebra.compile(QueryFactory.create("PREFIX cx: <" + CX + "> SELECT * WHERE { " + pattern + " }"));
+    }
+
+    private Node uri(String uri) {
+        return NodeFactory.createURI(uri);
+    }
+
+    /**
+     * creates a store with a connector offering an asset whose shape targets cx:Part and has a cx:name property
+     *
+     * @param closed whether the node shape is closed
+     * @return the store
+     */
+    private RdfStore createStore(boolean closed) {
+        RdfStore store = new RdfStore(config, monitor);
+        Node graph = store.getDefaultGraph();
+        Node asset = uri("urn:asset");
+        Node nodeShape = uri("urn:shape");
+        Node propertyShape = NodeFactory.createBlankNode();
+        store.startTx();
+        store.getDataSet().add(Quad.create(graph, uri("edc://connector"), DataspaceSynchronizer.CX_ASSET, asset));
+        store.getDataSet().add(Quad.create(graph, asset, DataspaceSynchronizer.SHAPE_OBJECT, nodeShape));
+        store.getDataSet().add(Quad.create(graph, asset, DataspaceSynchronizer.SHAPE_OBJECT, propertyShape));
+        store.getDataSet().add(Quad.create(graph, nodeShape, SourceSelector.SHACL_TARGET_CLASS, uri(CX + "Part")));
+        store.getDataSet().add(Quad.create(graph, nodeShape, SourceSelector.SHACL_PROPERTY, propertyShape));
+        if (closed) {
+            store.getDataSet().add(Quad.create(graph, nodeShape, SourceSelector.SHACL_CLOSED, SourceSelector.CLOSED));
+        }
+        store.getDataSet().add(Quad.create(graph, propertyShape, SourceSelector.SHACL_PATH, uri(CX + "name")));
+        store.getDataSet().add(Quad.create(graph, uri(CX + "Part"), SourceSelector.RDFS_SUBCLASS_OF, uri(CX + "Thing")));
+        store.getDataSet().add(Quad.create(graph, uri(CX + "Vehicle"), SourceSelector.RDFS_SUBCLASS_OF, uri(CX + "Part")));
+        store.commit();
+        return store;
+    }
+
+    @Test
+    public void testCollectRequirements() {
+        SourceSelector.Requirements requirements = new SourceSelector.Requirements();
+        SourceSelector.collectRequirements(compile("?part a cx:Part; cx:name ?name. OPTIONAL { ?part cx:weight ?weight } "
+                + "{ ?part cx:a ?a } UNION { ?part cx:b ?b } ?part ?p ?o."), requirements);
+        assertEquals(1, requirements.getClasses().size(), "Only the constant class should be required");
+        assertTrue(requirements.getClasses().contains(uri(CX + "Part")), "Class should be required");
+        assertEquals(1, requirements.getPredicates().size(), "Optional, alternative and variable predicates should not be required");
+        assertTrue(requirements.getPredicates().contains(uri(CX + "name")), "Predicate should be required");
+    }
+
+    @Test
+    public void testSwitchedOff() {
+        AgentConfig defaultConfig = new AgentConfig(monitor, ConfigFactory.empty());
+        SourceSelector selector = new SourceSelector(createStore(true), defaultConfig, monitor);
+        assertTrue(selector.getRequirements(compile("?part cx:weight ?weight")).isEmpty(), "Selection should be switched off by default");
+    }
+
+    @Test
+    public void testCollectRequirementsPerSubject() {
+        SourceSelector.Requirements requirements = new SourceSelector.Requirements();
+        SourceSelector.collectRequirements(compile("?part a cx:Part; cx:name ?name. ?other cx:weight ?weight. "
+                + "{ SELECT ?name WHERE { ?part cx:id ?name } }"), requirements);
+        Node part = Var.alloc("part");
+        assertEquals(Set.of(uri(CX + "name")), requirements.getSubjectPredicates().get(part),
+                "Hidden variables of sub-selects should not be mixed with the outer scope");
+        assertEquals(Set.of(uri(CX + "Part")), requirements.getSubjectClasses().get(part));
+        assertEquals(3, requirements.getSubjectPredicates().size(), "Each subject should have its own predicates");
+    }
+
+    @Test
+    public void testOpenShapeKeepsUnknownPredicates() {
+        SourceSelector selector = new SourceSelector(createStore(false), config, monitor);
+        assertTrue(selector.canContribute("edc://connector#urn:asset", selector.getRequirements(compile("?part a cx:Part; cx:weight ?weight"))),
+                "Open shapes should not prune unknown predicates");
+    }
+
+    @Test
+    public void testClosedShapePrunesUnknownPredicates() {
+        SourceSelector selector = new SourceSelector(createStore(true), config, monitor);
+        assertFalse(selector.canContribute("edc://connector#urn:asset", selector.getRequirements(compile("?part a cx:Part; cx:weight ?weight"))),
+                "Closed shapes should prune unknown predicates of their focus nodes");
+        assertTrue(selector.canContribute("edc://connector#urn:asset", selector.getRequirements(compile("?part a cx:Part; cx:name ?name"))),
+                "Closed shapes should keep known predicates");
+    }
+
+    @Test
+    public void testClosedShapeOnlyConstrainsFocusNodes() {
+        SourceSelector selector = new SourceSelector(createStore(true), config, monitor);
+        assertTrue(selector.canContribute("edc://connector#urn:asset", selector.getRequirements(compile("?part cx:weight ?weight"))),
+                "Subjects without a class may be no focus nodes");
+        assertTrue(selector.canContribute("edc://connector#urn:asset", selector.getRequirements(compile("?part a cx:Part. ?other cx:weight ?weight"))),
+                "Other subjects may be no focus nodes");
+        assertTrue(selector.canContribute("edc://connector#urn:asset", selector.getRequirements(compile("?part a cx:Thing; cx:weight ?weight"))),
+                "Instances of super classes may be no focus nodes");
+        assertFalse(selector.canContribute("edc://connector#urn:asset", selector.getRequirements(compile("?part a cx:Vehicle; cx:weight ?weight"))),
+                "Instances of sub classes are focus nodes");
+    }
+
+    @Test
+    public void testClosedShapeAllowsIgnoredProperties() {
+        RdfStore store = createStore(true);
+        Node graph = store.getDefaultGraph();
+        Node list = NodeFactory.createBlankNode();
+        store.startTx();
+        store.getDataSet().add(Quad.create(graph, uri("urn:shape"), SourceSelector.SHACL_IGNORED_PROPERTIES, list));
+        store.getDataSet().add(Quad.create(graph, list, SourceSelector.RDF_FIRST, uri(CX + "weight")));
+        store.getDataSet().add(Quad.create(graph, list, SourceSelector.RDF_REST, SourceSelector.RDF_NIL));
+        store.commit();
+        SourceSelector selector = new SourceSelector(store, config, monitor);
+        assertTrue(selector.canContribute("edc://connector#urn:asset", selector.getRequirements(compile("?part a cx:Part; cx:weight ?weight"))),
+                "Ignored properties should be allowed");
+    }
+
+    @Test
+    public void testConnectorTargetIsNeverPruned() {
+        SourceSelector selector = new SourceSelector(createStore(true), config, monitor);
+        assertTrue(selector.canContribute("edc://connector", selector.getRequirements(compile("?part cx:weight ?weight"))),
+                "Connector-level targets may offer further assets");
+        assertTrue(selector.canContribute("edc://connector#urn:unknown", selector.getRequirements(compile("?part cx:weight ?weight"))),
+                "Uncatalogued assets should not be pruned");
+    }
+
+    @Test
+    public void testClassesAreNeverPruned() {
+        SourceSelector selector = new SourceSelector(createStore(false), config, monitor);
+        assertTrue(selector.canContribute("edc://connector#urn:asset", selector.getRequirements(compile("?part a cx:Material"))),
+                "Open shapes do not describe all classes of an asset");
+        SourceSelector closedSelector = new SourceSelector(createStore(true), config, monitor);
+        assertTrue(closedSelector.canContribute("edc://connector#urn:asset", closedSelector.getRequirements(compile("?part a cx:Material; cx:weight ?weight"))),
+                "Closed shapes do not constrain instances of unrelated classes");
+    }
+}